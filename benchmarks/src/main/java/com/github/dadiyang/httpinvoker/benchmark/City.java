@@ -0,0 +1,56 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+/**
+ * entity used by the benchmarks
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class City {
+    private Integer id;
+    private String name;
+    private String province;
+    private long population;
+
+    public City() {
+    }
+
+    public City(Integer id, String name, String province, long population) {
+        this.id = id;
+        this.name = name;
+        this.province = province;
+        this.population = population;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public void setProvince(String province) {
+        this.province = province;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    public void setPopulation(long population) {
+        this.population = population;
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpApi;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+
+import java.util.List;
+
+/**
+ * the interface proxied in the benchmarks, the responses are served by {@link StubRequestor}
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@HttpApi("http://localhost:8080/city")
+public interface CityApi {
+    /**
+     * path variable only
+     */
+    @HttpReq("/{id}")
+    City getById(@Param("id") int id);
+
+    /**
+     * the bean is flattened to a query string
+     */
+    @HttpReq("/list")
+    List<City> query(CityQuery query);
+
+    /**
+     * the bean is sent as a form body
+     */
+    @HttpReq(value = "/save", method = "POST")
+    boolean save(City city);
+}
@@ -0,0 +1,67 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * query condition which is flattened to a query string or a form body
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class CityQuery {
+    private String name;
+    private String province;
+    private List<Integer> ids;
+    private Date updatedAfter;
+    private int page;
+    private int size;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public void setProvince(String province) {
+        this.province = province;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Integer> ids) {
+        this.ids = ids;
+    }
+
+    public Date getUpdatedAfter() {
+        return updatedAfter;
+    }
+
+    public void setUpdatedAfter(Date updatedAfter) {
+        this.updatedAfter = updatedAfter;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.alibaba.fastjson.JSON;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * shared test data of the benchmarks
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class Fixtures {
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+    public static final int LIST_SIZE = 20;
+
+    private Fixtures() {
+        throw new UnsupportedOperationException("utils should not be initialized!");
+    }
+
+    public static City city(int id) {
+        return new City(id, "城市" + id, "省份" + (id % 5), 1000000L + id);
+    }
+
+    public static List<City> cities() {
+        List<City> cities = new ArrayList<City>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            cities.add(city(i));
+        }
+        return cities;
+    }
+
+    public static CityQuery query() {
+        CityQuery query = new CityQuery();
+        query.setName("北京");
+        query.setProvince("北京市");
+        query.setIds(Arrays.asList(1, 2, 3, 4, 5));
+        query.setUpdatedAfter(new Date(1600000000000L));
+        query.setPage(1);
+        query.setSize(LIST_SIZE);
+        return query;
+    }
+
+    public static Map<String, Object> queryMap() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("name", "北京");
+        map.put("province", "北京市");
+        map.put("ids", Arrays.asList(1, 2, 3, 4, 5));
+        map.put("page", 1);
+        map.put("size", LIST_SIZE);
+        return map;
+    }
+
+    /**
+     * @param data       the data of the response
+     * @param resultBean whether to wrap the data in a {code: 0, msg: 'success', data: data} envelope
+     */
+    public static byte[] body(Object data, boolean resultBean) {
+        if (!resultBean) {
+            return JSON.toJSONString(data).getBytes(UTF_8);
+        }
+        Map<String, Object> envelope = new LinkedHashMap<String, Object>();
+        envelope.put("code", 0);
+        envelope.put("msg", "success");
+        envelope.put("data", data);
+        return JSON.toJSONString(envelope).getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.requestor.ResultBeanResponseProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * end to end cost of a proxied call, i.e. HttpApiInvoker.invoke with an in-process requestor:
+ * url templating, param binding, param encoding and response processing
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark {
+    /**
+     * the response processor, resultBean means the responses are wrapped by {code, msg, data}
+     */
+    @Param({"default", "resultBean"})
+    private String processor;
+    private CityApi getByIdApi;
+    private CityApi queryApi;
+    private CityApi saveApi;
+    private CityQuery query;
+    private City city;
+
+    @Setup
+    public void setUp() {
+        boolean resultBean = "resultBean".equals(processor);
+        getByIdApi = newProxy(Fixtures.body(Fixtures.city(1), resultBean), resultBean);
+        queryApi = newProxy(Fixtures.body(Fixtures.cities(), resultBean), resultBean);
+        saveApi = newProxy(Fixtures.body(true, resultBean), resultBean);
+        query = Fixtures.query();
+        city = Fixtures.city(1);
+    }
+
+    private CityApi newProxy(byte[] body, boolean resultBean) {
+        HttpApiProxyFactory.Builder builder = new HttpApiProxyFactory.Builder().setRequestor(new StubRequestor(body));
+        if (resultBean) {
+            builder.setResponseProcessor(new ResultBeanResponseProcessor());
+        }
+        return builder.build().getProxy(CityApi.class);
+    }
+
+    @Benchmark
+    public City getById() {
+        return getByIdApi.getById(1);
+    }
+
+    @Benchmark
+    public List<City> query() {
+        return queryApi.query(query);
+    }
+
+    @Benchmark
+    public boolean save() {
+        return saveApi.save(city);
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.github.dadiyang.httpinvoker.serializer.FastJsonJsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.GsonJsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.StreamingJsonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the built-in json serializers with a list of {@value Fixtures#LIST_SIZE} cities
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializerBenchmark {
+    @Param({"fastjson", "gson"})
+    private String serializer;
+    private StreamingJsonSerializer jsonSerializer;
+    private List<City> cities;
+    private City city;
+    private String json;
+    private byte[] bytes;
+    private Type type;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        jsonSerializer = "gson".equals(serializer) ? GsonJsonSerializer.getInstance() : FastJsonJsonSerializer.getInstance();
+        cities = Fixtures.cities();
+        city = Fixtures.city(1);
+        json = jsonSerializer.serialize(cities);
+        bytes = json.getBytes(Fixtures.UTF_8);
+        type = CityApi.class.getMethod("query", CityQuery.class).getGenericReturnType();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return jsonSerializer.serialize(cities);
+    }
+
+    @Benchmark
+    public byte[] serializeToStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        jsonSerializer.serialize(cities, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object parseString() {
+        return jsonSerializer.parseObject(json, type);
+    }
+
+    @Benchmark
+    public Object parseStream() throws IOException {
+        return jsonSerializer.parseObject(new ByteArrayInputStream(bytes), Fixtures.UTF_8, type);
+    }
+
+    /**
+     * how beans were flattened to params before, compare it with ParamBenchmark.beanToMap
+     */
+    @Benchmark
+    public Object roundTripToMap() {
+        return jsonSerializer.toMap(jsonSerializer.serialize(city));
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertiesBasePropertyResolver;
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertyResolver;
+import com.github.dadiyang.httpinvoker.util.ParamUtils;
+import com.github.dadiyang.httpinvoker.util.UrlTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * url templating and param encoding in isolation
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamBenchmark {
+    private CityQuery query;
+    private Map<String, Object> queryMap;
+    private City city;
+    private UrlTemplate urlTemplate;
+    private PropertyResolver propertyResolver;
+    private Map<String, Object> pathVariables;
+
+    @Setup
+    public void setUp() {
+        query = Fixtures.query();
+        queryMap = Fixtures.queryMap();
+        city = Fixtures.city(1);
+        // #{} keeps the path variables in the map, so that it can be reused between invocations
+        urlTemplate = UrlTemplate.compile("${api.host}/city/#{id}/detail?lang=#{lang:zh}");
+        Properties properties = new Properties();
+        properties.setProperty("api.host", "http://localhost:8080");
+        propertyResolver = new PropertiesBasePropertyResolver(properties);
+        pathVariables = new HashMap<String, Object>();
+        pathVariables.put("id", 1);
+    }
+
+    @Benchmark
+    public String renderUrl() {
+        return urlTemplate.render(propertyResolver, pathVariables, true);
+    }
+
+    @Benchmark
+    public String beanToQueryString() {
+        return ParamUtils.toQueryString(query);
+    }
+
+    @Benchmark
+    public String mapToQueryString() {
+        return ParamUtils.toQueryString(queryMap);
+    }
+
+    @Benchmark
+    public Map<String, String> beanToMapStringString() {
+        return ParamUtils.toMapStringString(city, "");
+    }
+
+    @Benchmark
+    public Map<String, Object> beanToMap() {
+        return ParamUtils.toMap(query);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.github.dadiyang.httpinvoker.requestor.DefaultResponseProcessor;
+import com.github.dadiyang.httpinvoker.requestor.ResultBeanResponseProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * response processing of a list of {@value Fixtures#LIST_SIZE} cities
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseProcessorBenchmark {
+    private final DefaultResponseProcessor defaultResponseProcessor = new DefaultResponseProcessor();
+    private final ResultBeanResponseProcessor resultBeanResponseProcessor = new ResultBeanResponseProcessor();
+    private Method method;
+    private StubResponse plainResponse;
+    private StubResponse resultBeanResponse;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        method = CityApi.class.getMethod("query", CityQuery.class);
+        plainResponse = new StubResponse(Fixtures.body(Fixtures.cities(), false));
+        resultBeanResponse = new StubResponse(Fixtures.body(Fixtures.cities(), true));
+    }
+
+    @Benchmark
+    public Object defaultProcessor() {
+        return defaultResponseProcessor.process(plainResponse, method);
+    }
+
+    @Benchmark
+    public Object resultBeanProcessor() {
+        return resultBeanResponseProcessor.process(resultBeanResponse, method);
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.dadiyang.httpinvoker.benchmark;
+
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a fully buffered response, which decodes the body lazily like the real requestors do
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class StubResponse implements HttpResponse {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final byte[] body;
+
+    public StubResponse(byte[] body) {
+        this.body = body;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return 200;
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return "OK";
+    }
+
+    @Override
+    public String getCharset() {
+        return "UTF-8";
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/json; charset=UTF-8";
+    }
+
+    @Override
+    public byte[] getBodyAsBytes() {
+        return body;
+    }
+
+    @Override
+    public InputStream getBodyStream() {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public String getBody() {
+        return new String(body, UTF_8);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, List<String>> multiHeaders() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return null;
+    }
+
+    @Override
+    public Map<String, String> getCookies() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getCookie(String name) {
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+/**
+ * entity returned by the stub server
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class City {
+    private Integer id;
+    private String name;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpApi;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * the interface driven by the harness, the base url points to the local stub server
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@HttpApi("${loadtest.base-url}/city")
+public interface CityApi {
+    @HttpReq("/{id}")
+    City getById(@Param("id") int id);
+
+    /**
+     * sent by AsyncRequestor#sendRequestAsync without blocking a thread when the requestor supports it
+     */
+    @HttpReq("/{id}")
+    CompletableFuture<City> getByIdAsync(@Param("id") int id);
+}
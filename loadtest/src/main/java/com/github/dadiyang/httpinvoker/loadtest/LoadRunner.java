@@ -0,0 +1,126 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * drives a proxy with a fixed concurrency for a period of time, i.e. a closed-loop load.
+ * <p>
+ * Synchronous requestors are called by as many threads as the concurrency. Asynchronous requestors are called by
+ * one thread, which keeps as many requests in flight as the concurrency without blocking a thread per request.
+ * <p>
+ * Note that a closed-loop load slows down with the server, so the latencies don't include the time requests would
+ * have waited to be sent, i.e. coordinated omission. Compare the throughput together with the latencies.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class LoadRunner {
+    private static final int ID_RANGE = 1000;
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+    private final CityApi api;
+    private final boolean async;
+    private final int concurrency;
+    private final AtomicInteger ids = new AtomicInteger();
+
+    public LoadRunner(CityApi api, boolean async, int concurrency) {
+        this.api = api;
+        this.async = async;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param requestor name of the requestor to be reported
+     * @param seconds   how long to run
+     */
+    public RunResult run(String requestor, int seconds) throws Exception {
+        Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        if (async) {
+            runAsync(deadline, recorder, errors);
+        } else {
+            runSync(deadline, recorder, errors);
+        }
+        double elapsed = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        return new RunResult(requestor, concurrency, recorder.getIntervalHistogram(), errors.get(), elapsed);
+    }
+
+    private void runSync(final long deadline, final Recorder recorder, final AtomicLong errors) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Callable<Void>> callers = new ArrayList<Callable<Void>>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                callers.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        while (System.nanoTime() < deadline) {
+                            long start = System.nanoTime();
+                            try {
+                                api.getById(nextId());
+                                recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                            } catch (RuntimeException e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(callers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runAsync(long deadline, final Recorder recorder, final AtomicLong errors) throws InterruptedException {
+        final Semaphore inFlight = new Semaphore(concurrency);
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            final long start = System.nanoTime();
+            CompletableFuture<City> future;
+            try {
+                future = api.getByIdAsync(nextId());
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                inFlight.release();
+                continue;
+            }
+            future.whenComplete(new BiConsumer<City, Throwable>() {
+                @Override
+                public void accept(City city, Throwable throwable) {
+                    if (throwable == null) {
+                        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    } else {
+                        errors.incrementAndGet();
+                    }
+                    inFlight.release();
+                }
+            });
+        }
+        // wait for the requests in flight
+        if (!inFlight.tryAcquire(concurrency, DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("requests in flight are not completed in " + DRAIN_TIMEOUT_SECONDS + " seconds");
+        }
+    }
+
+    private int nextId() {
+        return (ids.incrementAndGet() & Integer.MAX_VALUE) % ID_RANGE;
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import java.util.Properties;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+/**
+ * compare the throughput and latencies of the requestors against a local WireMock server, run with --help for options
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class LoadTest {
+    private static final String BODY = "{\"id\":1,\"name\":\"北京\"}";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        WireMockServer server = new WireMockServer(WireMockConfiguration.options()
+                .dynamicPort()
+                .containerThreads(options.getServerThreads())
+                .disableRequestJournal());
+        server.start();
+        try {
+            server.stubFor(get(urlPathMatching("/city/\\d+")).willReturn(aResponse()
+                    .withHeader("Content-Type", "application/json; charset=UTF-8")
+                    .withBody(BODY)
+                    .withFixedDelay(options.getServerDelayMs())));
+            Properties properties = new Properties();
+            properties.setProperty("loadtest.base-url", "http://localhost:" + server.port());
+            System.out.printf("java %s, warmup %ds, duration %ds, server delay %dms, max total %d, max per route %d%n%n",
+                    System.getProperty("java.version"), options.getWarmupSeconds(), options.getDurationSeconds(),
+                    options.getServerDelayMs(), options.getMaxTotal(), options.getMaxPerRoute());
+            System.out.print(RunResult.header());
+            for (String name : options.getRequestors()) {
+                run(name, options, properties);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void run(String name, LoadTestOptions options, Properties properties) throws Exception {
+        RequestorHolder holder = RequestorHolder.create(name, options);
+        if (holder == null) {
+            System.out.println(name + " is not supported by the current JDK, skipped");
+            return;
+        }
+        try {
+            CityApi api = new HttpApiProxyFactory.Builder()
+                    .setRequestor(holder.getRequestor())
+                    .addProperties(properties)
+                    .build()
+                    .getProxy(CityApi.class);
+            for (int concurrency : options.getConcurrencies()) {
+                LoadRunner runner = new LoadRunner(api, holder.isAsync(), concurrency);
+                if (options.getWarmupSeconds() > 0) {
+                    runner.run(name, options.getWarmupSeconds());
+                }
+                System.out.print(runner.run(name, options.getDurationSeconds()).row());
+            }
+        } finally {
+            holder.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * options of the harness, given as --key=value
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class LoadTestOptions {
+    private List<String> requestors = Arrays.asList("jsoup", "httpclient", "httpasync", "jdk");
+    private List<Integer> concurrencies = Arrays.asList(1, 16, 64);
+    private int warmupSeconds = 5;
+    private int durationSeconds = 20;
+    private int maxTotal = 64;
+    private int maxPerRoute = 64;
+    private int serverDelayMs = 0;
+    private int serverThreads = 200;
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                throw new IllegalArgumentException(usage());
+            }
+            int i = arg.indexOf('=');
+            if (!arg.startsWith("--") || i < 0) {
+                throw new IllegalArgumentException("unknown argument: " + arg + "\n" + usage());
+            }
+            String key = arg.substring(2, i);
+            String value = arg.substring(i + 1).trim();
+            if ("requestors".equals(key)) {
+                options.requestors = Arrays.asList(value.split("\\s*,\\s*"));
+            } else if ("concurrency".equals(key)) {
+                List<Integer> concurrencies = new ArrayList<Integer>();
+                for (String c : value.split("\\s*,\\s*")) {
+                    concurrencies.add(parseInt(key, c));
+                }
+                options.concurrencies = concurrencies;
+            } else if ("warmup".equals(key)) {
+                options.warmupSeconds = parseInt(key, value);
+            } else if ("duration".equals(key)) {
+                options.durationSeconds = parseInt(key, value);
+            } else if ("max-total".equals(key)) {
+                options.maxTotal = parseInt(key, value);
+            } else if ("max-per-route".equals(key)) {
+                options.maxPerRoute = parseInt(key, value);
+            } else if ("server-delay".equals(key)) {
+                options.serverDelayMs = parseInt(key, value);
+            } else if ("server-threads".equals(key)) {
+                options.serverThreads = parseInt(key, value);
+            } else {
+                throw new IllegalArgumentException("unknown argument: " + arg + "\n" + usage());
+            }
+        }
+        return options;
+    }
+
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + key + " should be a number, but got: " + value);
+        }
+    }
+
+    public static String usage() {
+        return "usage: java -jar loadtest.jar [options]\n"
+                + "  --requestors=jsoup,httpclient,httpasync,jdk  requestors to compare, jdk requires JDK 11+\n"
+                + "  --concurrency=1,16,64     concurrent callers (in-flight requests for async requestors), each one is a run\n"
+                + "  --warmup=5                warm up seconds of each run, not recorded\n"
+                + "  --duration=20             measured seconds of each run\n"
+                + "  --max-total=64            max connections of the pooled requestors\n"
+                + "  --max-per-route=64        max connections per route of the pooled requestors\n"
+                + "  --server-delay=0          fixed delay in milliseconds of the stub server, to simulate the upstream\n"
+                + "  --server-threads=200      worker threads of the stub server";
+    }
+
+    public List<String> getRequestors() {
+        return requestors;
+    }
+
+    public List<Integer> getConcurrencies() {
+        return concurrencies;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public int getServerDelayMs() {
+        return serverDelayMs;
+    }
+
+    public int getServerThreads() {
+        return serverThreads;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+import com.github.dadiyang.httpinvoker.requestor.AsyncRequestor;
+import com.github.dadiyang.httpinvoker.requestor.HttpAsyncClientRequestor;
+import com.github.dadiyang.httpinvoker.requestor.HttpClientConfig;
+import com.github.dadiyang.httpinvoker.requestor.HttpClientRequestor;
+import com.github.dadiyang.httpinvoker.requestor.JdkHttpClientRequestorFactory;
+import com.github.dadiyang.httpinvoker.requestor.JsoupRequestor;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * a requestor under test together with the client it owns, which is closed after the run
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RequestorHolder implements Closeable {
+    private final String name;
+    private final Requestor requestor;
+    private final Closeable client;
+
+    private RequestorHolder(String name, Requestor requestor, Closeable client) {
+        this.name = name;
+        this.requestor = requestor;
+        this.client = client;
+    }
+
+    /**
+     * @param name jsoup, httpclient, httpasync or jdk
+     * @return null if the requestor is not supported by the current JDK
+     * @throws IllegalArgumentException thrown when the name is unknown
+     */
+    public static RequestorHolder create(String name, LoadTestOptions options) {
+        if ("jsoup".equals(name)) {
+            return new RequestorHolder(name, new JsoupRequestor(), null);
+        }
+        HttpClientConfig config = new HttpClientConfig.Builder()
+                .setMaxTotal(options.getMaxTotal())
+                .setMaxPerRoute(options.getMaxPerRoute())
+                .build();
+        if ("httpclient".equals(name)) {
+            HttpClientRequestor requestor = new HttpClientRequestor(config);
+            return new RequestorHolder(name, requestor, requestor.getHttpClient());
+        }
+        if ("httpasync".equals(name)) {
+            HttpAsyncClientRequestor requestor = new HttpAsyncClientRequestor(config);
+            return new RequestorHolder(name, requestor, requestor);
+        }
+        if ("jdk".equals(name)) {
+            if (!JdkHttpClientRequestorFactory.isSupported()) {
+                return null;
+            }
+            AsyncRequestor requestor = JdkHttpClientRequestorFactory.create();
+            // the default requestors share one HttpClient, which has no pool limit
+            return new RequestorHolder(name, requestor, null);
+        }
+        throw new IllegalArgumentException("unknown requestor: " + name + ", it should be one of jsoup, httpclient, httpasync and jdk");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Requestor getRequestor() {
+        return requestor;
+    }
+
+    public boolean isAsync() {
+        return requestor instanceof AsyncRequestor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+    }
+}
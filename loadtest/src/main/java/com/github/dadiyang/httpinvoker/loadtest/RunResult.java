@@ -0,0 +1,56 @@
+package com.github.dadiyang.httpinvoker.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Locale;
+
+/**
+ * latency distribution and throughput of a run, the latencies are recorded in microseconds
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RunResult {
+    private static final String FORMAT = "%-12s %11s %12s %10s %10s %10s %10s %8s%n";
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private final String requestor;
+    private final int concurrency;
+    private final Histogram histogram;
+    private final long errors;
+    private final double seconds;
+
+    public RunResult(String requestor, int concurrency, Histogram histogram, long errors, double seconds) {
+        this.requestor = requestor;
+        this.concurrency = concurrency;
+        this.histogram = histogram;
+        this.errors = errors;
+        this.seconds = seconds;
+    }
+
+    public static String header() {
+        return String.format(Locale.ROOT, FORMAT, "requestor", "concurrency", "throughput/s",
+                "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "errors");
+    }
+
+    public String row() {
+        return String.format(Locale.ROOT, FORMAT, requestor, concurrency,
+                String.format(Locale.ROOT, "%.1f", histogram.getTotalCount() / seconds),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                errors);
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / MICROS_PER_MILLI);
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+}
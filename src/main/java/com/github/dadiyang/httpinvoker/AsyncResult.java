@@ -0,0 +1,164 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.util.ReflectionUtils;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result holder of an asynchronous invocation, which provides the Future returned to the caller.
+ * <p>
+ * CompletableFuture is used whenever it's available, so that a method declared to return Future can also be cast to it.
+ * On JDK6/7, a plain Future implementation is used.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+abstract class AsyncResult {
+    private static final String COMPLETABLE_FUTURE_CLASS = "java.util.concurrent.CompletableFuture";
+    private static final String COMPLETION_STAGE_CLASS = "java.util.concurrent.CompletionStage";
+
+    /**
+     * check if the return type of a method is supported to be invoked asynchronously
+     */
+    static boolean isAsyncType(Class<?> returnType) {
+        return returnType == Future.class
+                || COMPLETABLE_FUTURE_CLASS.equals(returnType.getName())
+                || COMPLETION_STAGE_CLASS.equals(returnType.getName());
+    }
+
+    static AsyncResult create() {
+        // for JDK6/7 compatibility, CompletableFuture is loaded only if it exists
+        if (ReflectionUtils.classExists(COMPLETABLE_FUTURE_CLASS)) {
+            return new CompletableFutureResult();
+        }
+        return new FutureResult();
+    }
+
+    /**
+     * @return the future which will be returned to the caller
+     */
+    abstract Object getFuture();
+
+    /**
+     * @return whether the future has been completed, by value, exception or cancellation
+     */
+    abstract boolean isDone();
+
+    abstract void complete(Object value);
+
+    abstract void fail(Throwable e);
+
+    private static class CompletableFutureResult extends AsyncResult {
+        private final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+        @Override
+        Object getFuture() {
+            return future;
+        }
+
+        @Override
+        boolean isDone() {
+            return future.isDone();
+        }
+
+        @Override
+        void complete(Object value) {
+            future.complete(value);
+        }
+
+        @Override
+        void fail(Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static class FutureResult extends AsyncResult implements Future<Object> {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private volatile Object value;
+        private volatile Throwable exception;
+
+        @Override
+        Object getFuture() {
+            return this;
+        }
+
+        @Override
+        void complete(Object value) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                this.value = value;
+                done = true;
+            }
+            latch.countDown();
+        }
+
+        @Override
+        void fail(Throwable e) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                this.exception = e;
+                done = true;
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                cancelled = true;
+                done = true;
+            }
+            latch.countDown();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return report();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!latch.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return report();
+        }
+
+        private Object report() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (exception != null) {
+                throw new ExecutionException(exception);
+            }
+            return value;
+        }
+    }
+}
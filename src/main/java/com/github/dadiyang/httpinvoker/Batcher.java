@@ -0,0 +1,289 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.Batch;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.util.ParamUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * merge the calls of a method annotated with {@link Batch} into the calls of its bulk method.
+ * <p>
+ * The first call of a batch schedules it to be sent after the window, and the call which fills it sends it
+ * right away. The bulk method is invoked through the proxy in the async executor, so that it's retried,
+ * limited and recorded like any other method, and the elements are matched to the callers by the string form
+ * of the keys.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class Batcher {
+    private static final int INITIAL_CAPACITY = 16;
+    private final Method bulkMethod;
+    private final Class<?> keysType;
+    private final String keyProperty;
+    private final long windowMillis;
+    private final int maxSize;
+    private final boolean async;
+    private final InvocationHandler handler;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * the batch accepting calls, guarded by the lock
+     */
+    private List<Call> pending;
+
+    /**
+     * @param clazz    the proxied interface
+     * @param method   the method annotated with @Batch
+     * @param handler  the handler to invoke the bulk method
+     * @param timer    the timer to send the batches after the window
+     * @param executor the executor to invoke the bulk method
+     * @throws IllegalStateException thrown when the method or the bulk method doesn't meet the requirements
+     */
+    Batcher(Class<?> clazz, Method method, InvocationHandler handler, ScheduledExecutorService timer, Executor executor) {
+        Batch batch = method.getAnnotation(Batch.class);
+        if (method.getParameterTypes().length != 1) {
+            throw new IllegalStateException("@Batch should only be annotated on the methods with the key as the only parameter, but "
+                    + method.getName() + " has " + method.getParameterTypes().length);
+        }
+        this.bulkMethod = findBulkMethod(clazz, batch.method());
+        this.keysType = bulkMethod.getParameterTypes()[0];
+        if (!keysType.isArray() && !keysType.isAssignableFrom(ArrayList.class) && !keysType.isAssignableFrom(LinkedHashSet.class)) {
+            throw new IllegalStateException("the parameter of the bulk method " + bulkMethod.getName()
+                    + " should be a List, a Set or an array, but it's " + keysType.getName());
+        }
+        this.keyProperty = batch.key();
+        this.windowMillis = Math.max(0, batch.window());
+        this.maxSize = Math.max(1, batch.maxSize());
+        this.async = AsyncResult.isAsyncType(method.getReturnType());
+        this.handler = handler;
+        this.timer = timer;
+        this.executor = executor;
+    }
+
+    private static Method findBulkMethod(Class<?> clazz, String name) {
+        for (Method method : clazz.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterTypes().length == 1 && method.isAnnotationPresent(HttpReq.class)) {
+                return method;
+            }
+        }
+        throw new IllegalStateException("the bulk method " + name + " annotated with @HttpReq with a single parameter"
+                + " is not found in " + clazz.getName());
+    }
+
+    /**
+     * add a call to the pending batch
+     *
+     * @param proxy the proxy invoked
+     * @param key   the argument of the call
+     * @return the future of the element if the method is asynchronous, otherwise the element
+     */
+    Object call(Object proxy, Object key) throws Throwable {
+        Call call = new Call(key);
+        List<Call> batch;
+        boolean first;
+        boolean full;
+        lock.lock();
+        try {
+            first = pending == null;
+            if (first) {
+                pending = new ArrayList<Call>(Math.min(maxSize, INITIAL_CAPACITY));
+            }
+            batch = pending;
+            batch.add(call);
+            full = batch.size() >= maxSize;
+            if (full) {
+                pending = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full) {
+            dispatch(proxy, batch);
+        } else if (first) {
+            schedule(proxy, batch);
+        }
+        return async ? call.result.getFuture() : await(call.result);
+    }
+
+    private static Object await(AsyncResult result) throws Throwable {
+        try {
+            return ((Future<?>) result.getFuture()).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("thread interrupted when waiting for the batch", e);
+        }
+    }
+
+    private void schedule(final Object proxy, final List<Call> batch) {
+        try {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (detach(batch)) {
+                        dispatch(proxy, batch);
+                    }
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            if (detach(batch)) {
+                fail(batch, e);
+            }
+        }
+    }
+
+    /**
+     * stop the batch from accepting calls
+     *
+     * @return false if it has been sent since it's full
+     */
+    private boolean detach(List<Call> batch) {
+        lock.lock();
+        try {
+            if (pending != batch) {
+                return false;
+            }
+            pending = null;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(final Object proxy, final List<Call> batch) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(proxy, batch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void send(Object proxy, List<Call> batch) {
+        // the callers of the same key share the element
+        Map<String, Object> keys = new LinkedHashMap<String, Object>();
+        for (Call call : batch) {
+            String key = String.valueOf(call.key);
+            if (!keys.containsKey(key)) {
+                keys.put(key, call.key);
+            }
+        }
+        Map<String, Object> elements;
+        try {
+            Object result = handler.invoke(proxy, bulkMethod, new Object[]{toKeysArg(keys.values())});
+            if (result instanceof Future) {
+                result = ((Future<?>) result).get();
+            }
+            elements = demultiplex(keys.keySet(), result);
+        } catch (ExecutionException e) {
+            fail(batch, e.getCause());
+            return;
+        } catch (Throwable e) {
+            fail(batch, e);
+            return;
+        }
+        for (Call call : batch) {
+            call.result.complete(elements.get(String.valueOf(call.key)));
+        }
+    }
+
+    private Object toKeysArg(Collection<Object> keys) {
+        if (keysType.isArray()) {
+            Object array = Array.newInstance(keysType.getComponentType(), keys.size());
+            int i = 0;
+            for (Object key : keys) {
+                Array.set(array, i++, key);
+            }
+            return array;
+        }
+        if (keysType.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList<Object>(keys);
+        }
+        return new LinkedHashSet<Object>(keys);
+    }
+
+    /**
+     * @param keys   the string form of the keys in the order they are passed
+     * @param result the return value of the bulk method
+     * @return the elements by the string form of their keys
+     */
+    private Map<String, Object> demultiplex(Set<String> keys, Object result) {
+        Map<String, Object> elements = new HashMap<String, Object>();
+        if (result == null) {
+            return elements;
+        }
+        if (result instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+                elements.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            return elements;
+        }
+        List<Object> list = toList(result);
+        if (keyProperty.isEmpty()) {
+            if (list.size() != keys.size()) {
+                throw new IllegalStateException("the bulk method " + bulkMethod.getName() + " returns " + list.size()
+                        + " elements for " + keys.size() + " keys, which cannot be matched by the position");
+            }
+            int i = 0;
+            for (String key : keys) {
+                elements.put(key, list.get(i++));
+            }
+            return elements;
+        }
+        for (Object element : list) {
+            if (element != null) {
+                elements.put(String.valueOf(ParamUtils.toMap(element).get(keyProperty)), element);
+            }
+        }
+        return elements;
+    }
+
+    private List<Object> toList(Object result) {
+        if (result instanceof Collection) {
+            return new ArrayList<Object>((Collection<?>) result);
+        }
+        if (result.getClass().isArray()) {
+            int length = Array.getLength(result);
+            List<Object> list = new ArrayList<Object>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(Array.get(result, i));
+            }
+            return list;
+        }
+        throw new IllegalStateException("the bulk method " + bulkMethod.getName()
+                + " should return a collection, an array or a map, but it returns " + result.getClass().getName());
+    }
+
+    private static void fail(List<Call> batch, Throwable e) {
+        for (Call call : batch) {
+            call.result.fail(e);
+        }
+    }
+
+    private static class Call {
+        private final Object key;
+        private final AsyncResult result = AsyncResult.create();
+
+        Call(Object key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.ResponseCallback;
+import com.github.dadiyang.httpinvoker.util.IoUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * a callback for the blocking invocations to wait for the response delivered by another thread
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class BlockingCallback implements ResponseCallback {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final AtomicBoolean taken = new AtomicBoolean();
+    private final boolean exclusive;
+    private volatile HttpResponse response;
+    private volatile Throwable failure;
+
+    /**
+     * @param exclusive whether the response is owned by the waiting thread only, so that it should be closed
+     *                  if the thread gives up waiting
+     */
+    BlockingCallback(boolean exclusive) {
+        this.exclusive = exclusive;
+    }
+
+    @Override
+    public void completed(HttpResponse response) {
+        this.response = response;
+        if (!taken.compareAndSet(false, true)) {
+            // the caller has given up waiting
+            closeIfExclusive(response);
+            return;
+        }
+        latch.countDown();
+    }
+
+    @Override
+    public void failed(Throwable e) {
+        this.failure = e;
+        taken.set(true);
+        latch.countDown();
+    }
+
+    /**
+     * @return the response
+     * @throws IOException the failure delivered, which is rethrown as it is if it's unchecked
+     */
+    HttpResponse await() throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            if (!taken.compareAndSet(false, true)) {
+                // completed right before giving up
+                closeIfExclusive(response);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the response");
+        }
+        Throwable e = failure;
+        if (e == null) {
+            return response;
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IOException(e);
+    }
+
+    private void closeIfExclusive(HttpResponse response) {
+        if (exclusive && response instanceof Closeable) {
+            IoUtils.closeStream((Closeable) response);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.Bulkhead;
+import com.github.dadiyang.httpinvoker.limiter.AdaptiveConcurrencyLimiter;
+import com.github.dadiyang.httpinvoker.util.UrlTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * the concurrency limiters of an interface annotated with {@link Bulkhead}, shared by all of its methods
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class Bulkheads {
+    private static final String WHOLE_INTERFACE = "";
+    private final Bulkhead bulkhead;
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<String, AdaptiveConcurrencyLimiter>();
+
+    private Bulkheads(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * @return the bulkheads of the interface, or null if it's not annotated with @Bulkhead
+     */
+    static Bulkheads create(Class<?> clazz) {
+        Bulkhead bulkhead = clazz == null ? null : clazz.getAnnotation(Bulkhead.class);
+        return bulkhead == null ? null : new Bulkheads(bulkhead);
+    }
+
+    /**
+     * @param url the url of the request
+     * @return the limiter of the host of the url, or that of the whole interface if it's not per host
+     */
+    AdaptiveConcurrencyLimiter getLimiter(String url) {
+        String key = bulkhead.perHost() ? UrlTemplate.getHost(url) : WHOLE_INTERFACE;
+        AdaptiveConcurrencyLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = AdaptiveConcurrencyLimiter.create(bulkhead);
+            AdaptiveConcurrencyLimiter exists = limiters.putIfAbsent(key, limiter);
+            limiter = exists != null ? exists : limiter;
+        }
+        return limiter;
+    }
+}
@@ -0,0 +1,340 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * an immutable copy of a response stored in {@link ResponseCache} or shared by the coalesced requests,
+ * which can be processed by any number of callers.
+ * <p>
+ * The body is kept in a ByteBuffer, a direct one if the cache is off-heap, and copied out for every read.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class CachedResponse implements HttpResponse {
+    private static final int OK = 200;
+    private static final long NOT_STORABLE = Long.MIN_VALUE;
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String EXPIRES = "Expires";
+    private static final String VARY = "Vary";
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String NO_STORE = "no-store";
+    private static final String NO_CACHE = "no-cache";
+    private static final String MAX_AGE = "max-age=";
+    private static final String VARY_ALL = "*";
+    private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final String DEFAULT_CHARSET = "UTF-8";
+    private final int statusCode;
+    private final String statusMessage;
+    private final String charset;
+    private final String contentType;
+    private final Map<String, List<String>> headers;
+    private final Map<String, String> cookies;
+    private final ByteBuffer body;
+    private final long expiresAt;
+
+    private CachedResponse(int statusCode, String statusMessage, String charset, String contentType,
+                           Map<String, List<String>> headers, Map<String, String> cookies, ByteBuffer body, long expiresAt) {
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.charset = charset;
+        this.contentType = contentType;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.cookies = Collections.unmodifiableMap(cookies);
+        this.body = body;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * copy the response to be stored
+     *
+     * @param ttlMillis the milliseconds the response stays fresh if it doesn't specify that
+     * @param offHeap   whether the body is kept in a direct buffer
+     * @return the copy, or null if the response should not be stored
+     */
+    static CachedResponse store(HttpResponse response, long ttlMillis, boolean offHeap) {
+        if (response == null || response.getStatusCode() != OK) {
+            return null;
+        }
+        Map<String, List<String>> headers = copyHeaders(response.multiHeaders(), null);
+        long now = System.currentTimeMillis();
+        long expiresAt = expiresAt(headers, ttlMillis, now);
+        if (expiresAt == NOT_STORABLE || expiresAt <= now && !hasValidators(headers)) {
+            return null;
+        }
+        byte[] bytes = readBody(response);
+        ByteBuffer body;
+        if (offHeap) {
+            body = ByteBuffer.allocateDirect(bytes.length);
+            body.put(bytes);
+            body.flip();
+        } else {
+            body = ByteBuffer.wrap(bytes);
+        }
+        Map<String, String> cookies = response.getCookies();
+        return new CachedResponse(response.getStatusCode(), response.getStatusMessage(), response.getCharset(),
+                response.getContentType(), headers,
+                cookies == null ? new HashMap<String, String>() : new HashMap<String, String>(cookies), body, expiresAt);
+    }
+
+    /**
+     * copy the response to be shared, e.g. by the followers of a coalesced request, whatever its status is
+     *
+     * @return the copy which is never stale
+     */
+    static CachedResponse copy(HttpResponse response) {
+        Map<String, String> cookies = response.getCookies();
+        return new CachedResponse(response.getStatusCode(), response.getStatusMessage(), response.getCharset(),
+                response.getContentType(), copyHeaders(response.multiHeaders(), null),
+                cookies == null ? new HashMap<String, String>() : new HashMap<String, String>(cookies),
+                ByteBuffer.wrap(readBody(response)), Long.MAX_VALUE);
+    }
+
+    /**
+     * refresh the stale response with the headers of a 304 Not Modified response
+     *
+     * @param ttlMillis the milliseconds the response stays fresh if it doesn't specify that
+     * @return the refreshed copy sharing the body
+     */
+    CachedResponse revalidate(HttpResponse notModified, long ttlMillis) {
+        Map<String, List<String>> merged = copyHeaders(notModified.multiHeaders(), headers);
+        long now = System.currentTimeMillis();
+        long expires = expiresAt(merged, ttlMillis, now);
+        return new CachedResponse(statusCode, statusMessage, charset, contentType, merged,
+                new HashMap<String, String>(cookies), body, expires == NOT_STORABLE ? now : expires);
+    }
+
+    /**
+     * @param now the current time in milliseconds
+     */
+    boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    /**
+     * @return whether the response carries an ETag or a Last-Modified, by which it can be revalidated
+     */
+    boolean hasValidators() {
+        return hasValidators(headers);
+    }
+
+    /**
+     * make the request conditional by the validators of the response
+     */
+    void addValidators(HttpRequest request) {
+        String etag = getHeader(ETAG);
+        if (etag != null) {
+            request.addHeader(IF_NONE_MATCH, etag);
+        }
+        String lastModified = getHeader(LAST_MODIFIED);
+        if (lastModified != null) {
+            request.addHeader(IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    private static boolean hasValidators(Map<String, List<String>> headers) {
+        return headers.containsKey(ETAG) || headers.containsKey(LAST_MODIFIED);
+    }
+
+    /**
+     * @return the time in milliseconds when the response becomes stale, or NOT_STORABLE
+     */
+    private static long expiresAt(Map<String, List<String>> headers, long ttlMillis, long now) {
+        List<String> vary = headers.get(VARY);
+        if (vary != null) {
+            for (String value : vary) {
+                if (VARY_ALL.equals(value.trim())) {
+                    return NOT_STORABLE;
+                }
+            }
+        }
+        boolean noCache = false;
+        long maxAge = -1;
+        List<String> cacheControl = headers.get(CACHE_CONTROL);
+        if (cacheControl != null) {
+            for (String value : cacheControl) {
+                for (String directive : value.split(",")) {
+                    directive = directive.trim().toLowerCase(Locale.ENGLISH);
+                    if (NO_STORE.equals(directive)) {
+                        return NOT_STORABLE;
+                    } else if (directive.startsWith(NO_CACHE)) {
+                        noCache = true;
+                    } else if (directive.startsWith(MAX_AGE)) {
+                        maxAge = parseSeconds(directive.substring(MAX_AGE.length()));
+                    }
+                }
+            }
+        }
+        if (noCache) {
+            // always revalidated before being reused
+            return now;
+        }
+        if (maxAge >= 0) {
+            return now + maxAge * MILLIS_PER_SECOND;
+        }
+        List<String> expires = headers.get(EXPIRES);
+        if (expires != null && !expires.isEmpty()) {
+            return parseHttpDate(expires.get(0), now);
+        }
+        return now + ttlMillis;
+    }
+
+    /**
+     * @return the seconds, or 0 if it's invalid so that the response is treated as stale
+     */
+    private static long parseSeconds(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.replace("\"", "").trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the time of the date, or the given now if it's invalid so that the response is treated as stale
+     */
+    private static long parseHttpDate(String value, long now) {
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(value.trim()).getTime();
+        } catch (ParseException e) {
+            return now;
+        }
+    }
+
+    /**
+     * @param source the headers to be copied, which take precedence over the base
+     * @param base   the headers to be updated, nullable
+     * @return the case-insensitive headers
+     */
+    private static Map<String, List<String>> copyHeaders(Map<String, List<String>> source, Map<String, List<String>> base) {
+        Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        if (base != null) {
+            headers.putAll(base);
+        }
+        if (source == null) {
+            return headers;
+        }
+        for (Map.Entry<String, List<String>> entry : source.entrySet()) {
+            // the status line may be put with a null name
+            if (entry.getKey() != null && entry.getValue() != null) {
+                headers.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<String>(entry.getValue())));
+            }
+        }
+        return headers;
+    }
+
+    private static byte[] readBody(HttpResponse response) {
+        byte[] bytes = response.getBodyAsBytes();
+        if (bytes != null) {
+            return bytes;
+        }
+        String body = response.getBody();
+        if (body == null) {
+            return new byte[0];
+        }
+        return encode(body, response.getCharset());
+    }
+
+    private static byte[] encode(String body, String charset) {
+        try {
+            return body.getBytes(charset == null ? DEFAULT_CHARSET : charset);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("unsupported charset: " + charset, e);
+        }
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    @Override
+    public String getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public byte[] getBodyAsBytes() {
+        ByteBuffer buffer = body.duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public InputStream getBodyStream() {
+        return new ByteArrayInputStream(getBodyAsBytes());
+    }
+
+    @Override
+    public String getBody() {
+        try {
+            return new String(getBodyAsBytes(), charset == null ? DEFAULT_CHARSET : charset);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("unsupported charset: " + charset, e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        Map<String, String> map = new LinkedHashMap<String, String>(headers.size());
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                map.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, List<String>> multiHeaders() {
+        return headers;
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? Collections.<String>emptyList() : values;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Map<String, String> getCookies() {
+        return cookies;
+    }
+
+    @Override
+    public String getCookie(String name) {
+        return cookies.get(name);
+    }
+}
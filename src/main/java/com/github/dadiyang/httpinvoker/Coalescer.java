@@ -0,0 +1,129 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.ResponseCallback;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * coalesce the identical requests in flight of the methods annotated with
+ * {@link com.github.dadiyang.httpinvoker.annotation.Coalesce}: the first one leads a flight which sends the request,
+ * and those arrive before it lands follow it and share its response instead of sending their own.
+ * <p>
+ * The response is copied to a {@link CachedResponse}, each follower processes it by itself so that no return value is shared among the callers.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class Coalescer {
+    private static final char SEPARATOR = '\n';
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+    /**
+     * @return the canonical key of the request made up of the method, url, params, headers and cookies,
+     * or null if the request has a body which cannot be compared
+     */
+    static String key(HttpRequest request) {
+        if (request.getBody() != null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(request.getMethod()).append(' ').append(request.getUrl());
+        appendSorted(sb, request.getData());
+        appendSorted(sb, request.getHeaders());
+        appendSorted(sb, request.getCookies());
+        return sb.toString();
+    }
+
+    private static void appendSorted(StringBuilder sb, Map<String, ?> map) {
+        sb.append(SEPARATOR);
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, ?> entry : new TreeMap<String, Object>(map).entrySet()) {
+            Object value = entry.getValue();
+            sb.append(entry.getKey()).append('=')
+                    .append(value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value))
+                    .append('&');
+        }
+    }
+
+    /**
+     * @param flight a new flight
+     * @return the flight in progress with the same key, or null if there is none and the given flight is led by the caller
+     */
+    Flight join(Flight flight) {
+        return flights.putIfAbsent(flight.key, flight);
+    }
+
+    /**
+     * deliver the response to the followers of the flight, the requests arrive after that start a new flight
+     */
+    void land(Flight flight, HttpResponse response) {
+        flights.remove(flight.key, flight);
+        flight.land(response, null);
+    }
+
+    /**
+     * deliver the failure to the followers of the flight
+     */
+    void land(Flight flight, Throwable e) {
+        flights.remove(flight.key, flight);
+        flight.land(null, e);
+    }
+
+    /**
+     * a request in flight with the callbacks of its followers
+     */
+    static class Flight {
+        private final String key;
+        private final ConcurrentLinkedQueue<ResponseCallback> callbacks = new ConcurrentLinkedQueue<ResponseCallback>();
+        private final AtomicBoolean landed = new AtomicBoolean();
+        private volatile boolean delivered;
+        private volatile HttpResponse response;
+        private volatile Throwable failure;
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @param callback notified when the flight lands, right away if it has landed
+         */
+        void follow(ResponseCallback callback) {
+            callbacks.add(callback);
+            if (delivered) {
+                deliver();
+            }
+        }
+
+        private void land(HttpResponse response, Throwable failure) {
+            if (!landed.compareAndSet(false, true)) {
+                return;
+            }
+            this.response = response;
+            this.failure = failure;
+            delivered = true;
+            deliver();
+        }
+
+        private void deliver() {
+            ResponseCallback callback;
+            // each callback is polled by exactly one thread
+            while ((callback = callbacks.poll()) != null) {
+                if (failure != null) {
+                    callback.failed(failure);
+                } else {
+                    callback.completed(response);
+                }
+            }
+        }
+    }
+}
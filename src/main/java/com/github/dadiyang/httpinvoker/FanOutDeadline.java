@@ -0,0 +1,71 @@
+package com.github.dadiyang.httpinvoker;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * the deadline of the call of {@link HttpApiProxyFactory#invokeAll(List, long, TimeUnit)} running on the current
+ * thread, the requests sent by the call time out no later than it.
+ * <p>
+ * It's the only ThreadLocal read by the invoker, which otherwise avoids them for the virtual threads: the calls
+ * are opaque to invokeAll, so the thread running one is the only way to reach the proxies it invokes. It's only set
+ * on the fan-out threads while they run a call, and it's not looked up at all if no call is running.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+final class FanOutDeadline {
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<Long>();
+    /**
+     * the number of the calls running with a deadline in all the threads
+     */
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+
+    private FanOutDeadline() {
+        throw new UnsupportedOperationException("utils should not be initialized!");
+    }
+
+    /**
+     * @param call     the call to run within the deadline
+     * @param deadline the System.nanoTime() the call should complete by
+     * @return the call which sets the deadline of the thread while it's running
+     */
+    static <T> Callable<T> bind(final Callable<T> call, final long deadline) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Long previous = DEADLINE.get();
+                DEADLINE.set(deadline);
+                RUNNING.incrementAndGet();
+                try {
+                    return call.call();
+                } finally {
+                    RUNNING.decrementAndGet();
+                    if (previous == null) {
+                        DEADLINE.remove();
+                    } else {
+                        DEADLINE.set(previous);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @param timeout the timeout of the request in milliseconds, 0 for no timeout
+     * @return the timeout limited to the time left before the deadline of the current thread
+     */
+    static int limit(int timeout) {
+        if (RUNNING.get() == 0) {
+            return timeout;
+        }
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return timeout;
+        }
+        long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return (int) Math.max(1, timeout > 0 ? Math.min(timeout, left) : left);
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.dadiyang.httpinvoker;
+
+/**
+ * a count-min sketch of 4-bit counters estimating how often the keys are accessed recently, which is the admission
+ * filter of the TinyLFU policy in {@link ResponseCache}.
+ * <p>
+ * Each key maps to 4 counters in different longs, its frequency is the minimum of them. All the counters are halved
+ * once the increments reach 10 times of the maximum size, so that the popularity of the past fades away.
+ * It's not thread safe, the caller should guard it with a lock.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final long COUNTER_MASK = 0xfL;
+    private static final int MIN_TABLE_SIZE = 16;
+    private static final int SAMPLE_FACTOR = 10;
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * @param maximumSize the max number of the keys to be estimated accurately
+     */
+    FrequencySketch(int maximumSize) {
+        int length = Integer.highestOneBit(Math.max(maximumSize, MIN_TABLE_SIZE) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = SAMPLE_FACTOR * Math.max(maximumSize, 1);
+    }
+
+    /**
+     * @param hash the spread hash of the key
+     * @return the estimated number of the recent accesses, at most 15
+     */
+    int frequency(int hash) {
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & COUNTER_MASK);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * @param hash the spread hash of the key
+     */
+    void increment(int hash) {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = COUNTER_MASK << offset;
+        if ((table[index] & mask) == mask) {
+            // saturated
+            return false;
+        }
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /**
+     * halve all the counters
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.requestor.AsyncRequestor;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import com.github.dadiyang.httpinvoker.requestor.ResponseCallback;
+import com.github.dadiyang.httpinvoker.util.IoUtils;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * an attempt of a method annotated with {@link com.github.dadiyang.httpinvoker.annotation.Hedge}: the request is sent,
+ * and another copy of it is sent each time the delay elapses without a response, until maxAttempts requests are in flight.
+ * <p>
+ * The first response received completes the callback and the hedges not sent yet are cancelled. The losers sent
+ * are not cancelled: they keep their connections and bulkhead permits until their responses arrive, which are closed
+ * then. The callback fails only if all the requests sent have failed.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class HedgedRequest {
+    private final Invocation invocation;
+    private final Requestor requestor;
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final long delayNanos;
+    private final int maxAttempts;
+    private final ResponseCallback callback;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Future<?> nextHedge;
+
+    /**
+     * @param invocation  the invocation
+     * @param requestor   the requestor, the requests are sent by the executor if it's not an AsyncRequestor
+     * @param executor    the executor to send the requests by a blocking requestor
+     * @param timer       the timer to send the hedged requests after the delay
+     * @param delayNanos  the nanoseconds to wait before sending each hedged request
+     * @param maxAttempts the max number of requests in flight
+     * @param callback    notified with the first response, or the last failure if all the requests failed
+     */
+    HedgedRequest(Invocation invocation, Requestor requestor, Executor executor, ScheduledExecutorService timer,
+                  long delayNanos, int maxAttempts, ResponseCallback callback) {
+        this.invocation = invocation;
+        this.requestor = requestor;
+        this.executor = executor;
+        this.timer = timer;
+        this.delayNanos = delayNanos;
+        this.maxAttempts = maxAttempts;
+        this.callback = callback;
+    }
+
+    /**
+     * send the first request
+     */
+    void start() {
+        send(true);
+    }
+
+    private void send(boolean first) {
+        sent.incrementAndGet();
+        pending.incrementAndGet();
+        final Invocation.Attempt attempt;
+        try {
+            attempt = first ? invocation.beginAttempt() : invocation.beginHedge();
+        } catch (RuntimeException e) {
+            onFailure(e);
+            return;
+        }
+        scheduleHedge();
+        if (requestor instanceof AsyncRequestor) {
+            try {
+                ((AsyncRequestor) requestor).sendRequestAsync(attempt.getRequest(), new ResponseCallback() {
+                    @Override
+                    public void completed(HttpResponse response) {
+                        invocation.endAttempt(attempt, response);
+                        onResponse(response);
+                    }
+
+                    @Override
+                    public void failed(Throwable e) {
+                        invocation.endAttempt(attempt, null);
+                        onFailure(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                invocation.endAttempt(attempt, null);
+                onFailure(e);
+            }
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    HttpResponse response;
+                    try {
+                        response = requestor.sendRequest(attempt.getRequest());
+                    } catch (Throwable e) {
+                        invocation.endAttempt(attempt, null);
+                        onFailure(e);
+                        return;
+                    }
+                    invocation.endAttempt(attempt, response);
+                    onResponse(response);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            invocation.endAttempt(attempt, null);
+            onFailure(e);
+        }
+    }
+
+    private void scheduleHedge() {
+        if (sent.get() >= maxAttempts || done.get()) {
+            return;
+        }
+        try {
+            nextHedge = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!done.get()) {
+                        send(false);
+                    }
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // no more hedge, wait for the requests in flight
+        }
+    }
+
+    private void onResponse(HttpResponse response) {
+        pending.decrementAndGet();
+        if (done.compareAndSet(false, true)) {
+            cancelNextHedge();
+            callback.completed(response);
+        } else {
+            // a loser, release its connection
+            closeResponse(response);
+        }
+    }
+
+    private void onFailure(Throwable e) {
+        // wait for the others in flight, the first response of which still wins
+        if (pending.decrementAndGet() <= 0 && done.compareAndSet(false, true)) {
+            cancelNextHedge();
+            callback.failed(e);
+        }
+    }
+
+    private void cancelNextHedge() {
+        Future<?> future = nextHedge;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private static void closeResponse(HttpResponse response) {
+        if (response instanceof Closeable) {
+            IoUtils.closeStream((Closeable) response);
+        }
+    }
+}
@@ -1,28 +1,44 @@
 package com.github.dadiyang.httpinvoker;
 
 import com.github.dadiyang.httpinvoker.annotation.*;
+import com.github.dadiyang.httpinvoker.balancer.Endpoint;
+import com.github.dadiyang.httpinvoker.balancer.EndpointGroup;
+import com.github.dadiyang.httpinvoker.breaker.CircuitBreakerFallback;
+import com.github.dadiyang.httpinvoker.enumeration.RateLimitMode;
+import com.github.dadiyang.httpinvoker.exception.CircuitBreakerOpenException;
+import com.github.dadiyang.httpinvoker.exception.RateLimitExceededException;
+import com.github.dadiyang.httpinvoker.limiter.TokenBucket;
+import com.github.dadiyang.httpinvoker.metrics.InvocationMetrics;
+import com.github.dadiyang.httpinvoker.metrics.InvocationRecord;
 import com.github.dadiyang.httpinvoker.propertyresolver.PropertiesBasePropertyResolver;
 import com.github.dadiyang.httpinvoker.propertyresolver.PropertyResolver;
 import com.github.dadiyang.httpinvoker.requestor.*;
-import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
+import com.github.dadiyang.httpinvoker.util.IoUtils;
+import com.github.dadiyang.httpinvoker.util.NamedThreadFactory;
 import com.github.dadiyang.httpinvoker.util.ParamUtils;
+import com.github.dadiyang.httpinvoker.util.UrlTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.dadiyang.httpinvoker.util.ParamUtils.isCollection;
 
@@ -37,20 +53,39 @@ import static com.github.dadiyang.httpinvoker.util.ParamUtils.isCollection;
 public class HttpApiInvoker implements InvocationHandler {
     private static final Logger log = LoggerFactory.getLogger(HttpApiInvoker.class);
     private static final ResponseProcessor DEFAULT_RESPONSE_PROCESSOR = new DefaultResponseProcessor();
-    private static final Pattern PATH_VARIABLE_PATTERN = Pattern.compile("\\{([^/]+?)}");
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^/]+?)}");
-    private static final Pattern PATH_NOT_REMOVE_VARIABLE_PATTERN = Pattern.compile("#\\{([^/]+?)}");
-    private static final Pattern PROTOCOL_PATTERN = Pattern.compile("^[a-zA-Z].+://");
     private static final int OK_CODE_L = 200;
     private static final int OK_CODE_H = 300;
+    private static final int URL_BUFFER_SIZE = 128;
+    private static final int DEFAULT_ASYNC_MAX_THREADS = 256;
+    private static final long DEFAULT_ASYNC_KEEP_ALIVE_SECONDS = 60L;
+    private static final int DEFAULT_CACHE_SIZE = 1024;
     private static final String HTTP_API_PREFIX = "$HttpApi$";
     private static final String TO_STRING = "toString";
-    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_LENGTH = "Content-Length";
     private Requestor requestor;
     private PropertyResolver propertyResolver;
     private Class<?> clazz;
     private RequestPreprocessor requestPreprocessor;
     private ResponseProcessor responseProcessor;
+    private Executor asyncExecutor;
+    private InvocationMetrics metrics;
+    private RetryBudget retryBudget;
+    private ResponseCache responseCache;
+    private RateLimiters rateLimiters = new RateLimiters();
+    private boolean currentMethodThreadLocal = true;
+    private final Map<Method, MethodInvocationPlan> plans = new ConcurrentHashMap<Method, MethodInvocationPlan>();
+    private final ConcurrentMap<String, EndpointGroup> endpointGroups = new ConcurrentHashMap<String, EndpointGroup>();
+    private final Coalescer coalescer = new Coalescer();
+    private final Bulkheads bulkheads;
+    /**
+     * the batches are sent by the async executor, which is set after the batch plans are created
+     */
+    private final Executor batchExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            getAsyncExecutor().execute(command);
+        }
+    };
 
     public HttpApiInvoker(Requestor requestor, Properties properties,
                           Class<?> clazz, RequestPreprocessor requestPreprocessor,
@@ -61,6 +96,8 @@ public class HttpApiInvoker implements InvocationHandler {
         this.requestPreprocessor = requestPreprocessor;
         this.responseProcessor = responseProcessor;
         this.clazz = clazz;
+        this.bulkheads = Bulkheads.create(clazz);
+        createBatchPlans();
     }
 
     public HttpApiInvoker(Requestor requestor, PropertyResolver propertyResolver,
@@ -71,34 +108,90 @@ public class HttpApiInvoker implements InvocationHandler {
         this.requestPreprocessor = requestPreprocessor;
         this.responseProcessor = responseProcessor;
         this.clazz = clazz;
+        this.bulkheads = Bulkheads.create(clazz);
+        createBatchPlans();
     }
 
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if (!method.isAnnotationPresent(HttpReq.class)) {
-            // toString method with a specific prefix
-            if (TO_STRING.equals(method.getName()) && method.getParameterTypes().length == 0) {
-                return HTTP_API_PREFIX + this;
+        MethodInvocationPlan plan = plans.get(method);
+        if (plan == null) {
+            if (!method.isAnnotationPresent(HttpReq.class)) {
+                return invokeObjectMethod(method, args);
             }
-            try {
-                // those Object's methods such as getClass/hasCode/equals invoke 'this' method
-                if (this.getClass().getMethod(method.getName(), method.getParameterTypes()) != null) {
-                    return method.invoke(this, args);
-                }
-            } catch (NoSuchMethodException ignored) {
-                //
-            } catch (SecurityException ignored) {
+            plan = new MethodInvocationPlan(method, clazz, responseProcessor);
+            plans.put(method, plan);
+        }
+        if (plan.getBatcher() != null) {
+            return plan.getBatcher().call(proxy, args[0]);
+        }
+        Invocation invocation = new Invocation(plan, metrics == null ? null : new InvocationRecord(clazz, method), args, bulkheads);
+        try {
+            invocation.setRequest(prepareRequest(invocation, args));
+        } catch (RuntimeException e) {
+            recordInvocation(invocation, e);
+            throw e;
+        }
+        InvocationRecord record = invocation.getRecord();
+        if (record != null) {
+            record.setPrepareNanos(System.nanoTime() - invocation.getStart());
+            record.setHttpMethod(invocation.getRequest().getMethod());
+            record.setUrl(invocation.getRequest().getUrl());
+        }
+        HttpResponse cached = lookupCache(invocation);
+        if (cached == null && retryBudget != null) {
+            retryBudget.deposit(invocation.getRequest().getUrl());
+        }
+        if (plan.isAsync()) {
+            return invokeAsync(invocation, cached);
+        }
+        Object returnValue;
+        try {
+            HttpResponse response = cached != null ? cached : storeCache(invocation, coalesceRequest(invocation));
+            returnValue = processResponse(invocation, response);
+        } catch (Throwable e) {
+            recordInvocation(invocation, e);
+            return fallback(invocation, e);
+        }
+        recordInvocation(invocation, null);
+        return returnValue;
+    }
 
-            }
-            // this proxy only implement those HttpReq-annotated method
-            throw new IllegalStateException("this proxy only implement those HttpReq-annotated method, please add a @HttpReq on it.");
+    /**
+     * get the return value from the fallback of the @CircuitBreaker if the call is rejected by it
+     *
+     * @throws Throwable the given exception if it's not rejected by the circuit breaker or no fallback is specified
+     */
+    private Object fallback(Invocation invocation, Throwable e) throws Throwable {
+        CircuitBreakerFallback fallback = invocation.getPlan().getFallback();
+        if (fallback == null || !(e instanceof CircuitBreakerOpenException)) {
+            throw e;
         }
-        HttpReq anno = method.getAnnotation(HttpReq.class);
-        String url = prepareUrl(anno);
-        HttpRequest request = new HttpRequest(anno.timeout(), anno.method());
-        request.setUrl(url);
-        if (args != null && args.length > 0) {
+        return fallback.fallback(invocation.getPlan().getMethod(), invocation.getArgs(), (CircuitBreakerOpenException) e);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void preprocessWithThreadLocal(MethodInvocationPlan plan, HttpRequest request) {
+        try {
+            RequestPreprocessor.CURRENT_METHOD_THREAD_LOCAL.set(plan.getMethod());
+            requestPreprocessor.process(request);
+        } finally {
+            RequestPreprocessor.CURRENT_METHOD_THREAD_LOCAL.remove();
+        }
+    }
+
+    /**
+     * bind the arguments and build the request to be sent
+     */
+    private HttpRequest prepareRequest(Invocation invocation, Object[] args) {
+        MethodInvocationPlan plan = invocation.getPlan();
+        HttpRequest request = new HttpRequest(plan.getTimeout(), plan.getReqMethod());
+        request.setStreaming(plan.isStreaming());
+        request.setProxiedMethod(plan.getMethod());
+        Map<String, Object> params = null;
+        boolean hasArgs = args != null && args.length > 0;
+        if (hasArgs) {
             // find MultiPart
             for (Object arg : args) {
                 if (arg instanceof MultiPart) {
@@ -108,8 +201,7 @@ public class HttpApiInvoker implements InvocationHandler {
                     request.setBody(arg);
                 }
             }
-            Map<String, Object> params = null;
-            Map<String, Object> annotatedParam = parseAnnotatedParams(args, method, request);
+            Map<String, Object> annotatedParam = parseAnnotatedParams(args, plan, request);
             // use annotated param if exists
             if (annotatedParam != null && !annotatedParam.isEmpty()) {
                 params = annotatedParam;
@@ -120,160 +212,631 @@ public class HttpApiInvoker implements InvocationHandler {
                 } else if (args[0] != null) {
                     params = parseParam(args[0]);
                 }
-            } else {
-                // try the parse body to a map
+            } else if (!isFile(request.getBody())) {
+                // try the parse body to a map, the file is uploaded as it is
                 request.setData(parseParam(request.getBody()));
             }
-            // fill path variable for the url
-            url = fillPathVariables(params, url, false);
-            request.setUrl(url);
+        }
+        // fill config variables and path variables for the url
+        StringBuilder urlBuilder = new StringBuilder(URL_BUFFER_SIZE);
+        boolean urlResolved = renderUrl(invocation, urlBuilder, params, hasArgs);
+        String url = urlBuilder.toString();
+        request.setUrl(url);
+        if (hasArgs) {
             request.setData(params);
         }
-        addHeaders(method, request);
-        addCookies(method, request);
-        addContentType(method, request);
-        addUserAgent(method, request);
+        // method's headers and cookies will cover those with same key
+        for (Map.Entry<String, String> entry : plan.getHeaders().entrySet()) {
+            request.addHeader(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : plan.getCookies().entrySet()) {
+            request.addCookie(entry.getKey(), entry.getValue());
+        }
 
         if (requestPreprocessor != null) {
-            try {
-                RequestPreprocessor.CURRENT_METHOD_THREAD_LOCAL.set(method);
+            if (currentMethodThreadLocal) {
+                preprocessWithThreadLocal(plan, request);
+            } else {
                 requestPreprocessor.process(request);
-            } finally {
-                RequestPreprocessor.CURRENT_METHOD_THREAD_LOCAL.remove();
             }
         }
         // fill path variable again, so that user can provide some params by requestPreprocessor
-        url = fillPathVariables(request.getData(), request.getUrl(), true);
-        request.setUrl(url);
-        long start = System.currentTimeMillis();
-        HttpResponse response;
-        RetryPolicy retryPolicy = getRetryPolicy(method);
-        if (retryPolicy == null) {
-            response = requestor.sendRequest(request);
-        } else {
-            response = retrySendRequest(request, retryPolicy);
+        if (!urlResolved || !url.equals(request.getUrl())) {
+            request.setUrl(UrlTemplate.compile(request.getUrl()).render(propertyResolver, request.getData(), true));
         }
-        if (isSuc(url, response)) {
-            return null;
+        // a call of invokeAll should not wait for the response beyond its deadline
+        request.setTimeout(FanOutDeadline.limit(request.getTimeout()));
+        return request;
+    }
+
+    /**
+     * dispatch the request without blocking the caller thread, the returned future will be completed with the processed response
+     *
+     * @param cached the fresh response cached, null if the request should be sent
+     */
+    private Object invokeAsync(final Invocation invocation, HttpResponse cached) {
+        final AsyncResult result = AsyncResult.create();
+        if (cached != null) {
+            completeAsync(result, invocation, cached);
+            return result.getFuture();
+        }
+        Coalescer.Flight inFlight = joinFlight(invocation);
+        if (inFlight != null) {
+            inFlight.follow(new ResponseCallback() {
+                @Override
+                public void completed(HttpResponse response) {
+                    completeAsync(result, invocation, response);
+                }
+
+                @Override
+                public void failed(Throwable e) {
+                    failAsync(result, invocation, e);
+                }
+            });
+            return result.getFuture();
+        }
+        RetryPolicy retryPolicy = invocation.getPlan().getRetryPolicy();
+        RetryHandler retryHandler = retryPolicy == null || retryPolicy.times() <= 0 ? null
+                : new RetryHandler(retryPolicy, invocation.getRequest(), invocation.getStart(), retryBudget);
+        attemptAsync(result, invocation, retryHandler);
+        return result.getFuture();
+    }
+
+    /**
+     * make an attempt without blocking the current thread, the permit of the @RateLimit is waited for on the timer
+     */
+    private void attemptAsync(final AsyncResult result, final Invocation invocation, final RetryHandler retryHandler) {
+        if (retryHandler != null) {
+            retryHandler.beforeAttempt(invocation.getRequest());
+        }
+        long wait;
+        try {
+            wait = reservePermit(invocation);
+        } catch (RateLimitExceededException e) {
+            onAsyncFailure(result, invocation, retryHandler, e);
+            return;
+        }
+        if (wait <= 0) {
+            dispatchAsync(result, invocation, retryHandler);
+            return;
+        }
+        try {
+            TimerHolder.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchAsync(result, invocation, retryHandler);
+                }
+            }, wait, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            failAsync(result, invocation, e);
+        }
+    }
+
+    /**
+     * send the request of an attempt, no thread is occupied while waiting for the response if the requestor is an AsyncRequestor
+     */
+    private void dispatchAsync(final AsyncResult result, final Invocation invocation, final RetryHandler retryHandler) {
+        ResponseCallback callback = new ResponseCallback() {
+            @Override
+            public void completed(HttpResponse response) {
+                onAsyncResponse(result, invocation, retryHandler, response);
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                onAsyncFailure(result, invocation, retryHandler, e);
+            }
+        };
+        long hedgeDelay = invocation.getPlan().getHedgeDelayNanos();
+        if (hedgeDelay > 0) {
+            new HedgedRequest(invocation, requestor, getAsyncExecutor(), TimerHolder.INSTANCE, hedgeDelay,
+                    invocation.getPlan().getHedgeMaxAttempts(), callback).start();
+            return;
+        }
+        if (requestor instanceof AsyncRequestor) {
+            final Invocation.Attempt attempt;
+            try {
+                attempt = invocation.beginAttempt();
+            } catch (RuntimeException e) {
+                callback.failed(e);
+                return;
+            }
+            try {
+                ((AsyncRequestor) requestor).sendRequestAsync(attempt.getRequest(), new ResponseCallback() {
+                    @Override
+                    public void completed(HttpResponse response) {
+                        invocation.endAttempt(attempt, response);
+                        onAsyncResponse(result, invocation, retryHandler, response);
+                    }
+
+                    @Override
+                    public void failed(Throwable e) {
+                        invocation.endAttempt(attempt, null);
+                        onAsyncFailure(result, invocation, retryHandler, e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // e.g. the requestor has been closed, release the permits taken by the attempt
+                invocation.endAttempt(attempt, null);
+                onAsyncFailure(result, invocation, retryHandler, e);
+            }
+            return;
+        }
+        // the requestor would block, so we send the request in another thread
+        try {
+            getAsyncExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    HttpResponse response;
+                    try {
+                        response = send(invocation);
+                    } catch (Throwable e) {
+                        onAsyncFailure(result, invocation, retryHandler, e);
+                        return;
+                    }
+                    onAsyncResponse(result, invocation, retryHandler, response);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failAsync(result, invocation, e);
+        }
+    }
+
+    private void onAsyncResponse(AsyncResult result, Invocation invocation, RetryHandler retryHandler, HttpResponse response) {
+        long delay = retryHandler == null ? RetryHandler.STOP : retryHandler.onResponse(invocation.getAttempts(), response);
+        if (delay == RetryHandler.STOP) {
+            completeAsync(result, invocation, response);
+            return;
+        }
+        closeResponse(response);
+        scheduleRetry(result, invocation, retryHandler, delay);
+    }
+
+    private void onAsyncFailure(AsyncResult result, Invocation invocation, RetryHandler retryHandler, Throwable e) {
+        long delay = retryHandler == null ? RetryHandler.STOP : retryHandler.onFailure(invocation.getAttempts(), e);
+        if (delay == RetryHandler.STOP) {
+            failAsync(result, invocation, e);
+            return;
+        }
+        log.warn("send request error, tryTime: {}, url: {}, error: {}", invocation.getAttempts(),
+                invocation.getRequest().getUrl(), e.getMessage());
+        scheduleRetry(result, invocation, retryHandler, delay);
+    }
+
+    /**
+     * wait for the next attempt on a timer instead of sleeping in a thread
+     */
+    private void scheduleRetry(final AsyncResult result, final Invocation invocation, final RetryHandler retryHandler, long delay) {
+        if (result.isDone()) {
+            // cancelled by the caller
+            return;
+        }
+        try {
+            TimerHolder.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    attemptAsync(result, invocation, retryHandler);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failAsync(result, invocation, e);
+        }
+    }
+
+    private void completeAsync(AsyncResult result, Invocation invocation, HttpResponse response) {
+        if (invocation.getFlight() != null) {
+            try {
+                response = CachedResponse.copy(response);
+            } catch (RuntimeException e) {
+                failAsync(result, invocation, e);
+                return;
+            }
+            coalescer.land(invocation.getFlight(), response);
         }
         Object returnValue;
-        if (responseProcessor == null || notResultBean(method)) {
-            returnValue = DEFAULT_RESPONSE_PROCESSOR.process(response, method);
+        try {
+            returnValue = processResponse(invocation, storeCache(invocation, response));
+        } catch (Throwable e) {
+            failAsync(result, invocation, e);
+            return;
+        }
+        recordInvocation(invocation, null);
+        result.complete(returnValue);
+    }
+
+    private void failAsync(AsyncResult result, Invocation invocation, Throwable e) {
+        if (invocation.getFlight() != null) {
+            coalescer.land(invocation.getFlight(), e);
+        }
+        recordInvocation(invocation, e);
+        Object returnValue;
+        try {
+            returnValue = fallback(invocation, e);
+        } catch (Throwable t) {
+            result.fail(t);
+            return;
+        }
+        result.complete(returnValue);
+    }
+
+    /**
+     * look up the cache if the method is annotated with @Cacheable, the validators of the stale response are added
+     * to the request so that it will be revalidated
+     *
+     * @return the fresh response cached, or null if the request should be sent
+     */
+    private HttpResponse lookupCache(Invocation invocation) {
+        if (invocation.getPlan().getCacheTtlMillis() < 0) {
+            return null;
+        }
+        String key = Coalescer.key(invocation.getRequest());
+        if (key == null) {
+            return null;
+        }
+        CachedResponse cached = getResponseCache().get(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            return cached;
+        }
+        if (cached != null && cached.hasValidators()) {
+            cached.addValidators(invocation.getRequest());
         } else {
-            returnValue = responseProcessor.process(response, method);
+            cached = null;
         }
-        if (log.isDebugEnabled()) {
-            log.debug("send request to url: {}, time consume: {} ms", request.getUrl(), (System.currentTimeMillis() - start));
+        invocation.setCache(key, cached);
+        return null;
+    }
+
+    /**
+     * @return the response to be processed, which is the one cached if the response is stored or it's 304 Not Modified
+     */
+    private HttpResponse storeCache(Invocation invocation, HttpResponse response) {
+        if (invocation.getCacheKey() == null) {
+            return response;
         }
-        return returnValue;
+        return getResponseCache().put(invocation.getCacheKey(), invocation.getStaleResponse(), response,
+                invocation.getPlan().getCacheTtlMillis());
     }
 
-    private boolean notResultBean(Method method) {
-        return responseProcessor instanceof ResultBeanResponseProcessor
-                && (method.isAnnotationPresent(NotResultBean.class)
-                || method.getDeclaringClass().isAnnotationPresent(NotResultBean.class));
+    /**
+     * send the request, or wait for the response of the identical request in flight if the method is annotated with @Coalesce
+     */
+    private HttpResponse coalesceRequest(Invocation invocation) throws IOException {
+        Coalescer.Flight inFlight = joinFlight(invocation);
+        if (inFlight != null) {
+            BlockingCallback callback = new BlockingCallback(false);
+            inFlight.follow(callback);
+            return callback.await();
+        }
+        Coalescer.Flight flight = invocation.getFlight();
+        if (flight == null) {
+            return sendRequest(invocation);
+        }
+        HttpResponse response;
+        try {
+            // the response may be read only once, so share a copy among the leader and the followers
+            response = CachedResponse.copy(sendRequest(invocation));
+        } catch (IOException e) {
+            coalescer.land(flight, e);
+            throw e;
+        } catch (RuntimeException e) {
+            coalescer.land(flight, e);
+            throw e;
+        } catch (Error e) {
+            coalescer.land(flight, e);
+            throw e;
+        }
+        coalescer.land(flight, response);
+        return response;
     }
 
-    private void addContentType(Method method, HttpRequest request) {
-        if (clazz.isAnnotationPresent(Form.class)
-                || method.isAnnotationPresent(Form.class)) {
-            // a form request
-            request.addHeader(CONTENT_TYPE, "application/x-www-form-urlencoded");
-            return;
+    /**
+     * join the flight of the identical request if the method is annotated with @Coalesce, or lead a new one
+     * which is set to the invocation if there is none
+     *
+     * @return the flight to follow, or null if the request should be sent by the invocation
+     */
+    private Coalescer.Flight joinFlight(Invocation invocation) {
+        if (!invocation.getPlan().isCoalesce()) {
+            return null;
+        }
+        String key = Coalescer.key(invocation.getRequest());
+        if (key == null) {
+            return null;
         }
-        ContentType contentType = getAnn(method, ContentType.class);
-        if (contentType != null && !contentType.value().isEmpty()) {
-            request.addHeader(CONTENT_TYPE, contentType.value());
+        Coalescer.Flight flight = new Coalescer.Flight(key);
+        Coalescer.Flight inFlight = coalescer.join(flight);
+        if (inFlight == null) {
+            invocation.setFlight(flight);
         }
+        return inFlight;
     }
 
-    private void addUserAgent(Method method, HttpRequest request) {
-        UserAgent userAgent = getAnn(method, UserAgent.class);
-        if (userAgent != null && !userAgent.value().isEmpty()) {
-            request.addHeader("User-Agent", userAgent.value());
+    private HttpResponse sendRequest(Invocation invocation) throws IOException {
+        RetryPolicy retryPolicy = invocation.getPlan().getRetryPolicy();
+        if (retryPolicy == null || retryPolicy.times() <= 0) {
+            awaitPermit(invocation);
+            return send(invocation);
         }
+        return retrySendRequest(invocation, retryPolicy);
     }
 
-    private void addCookies(Method method, HttpRequest request) {
-        if (method.getDeclaringClass().isAnnotationPresent(Cookies.class)) {
-            Cookies headers = method.getDeclaringClass().getAnnotation(Cookies.class);
-            addCookies(request, headers);
+    /**
+     * reserve a permit of the @RateLimit for an attempt
+     *
+     * @return the nanoseconds to wait before sending the request, 0 if it can be sent right away
+     * @throws RateLimitExceededException thrown when no permit is available in FAIL mode or within the max wait
+     */
+    private long reservePermit(Invocation invocation) {
+        MethodInvocationPlan plan = invocation.getPlan();
+        RateLimit rateLimit = plan.getRateLimit();
+        if (rateLimit == null) {
+            return 0;
         }
-        // method's cookies will cover those with same key
-        if (method.isAnnotationPresent(Cookies.class)) {
-            Cookies headers = method.getAnnotation(Cookies.class);
-            addCookies(request, headers);
+        String url = invocation.getRequest().getUrl();
+        TokenBucket bucket = rateLimiters.getBucket(plan.getRateLimitKey(url), rateLimit);
+        long maxWait = rateLimit.mode() == RateLimitMode.FAIL ? 0 : TimeUnit.MILLISECONDS.toNanos(rateLimit.maxWait());
+        long wait = bucket.reserve(maxWait);
+        if (wait < 0) {
+            throw new RateLimitExceededException("rate limit exceeded, the request is not sent: " + url);
         }
+        return wait;
     }
 
-    private void addCookies(HttpRequest request, Cookies cookies) {
-        if (cookies != null && cookies.keys().length > 0) {
-            if (cookies.values().length == cookies.keys().length) {
-                for (int i = 0; i < cookies.keys().length; i++) {
-                    String key = cookies.keys()[i];
-                    String value = cookies.values()[i];
-                    request.addCookie(key, value);
-                }
-            } else {
-                throw new IllegalStateException("cookies' keys and values must one-to-one correspondence");
-            }
+    /**
+     * block the caller thread until a permit of the @RateLimit is available
+     */
+    private void awaitPermit(Invocation invocation) {
+        long wait = reservePermit(invocation);
+        if (wait <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("thread interrupted when waiting for the rate limit", e);
         }
     }
 
-    private void addHeaders(Method method, HttpRequest request) {
-        if (method.getDeclaringClass().isAnnotationPresent(Headers.class)) {
-            Headers headers = method.getDeclaringClass().getAnnotation(Headers.class);
-            addHeaders(request, headers);
+    /**
+     * send the request once by the requestor, the endpoint statistics and the metrics are updated around it
+     */
+    private HttpResponse send(Invocation invocation) throws IOException {
+        long hedgeDelay = invocation.getPlan().getHedgeDelayNanos();
+        if (hedgeDelay > 0) {
+            BlockingCallback callback = new BlockingCallback(true);
+            new HedgedRequest(invocation, requestor, getAsyncExecutor(), TimerHolder.INSTANCE, hedgeDelay,
+                    invocation.getPlan().getHedgeMaxAttempts(), callback).start();
+            return callback.await();
         }
-        // method's headers will cover those with same key
-        if (method.isAnnotationPresent(Headers.class)) {
-            Headers headers = method.getAnnotation(Headers.class);
-            addHeaders(request, headers);
+        Invocation.Attempt attempt = invocation.beginAttempt();
+        HttpResponse response = null;
+        try {
+            response = requestor.sendRequest(attempt.getRequest());
+            return response;
+        } finally {
+            invocation.endAttempt(attempt, response);
         }
     }
 
-    private void addHeaders(HttpRequest request, Headers headers) {
-        if (headers != null && headers.keys().length > 0) {
-            if (headers.values().length == headers.keys().length) {
-                for (int i = 0; i < headers.keys().length; i++) {
-                    String key = headers.keys()[i];
-                    String value = headers.values()[i];
-                    request.addHeader(key, value);
-                }
+    private Object processResponse(Invocation invocation, HttpResponse response) throws IOException {
+        MethodInvocationPlan plan = invocation.getPlan();
+        HttpRequest request = invocation.getRequest();
+        InvocationRecord record = invocation.getRecord();
+        Object returnValue;
+        long processStart = System.nanoTime();
+        if (record != null) {
+            recordResponse(record, request, response);
+        }
+        try {
+            if (isSuc(request.getUrl(), response)) {
+                return null;
+            }
+            ResponseProcessor processor = plan.isUseDefaultResponseProcessor() ? DEFAULT_RESPONSE_PROCESSOR : responseProcessor;
+            if (processor instanceof TypedResponseProcessor) {
+                returnValue = ((TypedResponseProcessor) processor).process(response, plan.getMethod(), plan.getReturnType());
             } else {
-                throw new IllegalStateException("headers' keys and values must one-to-one correspondence");
+                if (plan.isAsync() && plan.markUntypedProcessorWarned()) {
+                    log.warn("the response processor " + processor.getClass().getName() + " is given the Future return type of "
+                            + plan.getMethod().getName() + ", implement TypedResponseProcessor to process the response to "
+                            + plan.getReturnType());
+                }
+                returnValue = processor.process(response, plan.getMethod());
             }
+        } catch (IOException e) {
+            closeResponse(response);
+            throw e;
+        } catch (RuntimeException e) {
+            closeResponse(response);
+            throw e;
+        }
+        // the connection of a streaming response is released only if the stream is not handed over to the caller
+        if (request.isStreaming() && !(returnValue instanceof Closeable) && returnValue != response) {
+            closeResponse(response);
+        }
+        if (record != null) {
+            record.setProcessNanos(System.nanoTime() - processStart);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("send request to url: {}, time consume: {} ms", request.getUrl(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - invocation.getStart()));
         }
+        return returnValue;
     }
 
-    private <T extends Annotation> T getAnn(Method method, Class<T> ann) {
-        if (method.isAnnotationPresent(ann)) {
-            return method.getAnnotation(ann);
-        } else if (method.getDeclaringClass().isAnnotationPresent(ann)) {
-            return method.getDeclaringClass().getAnnotation(ann);
+    private static void recordResponse(InvocationRecord record, HttpRequest request, HttpResponse response) {
+        record.setRequestBytes(request.getContentLength());
+        if (response == null) {
+            return;
         }
-        return null;
+        record.setStatusCode(response.getStatusCode());
+        String contentLength = response.getHeader(CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                record.setResponseBytes(Long.parseLong(contentLength.trim()));
+            } catch (NumberFormatException ignored) {
+                // leave it unknown
+            }
+        }
+    }
+
+    /**
+     * hand the record over to the metrics, the invocation should not be affected by the metrics
+     */
+    private void recordInvocation(Invocation invocation, Throwable e) {
+        InvocationRecord record = invocation.getRecord();
+        if (record == null) {
+            return;
+        }
+        record.setTotalNanos(System.nanoTime() - invocation.getStart());
+        record.setException(e);
+        try {
+            metrics.recordInvocation(record);
+        } catch (RuntimeException ex) {
+            log.warn("failed to record the invocation metrics", ex);
+        }
+    }
+
+    /**
+     * release the connection held by the response if it's a streaming one
+     */
+    private static void closeResponse(HttpResponse response) {
+        if (response instanceof Closeable) {
+            IoUtils.closeStream((Closeable) response);
+        }
+    }
+
+    private ResponseCache getResponseCache() {
+        return responseCache != null ? responseCache : DefaultResponseCacheHolder.INSTANCE;
+    }
+
+    private Executor getAsyncExecutor() {
+        return asyncExecutor != null ? asyncExecutor : DefaultAsyncExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * set the executor for sending requests of those methods returning Future if the requestor is not an AsyncRequestor
+     *
+     * @param asyncExecutor the executor, a shared default one will be used if null
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * set the metrics to record every invocation
+     *
+     * @param metrics the metrics, no metrics will be recorded if null
+     * @since 1.2.5
+     */
+    public void setInvocationMetrics(InvocationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * set the budget which caps the retries to a ratio of the requests
+     *
+     * @param retryBudget the budget, the retries are only limited by the @RetryPolicy if null
+     * @since 1.2.5
+     */
+    public void setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * set the cache of the responses of the methods annotated with @Cacheable
+     *
+     * @param responseCache the cache, a shared default one will be used if null
+     * @since 1.2.5
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * share the token buckets of the @RateLimit with the other proxies of the factory
+     */
+    void setRateLimiters(RateLimiters rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
+
+    /**
+     * whether to expose the proxied method to the preprocessor by the deprecated
+     * {@link RequestPreprocessor#CURRENT_METHOD_THREAD_LOCAL}, it's turned off on virtual threads,
+     * which would otherwise each carry a copy of it
+     */
+    void setCurrentMethodThreadLocal(boolean currentMethodThreadLocal) {
+        this.currentMethodThreadLocal = currentMethodThreadLocal;
     }
 
-    private String prepareUrl(HttpReq anno) {
-        String url = anno.value();
-        // fill config variables
-        url = fillConfigVariables(url);
-        url = setPrefix(url);
-        // fill config variables again, because the prefix may have placeholders
-        return fillConfigVariables(url);
+    /**
+     * handle those methods which are not annotated by @HttpReq
+     */
+    private Object invokeObjectMethod(Method method, Object[] args) throws Throwable {
+        // toString method with a specific prefix
+        if (TO_STRING.equals(method.getName()) && method.getParameterTypes().length == 0) {
+            return HTTP_API_PREFIX + this;
+        }
+        try {
+            // those Object's methods such as getClass/hasCode/equals invoke 'this' method
+            if (this.getClass().getMethod(method.getName(), method.getParameterTypes()) != null) {
+                return method.invoke(this, args);
+            }
+        } catch (NoSuchMethodException ignored) {
+            //
+        } catch (SecurityException ignored) {
+
+        }
+        // this proxy only implement those HttpReq-annotated method
+        throw new IllegalStateException("this proxy only implement those HttpReq-annotated method, please add a @HttpReq on it.");
     }
 
-    private String setPrefix(String url) {
+    /**
+     * render the url template and the prefix if the url has no protocol
+     *
+     * @return whether all the placeholders have been resolved
+     */
+    private boolean renderUrl(Invocation invocation, StringBuilder sb, Map<String, Object> params, boolean fillPathVariables) {
+        MethodInvocationPlan plan = invocation.getPlan();
+        boolean resolved = plan.getUrl().render(sb, propertyResolver, params, fillPathVariables, false);
         // if the interface was annotated by @HttpApi and the url has no protocol, set the prefix
-        if (clazz.isAnnotationPresent(HttpApi.class)
-                && !PROTOCOL_PATTERN.matcher(url).find()) {
-            HttpApi httpApi = clazz.getAnnotation(HttpApi.class);
-            // use prefix or value of HttpApi as the url's prefix
-            String pre = "".equals(httpApi.prefix()) ? httpApi.value() : httpApi.prefix();
-            url = pre + url;
+        if (plan.getUrlPrefix() != null && !UrlTemplate.hasProtocol(sb)) {
+            StringBuilder prefix = new StringBuilder(URL_BUFFER_SIZE);
+            resolved = plan.getUrlPrefix().render(prefix, propertyResolver, params, fillPathVariables, false) && resolved;
+            if (EndpointGroup.isGroup(prefix)) {
+                // the prefix resolves to several endpoints, choose one of them
+                EndpointGroup group = getEndpointGroup(prefix.toString());
+                Endpoint endpoint = group.choose(null);
+                invocation.setEndpoint(group, endpoint);
+                sb.insert(0, endpoint.getUrl());
+            } else {
+                sb.insert(0, prefix);
+            }
         }
-        return url;
+        return resolved;
+    }
+
+    /**
+     * the methods annotated with @Batch are checked once the proxy is created instead of failing every call
+     *
+     * @throws IllegalStateException thrown when a method annotated with @Batch doesn't meet the requirements
+     */
+    private void createBatchPlans() {
+        for (Method method : clazz.getMethods()) {
+            if (method.isAnnotationPresent(Batch.class)) {
+                plans.put(method, MethodInvocationPlan.forBatch(method, clazz, this, TimerHolder.INSTANCE, batchExecutor));
+            }
+        }
+    }
+
+    private EndpointGroup getEndpointGroup(String urls) {
+        EndpointGroup group = endpointGroups.get(urls);
+        if (group == null) {
+            group = EndpointGroup.create(urls, clazz.getAnnotation(LoadBalance.class));
+            EndpointGroup exists = endpointGroups.putIfAbsent(urls, group);
+            group = exists != null ? exists : group;
+        }
+        return group;
     }
 
     private boolean isSuc(String url, HttpResponse response) throws IOException {
@@ -288,69 +851,47 @@ public class HttpApiInvoker implements InvocationHandler {
     }
 
     /**
-     * retry send request according to the retry policy
+     * retry send request according to the retry policy, the caller thread sleeps between the attempts
      */
-    private HttpResponse retrySendRequest(HttpRequest request, RetryPolicy retryPolicy) throws IOException {
-        int retryTime = retryPolicy.times();
-        if (retryTime <= 0) {
-            return requestor.sendRequest(request);
-        }
-        Status[] retryForStatus = retryPolicy.retryForStatus();
-        Class<? extends Throwable>[] retryFor = retryPolicy.retryFor();
-        HttpResponse response = null;
-        int tryTime = 0;
-        while (++tryTime <= retryTime) {
-            if (tryTime > 1 && retryPolicy.fixedBackOffPeriod() > 0) {
-                try {
-                    Thread.sleep(retryPolicy.fixedBackOffPeriod());
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException("thread interrupted when waiting for retry", e);
-                }
-            }
-            boolean needRetry = false;
+    private HttpResponse retrySendRequest(Invocation invocation, RetryPolicy retryPolicy) throws IOException {
+        HttpRequest request = invocation.getRequest();
+        RetryHandler retryHandler = new RetryHandler(retryPolicy, request, invocation.getStart(), retryBudget);
+        while (true) {
+            retryHandler.beforeAttempt(request);
+            HttpResponse response;
+            long delay;
+            awaitPermit(invocation);
             try {
-                response = requestor.sendRequest(request);
-                int statusCode = response.getStatusCode();
-                for (Status status : retryForStatus) {
-                    if (statusCode >= status.getFrom() && statusCode <= status.getTo()) {
-                        needRetry = true;
-                        break;
-                    }
-                }
-                if (!needRetry) {
-                    return response;
-                }
+                response = send(invocation);
             } catch (IOException e) {
-                if (tryTime >= retryTime) {
-                    // it's the last time we try
+                delay = retryHandler.onFailure(invocation.getAttempts(), e);
+                if (delay == RetryHandler.STOP) {
                     throw e;
                 }
-                // check if we need to retry
-                for (Class<? extends Throwable> exception : retryFor) {
-                    if (exception.isAssignableFrom(e.getClass())) {
-                        needRetry = true;
-                    }
-                }
-                if (!needRetry) {
-                    // an unexpected exception occur, so we throw it
-                    throw e;
-                } else {
-                    log.warn("send request error, tryTime: {}, url: {}, error: {}", tryTime, request.getUrl(), e.getMessage());
-                }
+                log.warn("send request error, tryTime: {}, url: {}, error: {}", invocation.getAttempts(), request.getUrl(), e.getMessage());
+                sleep(delay);
+                continue;
+            }
+            delay = retryHandler.onResponse(invocation.getAttempts(), response);
+            if (delay == RetryHandler.STOP) {
+                return response;
             }
+            // the response will be discarded, so release its connection
+            closeResponse(response);
+            sleep(delay);
         }
-        return response;
     }
 
-    private RetryPolicy getRetryPolicy(Method method) {
-        RetryPolicy retryPolicy = null;
-        if (method.isAnnotationPresent(RetryPolicy.class)) {
-            retryPolicy = method.getAnnotation(RetryPolicy.class);
-        } else if (clazz.isAnnotationPresent(RetryPolicy.class)) {
-            retryPolicy = clazz.getAnnotation(RetryPolicy.class);
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("thread interrupted when waiting for retry", e);
         }
-        return retryPolicy;
     }
 
     private Map<String, Object> parseParam(Object arg) {
@@ -361,7 +902,7 @@ public class HttpApiInvoker implements InvocationHandler {
             // we don't handle collection param here
             params = null;
         } else {
-            params = JsonSerializerDecider.getJsonSerializer().toMap(JsonSerializerDecider.getJsonSerializer().serialize(arg));
+            params = ParamUtils.toMap(arg);
         }
         return params;
     }
@@ -374,59 +915,57 @@ public class HttpApiInvoker implements InvocationHandler {
      * <p>
      *
      * @param args    the arguments
-     * @param method  the method invoked
+     * @param plan    the plan of the method invoked
      * @param request the request
      * @return the map represent the params
      */
-    private Map<String, Object> parseAnnotatedParams(Object[] args, Method method, HttpRequest request) {
-        Annotation[][] annotations = method.getParameterAnnotations();
-        if (annotations.length <= 0) {
+    private Map<String, Object> parseAnnotatedParams(Object[] args, MethodInvocationPlan plan, HttpRequest request) {
+        MethodInvocationPlan.ParamBinding[] bindings = plan.getParamBindings();
+        if (bindings.length <= 0) {
             return Collections.emptyMap();
         }
         Map<String, Object> map = null;
-        for (int i = 0, annotationsLength = annotations.length; i < annotationsLength; i++) {
+        for (int i = 0, bindingsLength = bindings.length; i < bindingsLength; i++) {
             if (args[i] == null) {
                 // ignore null value
                 continue;
             }
-            Annotation[] annotation = annotations[i];
-            if (annotation.length == 0) {
+            MethodInvocationPlan.ParamBinding binding = bindings[i];
+            if (!binding.isAnnotated()) {
                 continue;
             }
-            for (Annotation ann : annotation) {
-                if (ann instanceof Param) {
-                    Param param = (Param) ann;
-                    if (map == null) {
-                        map = new HashMap<String, Object>();
-                    }
-                    if (isFile(args[i])) {
-                        request.setBody(args[i]);
-                        request.setFileFormKey(param.value());
-                    } else if (param.isBody()) {
-                        Map<String, Object> body = parseParam(args[i]);
-                        if (body == null) {
-                            map.put(param.value(), args[i]);
-                        } else {
-                            map.putAll(body);
-                        }
+            Param param = binding.getParam();
+            if (param != null) {
+                if (map == null) {
+                    map = new HashMap<String, Object>();
+                }
+                if (isFile(args[i])) {
+                    request.setBody(args[i]);
+                    request.setFileFormKey(param.value());
+                } else if (param.isBody()) {
+                    Map<String, Object> body = parseParam(args[i]);
+                    if (body == null) {
+                        map.put(param.value(), args[i]);
                     } else {
-                        String key = param.value();
-                        if (!key.isEmpty()) {
-                            map.put(key, args[i]);
-                        }
+                        map.putAll(body);
+                    }
+                } else {
+                    String key = param.value();
+                    if (!key.isEmpty()) {
+                        map.put(key, args[i]);
                     }
-                    // ignore when the param annotation's value is empty and isBody is false
-                }
-                if (ann instanceof Headers) {
-                    mustBeMapStringString(method.getGenericParameterTypes()[i]);
-                    //noinspection unchecked
-                    request.setHeaders((Map<String, String>) args[i]);
-                }
-                if (ann instanceof Cookies) {
-                    mustBeMapStringString(method.getGenericParameterTypes()[i]);
-                    //noinspection unchecked
-                    request.setCookies((Map<String, String>) args[i]);
                 }
+                // ignore when the param annotation's value is empty and isBody is false
+            }
+            if (binding.isHeaders()) {
+                binding.mustBeMapStringString();
+                //noinspection unchecked
+                request.setHeaders((Map<String, String>) args[i]);
+            }
+            if (binding.isCookies()) {
+                binding.mustBeMapStringString();
+                //noinspection unchecked
+                request.setCookies((Map<String, String>) args[i]);
             }
         }
         return map;
@@ -438,101 +977,34 @@ public class HttpApiInvoker implements InvocationHandler {
     }
 
     /**
-     * Check whether the Type is Map&lt;String, String&gt;
+     * lazy holder of the timer to schedule the asynchronous retries, the hedged requests and the batches,
+     * the tasks only dispatch the requests
      */
-    private void mustBeMapStringString(Type arg) {
-        if (!(arg instanceof ParameterizedType) || ((ParameterizedType) arg).getRawType() != Map.class) {
-            throw new IllegalArgumentException("Headers and Cookies annotation should only be annotated on parameter of Map<String, String> type.");
-        }
-        Type[] types = ((ParameterizedType) arg).getActualTypeArguments();
-        if (types[0] != String.class || types[1] != String.class) {
-            throw new IllegalArgumentException("Headers and Cookies annotation should only be annotated on parameter of Map<String, String> type.");
-        }
+    private static class TimerHolder {
+        private static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("http-api-invoker-timer"));
     }
 
     /**
-     * replace the path variable for the specific param, and remove that param from the map
-     *
-     * @param exceptionOnNotProvided if throw an exception on path variable doesn't provided
-     * @return the path variable filled url
-     * @throws IllegalArgumentException thrown when the specific param absent
+     * lazy holder of the default cache for the methods annotated with @Cacheable
      */
-    private String fillPathVariables(Map<String, Object> params, String url, boolean exceptionOnNotProvided) {
-        url = fillPathVariables(params, url, exceptionOnNotProvided, false);
-        return fillPathVariables(params, url, exceptionOnNotProvided, true);
+    private static class DefaultResponseCacheHolder {
+        private static final ResponseCache INSTANCE = new ResponseCache(DEFAULT_CACHE_SIZE);
     }
 
     /**
-     * replace the path variable for the specific param, and remove that param from the map
-     *
-     * @param exceptionOnNotProvided if throw an exception on path variable doesn't provided
-     * @param remove                 remove the param if matches the path variable
-     * @return the path variable filled url
-     * @throws IllegalArgumentException thrown when the specific param absent
+     * lazy holder of the default executor for asynchronous invocations
      */
-    private String fillPathVariables(Map<String, Object> params, String url, boolean exceptionOnNotProvided, boolean remove) {
-        Pattern pattern = remove ? PATH_VARIABLE_PATTERN : PATH_NOT_REMOVE_VARIABLE_PATTERN;
-        Matcher matcher = pattern.matcher(url);
-        String matchedKey;
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            matchedKey = key;
-            String defaultValue = null;
-            // parse default value
-            if (key.contains(":")) {
-                String[] tmp = key.split(":", 2);
-                key = tmp[0];
-                defaultValue = tmp[1] == null ? "" : tmp[1];
-            }
-            if (defaultValue == null && !containsKey(params, key)) {
-                // path variable must be provided
-                String msg = "the url [" + url + "] needs a variable: [" + key + "], but not provided.";
-                log.warn(msg);
-                if (exceptionOnNotProvided) {
-                    throw new IllegalArgumentException(msg);
-                } else {
-                    continue;
-                }
-            }
-            if (remove) {
-                String prop = containsKey(params, key) ? params.remove(key).toString() : defaultValue;
-                url = url.replace("{" + matchedKey + "}", prop);
-            } else {
-                String prop = containsKey(params, key) ? params.get(key).toString() : defaultValue;
-                url = url.replace("#{" + matchedKey + "}", prop);
-            }
+    private static class DefaultAsyncExecutorHolder {
+        private static final Executor INSTANCE = createDefaultAsyncExecutor();
+
+        private static Executor createDefaultAsyncExecutor() {
+            int coreSize = Runtime.getRuntime().availableProcessors() * 2;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(coreSize, Math.max(coreSize, DEFAULT_ASYNC_MAX_THREADS),
+                    DEFAULT_ASYNC_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                    new NamedThreadFactory("http-api-invoker-async"));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
         }
-        return url;
     }
-
-    private boolean containsKey(Map<String, Object> params, String key) {
-        return params != null
-                && params.containsKey(key)
-                && params.get(key) != null;
-    }
-
-    private String fillConfigVariables(String url) {
-        Matcher matcher = VARIABLE_PATTERN.matcher(url);
-        while (matcher.find()) {
-            String matchedKey = matcher.group(1);
-            String key = matchedKey;
-            String defaultValue = null;
-            if (key.contains(":")) {
-                String[] tmp = key.split(":", 2);
-                key = tmp[0];
-                defaultValue = tmp[1];
-            }
-            if (defaultValue == null && (propertyResolver == null || !propertyResolver.containsProperty(key))) {
-                // path variable must be provided
-                String msg = "the url [" + url + "] needs a variable: [" + key + "], but not provided.";
-                log.warn(msg);
-                throw new IllegalArgumentException(msg);
-            }
-            String val = propertyResolver.getProperty(key);
-            String prop = val == null ? defaultValue : val;
-            url = url.replace("${" + matchedKey + "}", prop);
-        }
-        return url;
-    }
-
 }
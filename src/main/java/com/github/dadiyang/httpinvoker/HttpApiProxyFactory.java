@@ -1,5 +1,6 @@
 package com.github.dadiyang.httpinvoker;
 
+import com.github.dadiyang.httpinvoker.metrics.InvocationMetrics;
 import com.github.dadiyang.httpinvoker.propertyresolver.EnvironmentBasePropertyResolver;
 import com.github.dadiyang.httpinvoker.propertyresolver.MultiSourcePropertyResolver;
 import com.github.dadiyang.httpinvoker.propertyresolver.PropertiesBasePropertyResolver;
@@ -9,7 +10,9 @@ import com.github.dadiyang.httpinvoker.requestor.RequestPreprocessor;
 import com.github.dadiyang.httpinvoker.requestor.Requestor;
 import com.github.dadiyang.httpinvoker.requestor.ResponseProcessor;
 import com.github.dadiyang.httpinvoker.util.IoUtils;
+import com.github.dadiyang.httpinvoker.util.NamedThreadFactory;
 import com.github.dadiyang.httpinvoker.util.ObjectUtils;
+import com.github.dadiyang.httpinvoker.util.VirtualThreads;
 import org.springframework.core.env.Environment;
 
 import java.io.File;
@@ -17,9 +20,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A factory to create HttpApiInvoker
@@ -28,11 +33,26 @@ import java.util.concurrent.ConcurrentHashMap;
  * date 2018/10/30
  */
 public class HttpApiProxyFactory {
-    private Map<Class<?>, Object> instances = new ConcurrentHashMap<Class<?>, Object>();
+    private static final int DEFAULT_FAN_OUT_THREADS = 64;
+    private static final int DEFAULT_FAN_OUT_QUEUE_CAPACITY = 1024;
+    private static final long DEFAULT_FAN_OUT_KEEP_ALIVE_SECONDS = 60L;
+    private ConcurrentMap<Class<?>, Object> instances = new ConcurrentHashMap<Class<?>, Object>();
     private Requestor requestor;
     private PropertyResolver propertyResolver;
     private RequestPreprocessor requestPreprocessor;
     private ResponseProcessor responseProcessor;
+    private Executor asyncExecutor;
+    private InvocationMetrics invocationMetrics;
+    private RetryBudget retryBudget;
+    private ResponseCache responseCache;
+    /**
+     * the fan-out executor set, or the default one created on the first invokeAll
+     */
+    private final AtomicReference<Executor> fanOutExecutor = new AtomicReference<Executor>();
+    private int fanOutThreads = DEFAULT_FAN_OUT_THREADS;
+    private int fanOutQueueCapacity = DEFAULT_FAN_OUT_QUEUE_CAPACITY;
+    private boolean virtualThreads;
+    private final RateLimiters rateLimiters = new RateLimiters();
 
     /**
      * the builder of HttpApiProxyFactory
@@ -45,6 +65,14 @@ public class HttpApiProxyFactory {
         private MultiSourcePropertyResolver propertyResolvers = new MultiSourcePropertyResolver();
         private RequestPreprocessor requestPreprocessor;
         private ResponseProcessor responseProcessor;
+        private Executor asyncExecutor;
+        private InvocationMetrics invocationMetrics;
+        private RetryBudget retryBudget;
+        private ResponseCache responseCache;
+        private Executor fanOutExecutor;
+        private int fanOutThreads = DEFAULT_FAN_OUT_THREADS;
+        private int fanOutQueueCapacity = DEFAULT_FAN_OUT_QUEUE_CAPACITY;
+        private boolean virtualThreads;
 
         public Builder setRequestor(Requestor requestor) {
             this.requestor = requestor;
@@ -61,6 +89,104 @@ public class HttpApiProxyFactory {
             return this;
         }
 
+        /**
+         * set the executor for sending requests of those methods which return Future or CompletableFuture,
+         * it's only used when the requestor is not an AsyncRequestor or retry is needed
+         *
+         * @since 1.2.5
+         */
+        public Builder setAsyncExecutor(Executor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        /**
+         * set the metrics to record the latency, status code, retries and sizes of every invocation,
+         * e.g. a {@link com.github.dadiyang.httpinvoker.metrics.MicrometerInvocationMetrics}
+         *
+         * @since 1.2.5
+         */
+        public Builder setInvocationMetrics(InvocationMetrics invocationMetrics) {
+            this.invocationMetrics = invocationMetrics;
+            return this;
+        }
+
+        /**
+         * set the retry budget shared by all the proxies of the factory, which caps the retries of the @RetryPolicy
+         * to a ratio of the requests, no cap if null
+         *
+         * @since 1.2.5
+         */
+        public Builder setRetryBudget(RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * set the cache shared by all the proxies of the factory for the responses of the methods annotated with
+         * {@link com.github.dadiyang.httpinvoker.annotation.Cacheable}, a default one holding 1024 responses is used if null
+         *
+         * @since 1.2.5
+         */
+        public Builder setResponseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * set the executor to run the calls of {@link #invokeAll(List, long, TimeUnit)}, it should be bounded
+         * and queue the calls beyond the bound. If null, the factory creates its own one according to
+         * {@link #setFanOutThreads(int)} and {@link #setFanOutQueueCapacity(int)}.
+         *
+         * @since 1.2.5
+         */
+        public Builder setFanOutExecutor(Executor fanOutExecutor) {
+            this.fanOutExecutor = fanOutExecutor;
+            return this;
+        }
+
+        /**
+         * set the max threads of the default fan-out executor, 64 by default. The idle threads exit after a minute.
+         *
+         * @since 1.2.5
+         */
+        public Builder setFanOutThreads(int fanOutThreads) {
+            if (fanOutThreads <= 0) {
+                throw new IllegalArgumentException("fanOutThreads should be positive: " + fanOutThreads);
+            }
+            this.fanOutThreads = fanOutThreads;
+            return this;
+        }
+
+        /**
+         * set the max calls queued by the default fan-out executor when all its threads are busy, 1024 by default.
+         * The calls beyond it are rejected, in which case invokeAll throws a RejectedExecutionException.
+         *
+         * @since 1.2.5
+         */
+        public Builder setFanOutQueueCapacity(int fanOutQueueCapacity) {
+            if (fanOutQueueCapacity <= 0) {
+                throw new IllegalArgumentException("fanOutQueueCapacity should be positive: " + fanOutQueueCapacity);
+            }
+            this.fanOutQueueCapacity = fanOutQueueCapacity;
+            return this;
+        }
+
+        /**
+         * run the blocking requests of the asynchronous methods, their retries and the calls of
+         * {@link HttpApiProxyFactory#invokeAll(List, long, TimeUnit)} on virtual threads, one per task, unless their
+         * executors are set. It requires JDK 21+.
+         * <p>
+         * The deprecated {@link RequestPreprocessor#CURRENT_METHOD_THREAD_LOCAL} is not set for the proxies of the
+         * factory, use {@link com.github.dadiyang.httpinvoker.requestor.HttpRequest#getProxiedMethod()} instead.
+         *
+         * @since 1.2.5
+         */
+        public Builder setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
         public Builder addPropertyResolver(PropertyResolver propertyResolver) {
             this.propertyResolvers.addPropertyResolver(propertyResolver);
             return this;
@@ -92,11 +218,29 @@ public class HttpApiProxyFactory {
             return this;
         }
 
+        /**
+         * @throws IllegalStateException thrown when virtual threads are required on a JDK without them
+         */
         public HttpApiProxyFactory build() {
             HttpApiProxyFactory factory = new HttpApiProxyFactory();
             factory.requestor = requestor != null ? requestor : factory.requestor;
             factory.responseProcessor = responseProcessor != null ? responseProcessor : factory.responseProcessor;
             factory.requestPreprocessor = requestPreprocessor != null ? requestPreprocessor : factory.requestPreprocessor;
+            factory.asyncExecutor = asyncExecutor;
+            factory.invocationMetrics = invocationMetrics;
+            factory.retryBudget = retryBudget;
+            factory.responseCache = responseCache;
+            factory.virtualThreads = virtualThreads;
+            factory.fanOutThreads = fanOutThreads;
+            factory.fanOutQueueCapacity = fanOutQueueCapacity;
+            if (fanOutExecutor != null) {
+                factory.fanOutExecutor.set(fanOutExecutor);
+            } else if (virtualThreads) {
+                factory.fanOutExecutor.set(VirtualThreads.newThreadPerTaskExecutor("http-api-invoker-fan-out"));
+            }
+            if (virtualThreads && asyncExecutor == null) {
+                factory.asyncExecutor = VirtualThreads.newThreadPerTaskExecutor("http-api-invoker-async");
+            }
             propertyResolvers.addPropertyResolver(factory.propertyResolver);
             factory.propertyResolver = propertyResolvers;
             return factory;
@@ -285,19 +429,91 @@ public class HttpApiProxyFactory {
      * @param clazz an interface whose methods annotated with @HttpReq
      * @param <T>   this interface's type
      * @return the generated dynamic proxy
-     * @throws IllegalStateException thrown when the method without annotated with @HttpReq was invoke
+     * @throws IllegalStateException thrown when the method without annotated with @HttpReq was invoke,
+     *                               or when a method annotated with @Batch doesn't meet its requirements
      */
     public <T> T getProxy(Class<T> clazz) {
-        if (!instances.containsKey(clazz)) {
-            synchronized (HttpApiProxyFactory.class) {
-                if (!instances.containsKey(clazz)) {
-                    instances.put(clazz, newProxyInstance(requestor, propertyResolver,
-                            clazz, requestPreprocessor, responseProcessor));
+        Object proxy = instances.get(clazz);
+        if (proxy == null) {
+            // without a lock, which would pin the virtual threads, the proxy created by the loser of a race is dropped
+            HttpApiInvoker handler = new HttpApiInvoker(requestor, propertyResolver, clazz, requestPreprocessor, responseProcessor);
+            handler.setAsyncExecutor(asyncExecutor);
+            handler.setInvocationMetrics(invocationMetrics);
+            handler.setRetryBudget(retryBudget);
+            handler.setResponseCache(responseCache);
+            handler.setRateLimiters(rateLimiters);
+            handler.setCurrentMethodThreadLocal(!virtualThreads);
+            proxy = Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, handler);
+            Object exists = instances.putIfAbsent(clazz, proxy);
+            proxy = exists != null ? exists : proxy;
+        }
+        //noinspection unchecked
+        return (T) proxy;
+    }
+
+    /**
+     * run the calls, typically of the proxies, concurrently on the fan-out executor within a shared deadline.
+     * <p>
+     * It returns when all the calls complete or the deadline passes, in which case the calls not completed yet are
+     * cancelled and interrupted, which stops their retries and rate limit waits. The requests sent by the proxies in
+     * the calls time out no later than the deadline, even if their requestors ignore the interruption. The deadline
+     * reaches the proxies through a ThreadLocal of the fan-out thread running the call, which is the exception to the
+     * virtual thread mode avoiding them, and the proxies don't look it up while no call is running. Like
+     * {@link ExecutorService#invokeAll(java.util.Collection, long, TimeUnit)}, a failed call doesn't affect the others
+     * and its exception is thrown by its future.
+     *
+     * @param calls   the calls to run
+     * @param timeout the max time to wait for all the calls
+     * @param unit    the unit of the timeout
+     * @param <T>     the type of the results
+     * @return the futures of the calls in the same order, all of which are done
+     * @throws InterruptedException       thrown when interrupted while waiting, the calls not completed are cancelled
+     * @throws RejectedExecutionException thrown when a call cannot be scheduled, the calls scheduled are cancelled
+     * @since 1.2.5
+     */
+    public <T> List<Future<T>> invokeAll(List<? extends Callable<T>> calls, long timeout, TimeUnit unit) throws InterruptedException {
+        ObjectUtils.requireNonNull(calls, "calls should not be null");
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<Future<T>> futures = new ArrayList<Future<T>>(calls.size());
+        Executor executor = getFanOutExecutor();
+        boolean done = false;
+        try {
+            for (Callable<T> call : calls) {
+                FutureTask<T> future = new FutureTask<T>(FanOutDeadline.bind(call, deadline));
+                futures.add(future);
+                executor.execute(future);
+            }
+            for (Future<T> future : futures) {
+                if (future.isDone()) {
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return futures;
+                }
+                try {
+                    future.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (ExecutionException ignored) {
+                    // thrown to the caller by the future
+                } catch (CancellationException ignored) {
+                    // cancelled by the call itself
+                } catch (TimeoutException e) {
+                    return futures;
+                }
+            }
+            done = true;
+            return futures;
+        } finally {
+            if (!done) {
+                for (Future<T> future : futures) {
+                    future.cancel(true);
+                }
+                // free the queue of the calls cancelled before they run
+                if (executor instanceof ThreadPoolExecutor) {
+                    ((ThreadPoolExecutor) executor).purge();
                 }
             }
         }
-        //noinspection unchecked
-        return (T) instances.get(clazz);
     }
 
     public Requestor getRequestor() {
@@ -315,4 +531,54 @@ public class HttpApiProxyFactory {
     public ResponseProcessor getResponseProcessor() {
         return responseProcessor;
     }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public InvocationMetrics getInvocationMetrics() {
+        return invocationMetrics;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * @return whether the executors default to virtual threads
+     * @since 1.2.5
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the executor running the calls of {@link #invokeAll(List, long, TimeUnit)}
+     * @since 1.2.5
+     */
+    public Executor getFanOutExecutor() {
+        Executor executor = fanOutExecutor.get();
+        if (executor != null) {
+            return executor;
+        }
+        // created without a lock, the loser of a race drops its executor, which has not started any thread
+        fanOutExecutor.compareAndSet(null, createFanOutExecutor(fanOutThreads, fanOutQueueCapacity));
+        return fanOutExecutor.get();
+    }
+
+    /**
+     * create the default fan-out executor of a factory, the calls beyond its threads are queued up to the capacity
+     * and rejected beyond it. No thread is kept when it's idle, so it needs no shutdown.
+     */
+    private static Executor createFanOutExecutor(int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                DEFAULT_FAN_OUT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new NamedThreadFactory("http-api-invoker-fan-out"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
@@ -0,0 +1,250 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.balancer.Endpoint;
+import com.github.dadiyang.httpinvoker.balancer.EndpointGroup;
+import com.github.dadiyang.httpinvoker.breaker.SlidingWindowCircuitBreaker;
+import com.github.dadiyang.httpinvoker.exception.BulkheadFullException;
+import com.github.dadiyang.httpinvoker.exception.CircuitBreakerOpenException;
+import com.github.dadiyang.httpinvoker.limiter.AdaptiveConcurrencyLimiter;
+import com.github.dadiyang.httpinvoker.metrics.InvocationRecord;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+
+/**
+ * the state of a single invocation shared by preparing the request, sending it (maybe for several attempts)
+ * and processing the response
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class Invocation {
+    private static final int SERVER_ERROR = 500;
+    private final MethodInvocationPlan plan;
+    private final InvocationRecord record;
+    private final Object[] args;
+    private final long start;
+    private final Bulkheads bulkheads;
+    private HttpRequest request;
+    private EndpointGroup endpointGroup;
+    private Endpoint endpoint;
+    private int attempts;
+    private Coalescer.Flight flight;
+    private String cacheKey;
+    private CachedResponse staleResponse;
+
+    /**
+     * @param plan      the plan of the invoked method
+     * @param record    the record for the metrics, null if metrics is disabled
+     * @param args      the arguments of the invocation
+     * @param bulkheads the bulkheads of the interface, null if it's not annotated with @Bulkhead
+     */
+    Invocation(MethodInvocationPlan plan, InvocationRecord record, Object[] args, Bulkheads bulkheads) {
+        this.plan = plan;
+        this.record = record;
+        this.args = args;
+        this.bulkheads = bulkheads;
+        this.start = System.nanoTime();
+    }
+
+    MethodInvocationPlan getPlan() {
+        return plan;
+    }
+
+    InvocationRecord getRecord() {
+        return record;
+    }
+
+    Object[] getArgs() {
+        return args;
+    }
+
+    /**
+     * @return the System.nanoTime() when the invocation started
+     */
+    long getStart() {
+        return start;
+    }
+
+    HttpRequest getRequest() {
+        return request;
+    }
+
+    void setRequest(HttpRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * set the endpoint chosen for the first attempt
+     */
+    void setEndpoint(EndpointGroup endpointGroup, Endpoint endpoint) {
+        this.endpointGroup = endpointGroup;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the flight led by this invocation if the request is coalesced, otherwise null
+     */
+    Coalescer.Flight getFlight() {
+        return flight;
+    }
+
+    void setFlight(Coalescer.Flight flight) {
+        this.flight = flight;
+    }
+
+    /**
+     * @return the key to store the response in the cache if the method is annotated with @Cacheable and the cache
+     * missed, otherwise null
+     */
+    String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * @return the stale response being revalidated by the request, null if none
+     */
+    CachedResponse getStaleResponse() {
+        return staleResponse;
+    }
+
+    /**
+     * @param cacheKey      the key to store the response in the cache
+     * @param staleResponse the stale response being revalidated by the request, nullable
+     */
+    void setCache(String cacheKey, CachedResponse staleResponse) {
+        this.cacheKey = cacheKey;
+        this.staleResponse = staleResponse;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * called right before sending the request, another endpoint is chosen for the retries if the url prefix resolves
+     * to an endpoint group
+     *
+     * @return the attempt to be passed to {@link #endAttempt(Attempt, HttpResponse)}
+     * @throws CircuitBreakerOpenException thrown when the circuit breaker of the host is open
+     * @throws BulkheadFullException       thrown when the requests in flight to the host have reached the limit
+     */
+    Attempt beginAttempt() {
+        attempts++;
+        if (endpointGroup != null && attempts > 1) {
+            switchEndpoint();
+        }
+        return begin(request, endpoint);
+    }
+
+    /**
+     * called right before sending a hedged request, which is a copy of the request sent to another endpoint if any,
+     * it's not counted in the attempts of the retry policy
+     *
+     * @return the attempt to be passed to {@link #endAttempt(Attempt, HttpResponse)}
+     * @throws CircuitBreakerOpenException thrown when the circuit breaker of the host is open
+     * @throws BulkheadFullException       thrown when the requests in flight to the host have reached the limit
+     */
+    Attempt beginHedge() {
+        HttpRequest hedge = request.copy();
+        Endpoint hedgeEndpoint = endpoint;
+        if (endpointGroup != null && hedge.getUrl() != null && hedge.getUrl().startsWith(endpoint.getUrl())) {
+            hedgeEndpoint = endpointGroup.choose(endpoint);
+            hedge.setUrl(hedgeEndpoint.getUrl() + hedge.getUrl().substring(endpoint.getUrl().length()));
+        }
+        return begin(hedge, hedgeEndpoint);
+    }
+
+    private Attempt begin(HttpRequest attemptRequest, Endpoint attemptEndpoint) {
+        if (record != null) {
+            record.incrementAttempts();
+        }
+        AdaptiveConcurrencyLimiter limiter = bulkheads == null ? null : bulkheads.getLimiter(attemptRequest.getUrl());
+        if (limiter != null && !limiter.tryAcquire()) {
+            throw new BulkheadFullException("too many requests in flight, the request is not sent: " + attemptRequest.getUrl());
+        }
+        // acquire the circuit breaker at last, since a permit of the half-open state would be lost if rejected after it
+        SlidingWindowCircuitBreaker circuitBreaker = plan.getCircuitBreaker(attemptRequest.getUrl());
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            if (limiter != null) {
+                limiter.release();
+            }
+            throw new CircuitBreakerOpenException("circuit breaker is open, the request is not sent: " + attemptRequest.getUrl());
+        }
+        if (endpointGroup != null) {
+            endpointGroup.start(attemptEndpoint);
+        }
+        return new Attempt(attemptRequest, attemptEndpoint, circuitBreaker, limiter);
+    }
+
+    /**
+     * called after the attempt completed
+     *
+     * @param attempt  the attempt returned by beginAttempt or beginHedge
+     * @param response the response, null if the requestor failed
+     */
+    void endAttempt(Attempt attempt, HttpResponse response) {
+        long nanos = System.nanoTime() - attempt.start;
+        if (record != null) {
+            record.addNetworkNanos(nanos);
+        }
+        if (response != null) {
+            plan.recordLatency(nanos);
+        }
+        int statusCode = response == null ? -1 : response.getStatusCode();
+        if (endpointGroup != null) {
+            endpointGroup.complete(attempt.endpoint, nanos, statusCode);
+        }
+        if (attempt.circuitBreaker != null) {
+            attempt.circuitBreaker.onComplete(nanos, statusCode < 0 || statusCode >= SERVER_ERROR);
+        }
+        if (attempt.limiter != null) {
+            attempt.limiter.onComplete(nanos, response == null);
+        }
+    }
+
+    private void switchEndpoint() {
+        String url = request.getUrl();
+        // the url may have been changed to another host by the request preprocessor
+        if (url == null || !url.startsWith(endpoint.getUrl())) {
+            return;
+        }
+        Endpoint next = endpointGroup.choose(endpoint);
+        if (next != endpoint) {
+            request.setUrl(next.getUrl() + url.substring(endpoint.getUrl().length()));
+            endpoint = next;
+            if (record != null) {
+                record.setUrl(request.getUrl());
+            }
+        }
+    }
+
+    /**
+     * a request sent to an endpoint, there may be several attempts in flight at the same time if it's hedged
+     */
+    static class Attempt {
+        private final HttpRequest request;
+        private final Endpoint endpoint;
+        private final SlidingWindowCircuitBreaker circuitBreaker;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long start = System.nanoTime();
+
+        Attempt(HttpRequest request, Endpoint endpoint, SlidingWindowCircuitBreaker circuitBreaker,
+                AdaptiveConcurrencyLimiter limiter) {
+            this.request = request;
+            this.endpoint = endpoint;
+            this.circuitBreaker = circuitBreaker;
+            this.limiter = limiter;
+        }
+
+        HttpRequest getRequest() {
+            return request;
+        }
+
+        /**
+         * @return the System.nanoTime() when the attempt started
+         */
+        long getStart() {
+            return start;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.dadiyang.httpinvoker;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * keep the latencies of the recent calls of a method to estimate a percentile of them.
+ * <p>
+ * The latencies are written into a ring by CAS, the percentile is computed by sorting a copy of the ring
+ * at most once per {@link #REFRESH_INTERVAL} and cached in between, so it's cheap enough to be read on every call.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class LatencyTracker {
+    private static final int SIZE = 128;
+    private static final int MIN_SAMPLES = 20;
+    private static final int PERCENT = 100;
+    private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private final int percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong refreshedAt = new AtomicLong(System.nanoTime() - REFRESH_INTERVAL);
+    private volatile long cached = -1;
+
+    /**
+     * @param percentile the percentile to estimate, e.g. 95
+     */
+    LatencyTracker(int percentile) {
+        this.percentile = Math.max(1, Math.min(PERCENT, percentile));
+    }
+
+    void record(long nanos) {
+        samples.set((int) (cursor.getAndIncrement() % SIZE), nanos);
+    }
+
+    /**
+     * @return the percentile of the recent latencies in nanoseconds, -1 if there are not enough samples
+     */
+    long getPercentile() {
+        long last = refreshedAt.get();
+        long now = System.nanoTime();
+        // only the thread which wins the CAS computes it again
+        if (now - last >= REFRESH_INTERVAL && refreshedAt.compareAndSet(last, now)) {
+            cached = compute();
+        }
+        return cached;
+    }
+
+    private long compute() {
+        int n = (int) Math.min(cursor.get(), SIZE);
+        if (n < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = new long[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.min(n - 1, (n * percentile + PERCENT - 1) / PERCENT - 1)];
+    }
+}
@@ -0,0 +1,578 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.*;
+import com.github.dadiyang.httpinvoker.breaker.CircuitBreakerFallback;
+import com.github.dadiyang.httpinvoker.breaker.SlidingWindowCircuitBreaker;
+import com.github.dadiyang.httpinvoker.enumeration.ReqMethod;
+import com.github.dadiyang.httpinvoker.requestor.ResponseProcessor;
+import com.github.dadiyang.httpinvoker.requestor.ResultBeanResponseProcessor;
+import com.github.dadiyang.httpinvoker.util.ReflectionUtils;
+import com.github.dadiyang.httpinvoker.util.StringUtils;
+import com.github.dadiyang.httpinvoker.util.UrlTemplate;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Everything about a @HttpReq-annotated method that does not depend on the arguments.
+ * <p>
+ * It is computed only once per method, so that the invocation only needs to bind the arguments
+ * instead of walking through the annotations every time. The plan of a method annotated with @Batch
+ * holds its {@link Batcher} only.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class MethodInvocationPlan {
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String USER_AGENT = "User-Agent";
+    private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+    private static final List<String> IDEMPOTENT_METHODS = Arrays.asList(ReqMethod.GET, ReqMethod.HEAD,
+            ReqMethod.OPTIONS, ReqMethod.PUT, ReqMethod.DELETE);
+    private static final List<String> SAFE_METHODS = Arrays.asList(ReqMethod.GET, ReqMethod.HEAD, ReqMethod.OPTIONS);
+    private static final List<String> CACHEABLE_METHODS = Arrays.asList(ReqMethod.GET, ReqMethod.HEAD);
+    private final Method method;
+    private final UrlTemplate url;
+    private final UrlTemplate urlPrefix;
+    private final String reqMethod;
+    private final int timeout;
+    private final Map<String, String> headers;
+    private final Map<String, String> cookies;
+    private final RetryPolicy retryPolicy;
+    private final boolean useDefaultResponseProcessor;
+    private final ParamBinding[] paramBindings;
+    private final boolean async;
+    private final Type returnType;
+    private final boolean streaming;
+    private final CircuitBreaker circuitBreaker;
+    private final CircuitBreakerFallback fallback;
+    private final ConcurrentMap<String, SlidingWindowCircuitBreaker> circuitBreakers;
+    private final Hedge hedge;
+    private final LatencyTracker latencyTracker;
+    private final boolean coalesce;
+    private final Cacheable cacheable;
+    private final RateLimit rateLimit;
+    private final String rateLimitName;
+    private final AtomicBoolean untypedProcessorWarned = new AtomicBoolean();
+    private final Batcher batcher;
+
+    /**
+     * @param method            the method annotated with @HttpReq
+     * @param clazz             the proxied interface
+     * @param responseProcessor the responseProcessor of the invoker, nullable
+     * @throws IllegalStateException thrown when keys and values of @Headers or @Cookies are not one-to-one correspondence
+     */
+    MethodInvocationPlan(Method method, Class<?> clazz, ResponseProcessor responseProcessor) {
+        this.method = method;
+        HttpReq anno = method.getAnnotation(HttpReq.class);
+        this.url = UrlTemplate.compile(anno.value());
+        this.reqMethod = anno.method();
+        this.timeout = anno.timeout();
+        this.urlPrefix = parsePrefix(clazz);
+        this.headers = parseHeaders(method, clazz);
+        this.cookies = parseCookies(method);
+        this.retryPolicy = parseRetryPolicy(method, clazz);
+        this.useDefaultResponseProcessor = responseProcessor == null || notResultBean(method, responseProcessor);
+        this.paramBindings = parseParamBindings(method);
+        this.async = AsyncResult.isAsyncType(method.getReturnType());
+        this.returnType = async ? parseAsyncValueType(method) : method.getGenericReturnType();
+        Class<?> rawReturnType = ReflectionUtils.getRawClass(returnType);
+        this.streaming = getAnn(method, Streaming.class) != null
+                || ReflectionUtils.isInputStreamType(rawReturnType) || ReflectionUtils.isReaderType(rawReturnType);
+        this.circuitBreaker = parseCircuitBreaker(method, clazz);
+        this.fallback = circuitBreaker == null ? null : createFallback(circuitBreaker);
+        this.circuitBreakers = circuitBreaker == null ? null : new ConcurrentHashMap<String, SlidingWindowCircuitBreaker>();
+        this.hedge = parseHedge(method, reqMethod);
+        this.latencyTracker = hedge != null && hedge.delay() <= 0 ? new LatencyTracker(hedge.percentile()) : null;
+        this.coalesce = parseCoalesce(method, reqMethod, streaming);
+        this.cacheable = parseCacheable(method, reqMethod, streaming);
+        this.rateLimit = parseRateLimit(method, clazz);
+        this.rateLimitName = rateLimit == null ? null : parseRateLimitName(rateLimit, method, clazz);
+        this.batcher = null;
+    }
+
+    /**
+     * the plan of a method annotated with @Batch, whose calls are merged into the calls of the bulk method
+     */
+    private MethodInvocationPlan(Method method, Batcher batcher) {
+        this.method = method;
+        this.batcher = batcher;
+        this.url = null;
+        this.urlPrefix = null;
+        this.reqMethod = null;
+        this.timeout = 0;
+        this.headers = Collections.emptyMap();
+        this.cookies = Collections.emptyMap();
+        this.retryPolicy = null;
+        this.useDefaultResponseProcessor = true;
+        this.paramBindings = new ParamBinding[0];
+        this.async = AsyncResult.isAsyncType(method.getReturnType());
+        this.returnType = method.getGenericReturnType();
+        this.streaming = false;
+        this.circuitBreaker = null;
+        this.fallback = null;
+        this.circuitBreakers = null;
+        this.hedge = null;
+        this.latencyTracker = null;
+        this.coalesce = false;
+        this.cacheable = null;
+        this.rateLimit = null;
+        this.rateLimitName = null;
+    }
+
+    /**
+     * @param method   the method annotated with @Batch
+     * @param clazz    the proxied interface
+     * @param handler  the handler to invoke the bulk method
+     * @param timer    the timer to send the batches after the window
+     * @param executor the executor to invoke the bulk method
+     * @throws IllegalStateException thrown when the method or the bulk method doesn't meet the requirements of @Batch
+     */
+    static MethodInvocationPlan forBatch(Method method, Class<?> clazz, InvocationHandler handler,
+                                         ScheduledExecutorService timer, Executor executor) {
+        return new MethodInvocationPlan(method, new Batcher(clazz, method, handler, timer, executor));
+    }
+
+    /**
+     * @return the T of Future&lt;T&gt;, or Object if it's not declared
+     */
+    private Type parseAsyncValueType(Method method) {
+        Type type = method.getGenericReturnType();
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        return Object.class;
+    }
+
+    private UrlTemplate parsePrefix(Class<?> clazz) {
+        if (!clazz.isAnnotationPresent(HttpApi.class)) {
+            return null;
+        }
+        HttpApi httpApi = clazz.getAnnotation(HttpApi.class);
+        // use prefix or value of HttpApi as the url's prefix
+        return UrlTemplate.compile("".equals(httpApi.prefix()) ? httpApi.value() : httpApi.prefix());
+    }
+
+    private Map<String, String> parseHeaders(Method method, Class<?> clazz) {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        if (method.getDeclaringClass().isAnnotationPresent(Headers.class)) {
+            Headers headers = method.getDeclaringClass().getAnnotation(Headers.class);
+            putAll(map, headers.keys(), headers.values(), "headers");
+        }
+        // method's headers will cover those with same key
+        if (method.isAnnotationPresent(Headers.class)) {
+            Headers headers = method.getAnnotation(Headers.class);
+            putAll(map, headers.keys(), headers.values(), "headers");
+        }
+        if (clazz.isAnnotationPresent(Form.class)
+                || method.isAnnotationPresent(Form.class)) {
+            // a form request
+            map.put(CONTENT_TYPE, FORM_URLENCODED);
+        } else {
+            ContentType contentType = getAnn(method, ContentType.class);
+            if (contentType != null && !contentType.value().isEmpty()) {
+                map.put(CONTENT_TYPE, contentType.value());
+            }
+        }
+        UserAgent userAgent = getAnn(method, UserAgent.class);
+        if (userAgent != null && !userAgent.value().isEmpty()) {
+            map.put(USER_AGENT, userAgent.value());
+        }
+        return map.isEmpty() ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(map);
+    }
+
+    private Map<String, String> parseCookies(Method method) {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        if (method.getDeclaringClass().isAnnotationPresent(Cookies.class)) {
+            Cookies cookies = method.getDeclaringClass().getAnnotation(Cookies.class);
+            putAll(map, cookies.keys(), cookies.values(), "cookies");
+        }
+        // method's cookies will cover those with same key
+        if (method.isAnnotationPresent(Cookies.class)) {
+            Cookies cookies = method.getAnnotation(Cookies.class);
+            putAll(map, cookies.keys(), cookies.values(), "cookies");
+        }
+        return map.isEmpty() ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(map);
+    }
+
+    private void putAll(Map<String, String> map, String[] keys, String[] values, String name) {
+        if (keys.length <= 0) {
+            return;
+        }
+        if (values.length != keys.length) {
+            throw new IllegalStateException(name + "' keys and values must one-to-one correspondence");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+    }
+
+    private RetryPolicy parseRetryPolicy(Method method, Class<?> clazz) {
+        if (method.isAnnotationPresent(RetryPolicy.class)) {
+            return method.getAnnotation(RetryPolicy.class);
+        } else if (clazz.isAnnotationPresent(RetryPolicy.class)) {
+            return clazz.getAnnotation(RetryPolicy.class);
+        }
+        return null;
+    }
+
+    private RateLimit parseRateLimit(Method method, Class<?> clazz) {
+        if (method.isAnnotationPresent(RateLimit.class)) {
+            return method.getAnnotation(RateLimit.class);
+        } else if (clazz.isAnnotationPresent(RateLimit.class)) {
+            return clazz.getAnnotation(RateLimit.class);
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the token bucket, the interface or the method annotated if the name is not specified
+     */
+    private String parseRateLimitName(RateLimit rateLimit, Method method, Class<?> clazz) {
+        if (!rateLimit.name().isEmpty()) {
+            return rateLimit.name();
+        }
+        return method.isAnnotationPresent(RateLimit.class) ? method.toGenericString() : clazz.getName();
+    }
+
+    private CircuitBreaker parseCircuitBreaker(Method method, Class<?> clazz) {
+        if (method.isAnnotationPresent(CircuitBreaker.class)) {
+            return method.getAnnotation(CircuitBreaker.class);
+        } else if (clazz.isAnnotationPresent(CircuitBreaker.class)) {
+            return clazz.getAnnotation(CircuitBreaker.class);
+        }
+        return null;
+    }
+
+    private CircuitBreakerFallback createFallback(CircuitBreaker circuitBreaker) {
+        Class<? extends CircuitBreakerFallback> type = circuitBreaker.fallback();
+        if (type == CircuitBreakerFallback.class) {
+            return null;
+        }
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot create circuit breaker fallback: " + type.getName(), e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("cannot create circuit breaker fallback: " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException thrown when a method which is not idempotent is annotated with @Hedge
+     */
+    private Hedge parseHedge(Method method, String reqMethod) {
+        Hedge anno = method.getAnnotation(Hedge.class);
+        if (anno != null && !IDEMPOTENT_METHODS.contains(StringUtils.upperCase(reqMethod))) {
+            throw new IllegalStateException("@Hedge should only be annotated on idempotent methods, but "
+                    + method.getName() + " is " + reqMethod);
+        }
+        return anno;
+    }
+
+    /**
+     * @throws IllegalStateException thrown when a method which is not safe or is streaming is annotated with @Coalesce
+     */
+    private boolean parseCoalesce(Method method, String reqMethod, boolean streaming) {
+        if (!method.isAnnotationPresent(Coalesce.class)) {
+            return false;
+        }
+        if (!SAFE_METHODS.contains(StringUtils.upperCase(reqMethod)) || streaming) {
+            throw new IllegalStateException("@Coalesce should only be annotated on GET, HEAD or OPTIONS methods"
+                    + " which are not streaming, but " + method.getName() + " is " + reqMethod);
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalStateException thrown when a method which is not GET or HEAD or is streaming is annotated with @Cacheable
+     */
+    private Cacheable parseCacheable(Method method, String reqMethod, boolean streaming) {
+        Cacheable anno = method.getAnnotation(Cacheable.class);
+        if (anno != null && (!CACHEABLE_METHODS.contains(StringUtils.upperCase(reqMethod)) || streaming)) {
+            throw new IllegalStateException("@Cacheable should only be annotated on GET or HEAD methods"
+                    + " which are not streaming, but " + method.getName() + " is " + reqMethod);
+        }
+        return anno;
+    }
+
+    private boolean notResultBean(Method method, ResponseProcessor responseProcessor) {
+        return responseProcessor instanceof ResultBeanResponseProcessor
+                && (method.isAnnotationPresent(NotResultBean.class)
+                || method.getDeclaringClass().isAnnotationPresent(NotResultBean.class));
+    }
+
+    private ParamBinding[] parseParamBindings(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        Type[] types = method.getGenericParameterTypes();
+        ParamBinding[] bindings = new ParamBinding[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            bindings[i] = new ParamBinding(annotations[i], types[i]);
+        }
+        return bindings;
+    }
+
+    private <T extends Annotation> T getAnn(Method method, Class<T> ann) {
+        if (method.isAnnotationPresent(ann)) {
+            return method.getAnnotation(ann);
+        } else if (method.getDeclaringClass().isAnnotationPresent(ann)) {
+            return method.getDeclaringClass().getAnnotation(ann);
+        }
+        return null;
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the compiled url template declared in @HttpReq
+     */
+    UrlTemplate getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the compiled url prefix declared in @HttpApi, or null if the interface is not annotated with it
+     */
+    UrlTemplate getUrlPrefix() {
+        return urlPrefix;
+    }
+
+    String getReqMethod() {
+        return reqMethod;
+    }
+
+    int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the headers declared by @Headers, @ContentType, @Form and @UserAgent in the order they should be applied
+     */
+    Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    Map<String, String> getCookies() {
+        return cookies;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    boolean isUseDefaultResponseProcessor() {
+        return useDefaultResponseProcessor;
+    }
+
+    ParamBinding[] getParamBindings() {
+        return paramBindings;
+    }
+
+    /**
+     * @return whether the method returns a Future which should be completed asynchronously
+     */
+    boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return the type of the value the response should be processed to, T for those methods return Future&lt;T&gt;
+     */
+    Type getReturnType() {
+        return returnType;
+    }
+
+    /**
+     * @return true only for the first time, so that a processor unaware of the async return type is warned once
+     */
+    boolean markUntypedProcessorWarned() {
+        return untypedProcessorWarned.compareAndSet(false, true);
+    }
+
+    /**
+     * @return whether the response body should be handed over as a stream without being buffered
+     */
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @param url the url of the request
+     * @return the circuit breaker of the host of the url, or null if the method is not annotated with @CircuitBreaker
+     */
+    SlidingWindowCircuitBreaker getCircuitBreaker(String url) {
+        if (circuitBreakers == null) {
+            return null;
+        }
+        String host = UrlTemplate.getHost(url);
+        SlidingWindowCircuitBreaker breaker = circuitBreakers.get(host);
+        if (breaker == null) {
+            breaker = SlidingWindowCircuitBreaker.create(circuitBreaker);
+            SlidingWindowCircuitBreaker exists = circuitBreakers.putIfAbsent(host, breaker);
+            breaker = exists != null ? exists : breaker;
+        }
+        return breaker;
+    }
+
+    /**
+     * @return the fallback for the calls rejected by the circuit breaker, or null if not specified
+     */
+    CircuitBreakerFallback getFallback() {
+        return fallback;
+    }
+
+    /**
+     * @return the max number of requests in flight if the method is annotated with @Hedge, otherwise 1
+     */
+    int getHedgeMaxAttempts() {
+        return hedge == null ? 1 : hedge.maxAttempts();
+    }
+
+    /**
+     * @return the nanoseconds to wait before sending a hedged request, -1 if the request should not be hedged
+     */
+    long getHedgeDelayNanos() {
+        if (hedge == null || hedge.maxAttempts() < 2) {
+            return -1;
+        }
+        return latencyTracker == null ? TimeUnit.MILLISECONDS.toNanos(hedge.delay()) : latencyTracker.getPercentile();
+    }
+
+    /**
+     * record the latency of an attempt which received a response, from which the hedge delay is estimated
+     */
+    void recordLatency(long nanos) {
+        if (latencyTracker != null) {
+            latencyTracker.record(nanos);
+        }
+    }
+
+    /**
+     * @return whether the identical concurrent requests should be coalesced
+     */
+    boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * @return the @RateLimit of the method or the interface, null if none
+     */
+    RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * @param url the url of the request
+     * @return the key of the token bucket of the request, null if the method is not rate limited
+     */
+    String getRateLimitKey(String url) {
+        if (rateLimit == null) {
+            return null;
+        }
+        return rateLimit.perHost() ? rateLimitName + ' ' + UrlTemplate.getHost(url) : rateLimitName;
+    }
+
+    /**
+     * @return the batcher if the method is annotated with @Batch, otherwise null
+     */
+    Batcher getBatcher() {
+        return batcher;
+    }
+
+    /**
+     * @return the milliseconds a response stays fresh by default if the method is annotated with @Cacheable,
+     * otherwise -1 which means the responses are not cached
+     */
+    long getCacheTtlMillis() {
+        return cacheable == null ? -1 : Math.max(0, cacheable.ttl());
+    }
+
+    /**
+     * how an argument should be bound to the request according to the annotations of the parameter
+     */
+    static class ParamBinding {
+        private final boolean annotated;
+        private final Param param;
+        private final boolean headers;
+        private final boolean cookies;
+        private final boolean mapStringString;
+
+        ParamBinding(Annotation[] annotations, Type type) {
+            Param p = null;
+            boolean h = false;
+            boolean c = false;
+            for (Annotation ann : annotations) {
+                if (ann instanceof Param) {
+                    p = (Param) ann;
+                }
+                if (ann instanceof Headers) {
+                    h = true;
+                }
+                if (ann instanceof Cookies) {
+                    c = true;
+                }
+            }
+            this.annotated = annotations.length > 0;
+            this.param = p;
+            this.headers = h;
+            this.cookies = c;
+            this.mapStringString = isMapStringString(type);
+        }
+
+        /**
+         * Check whether the Type is Map&lt;String, String&gt;
+         */
+        private static boolean isMapStringString(Type arg) {
+            if (!(arg instanceof ParameterizedType) || ((ParameterizedType) arg).getRawType() != Map.class) {
+                return false;
+            }
+            Type[] types = ((ParameterizedType) arg).getActualTypeArguments();
+            return types[0] == String.class && types[1] == String.class;
+        }
+
+        boolean isAnnotated() {
+            return annotated;
+        }
+
+        /**
+         * @return the @Param annotation of the parameter, or null if absent
+         */
+        Param getParam() {
+            return param;
+        }
+
+        boolean isHeaders() {
+            return headers;
+        }
+
+        boolean isCookies() {
+            return cookies;
+        }
+
+        /**
+         * @throws IllegalArgumentException thrown when a @Headers or @Cookies parameter is not a Map&lt;String, String&gt;
+         */
+        void mustBeMapStringString() {
+            if (!mapStringString) {
+                throw new IllegalArgumentException("Headers and Cookies annotation should only be annotated on parameter of Map<String, String> type.");
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.RateLimit;
+import com.github.dadiyang.httpinvoker.limiter.TokenBucket;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * the token buckets of the methods annotated with {@link RateLimit}, shared by all the proxies of a
+ * {@link HttpApiProxyFactory}
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class RateLimiters {
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+    /**
+     * @param key    the key of the token bucket
+     * @param config the config to create the bucket if it doesn't exist
+     */
+    TokenBucket getBucket(String key, RateLimit config) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = TokenBucket.create(config);
+            TokenBucket exists = buckets.putIfAbsent(key, bucket);
+            bucket = exists != null ? exists : bucket;
+        }
+        return bucket;
+    }
+}
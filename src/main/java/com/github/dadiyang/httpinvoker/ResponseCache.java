@@ -0,0 +1,290 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a size-bounded in-process cache of the responses of the methods annotated with
+ * {@link com.github.dadiyang.httpinvoker.annotation.Cacheable}, shared by the proxies of a {@link HttpApiProxyFactory}.
+ * <p>
+ * The entries are evicted by W-TinyLFU: a new entry enters a small LRU window, when it overflows the window it is only
+ * admitted to the main space if it's accessed more frequently than the victim of the main space, which is a segmented
+ * LRU of a probation and a protected queue. So that the hot entries are not flushed by a burst of one-off requests.
+ * The frequencies are estimated by a {@link FrequencySketch}.
+ * <p>
+ * The lookups are lock-free, the accesses only reorder the queues if the lock is free, since the order is a hint
+ * for the eviction. If it's off-heap, the bodies are kept in direct buffers, so that the cached bytes are kept
+ * out of the old generation.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class ResponseCache {
+    private static final int NOT_MODIFIED = 304;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+    private static final int PERCENT = 100;
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = -1;
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final boolean offHeap;
+    private final ConcurrentMap<String, Node> data = new ConcurrentHashMap<String, Node>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+
+    /**
+     * @param maximumSize the max number of the responses cached
+     */
+    public ResponseCache(int maximumSize) {
+        this(maximumSize, false);
+    }
+
+    /**
+     * @param maximumSize the max number of the responses cached
+     * @param offHeap     whether the bodies are kept in direct buffers
+     */
+    public ResponseCache(int maximumSize, boolean offHeap) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize should be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize * WINDOW_PERCENT / PERCENT);
+        this.protectedMaximum = (maximumSize - windowMaximum) * PROTECTED_PERCENT / PERCENT;
+        this.offHeap = offHeap;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @return the number of the responses cached
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * remove all the responses cached
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Node node : data.values()) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key the key of the request
+     * @return the response cached, which may be stale, or null if there is none
+     */
+    CachedResponse get(String key) {
+        Node node = data.get(key);
+        // the access is dropped if the lock is busy
+        if (lock.tryLock()) {
+            try {
+                if (node != null && node.queue != REMOVED) {
+                    onAccess(node);
+                } else {
+                    // a miss also counts, so that the popularity of the key is known when it's to be admitted
+                    sketch.increment(spread(key.hashCode()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node == null ? null : node.response;
+    }
+
+    /**
+     * store the response if it's storable, or refresh the stale one if the response is 304 Not Modified
+     *
+     * @param key       the key of the request
+     * @param stale     the stale response whose validators were sent with the request, null if none
+     * @param response  the response received
+     * @param ttlMillis the milliseconds the response stays fresh if it doesn't specify that
+     * @return the response to be processed, the cached one if it is stored or refreshed, otherwise the given one
+     */
+    HttpResponse put(String key, CachedResponse stale, HttpResponse response, long ttlMillis) {
+        if (response == null) {
+            return null;
+        }
+        CachedResponse cached;
+        if (stale != null && response.getStatusCode() == NOT_MODIFIED) {
+            cached = stale.revalidate(response, ttlMillis);
+        } else {
+            cached = CachedResponse.store(response, ttlMillis, offHeap);
+        }
+        if (cached == null) {
+            if (stale != null) {
+                // the stale one has been replaced by a response which should not be stored
+                invalidate(key);
+            }
+            return response;
+        }
+        insert(key, cached);
+        return cached;
+    }
+
+    private void invalidate(String key) {
+        lock.lock();
+        try {
+            Node node = data.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void insert(String key, CachedResponse response) {
+        lock.lock();
+        try {
+            Node node = data.get(key);
+            if (node != null) {
+                node.response = response;
+                onAccess(node);
+                return;
+            }
+            node = new Node(key, spread(key.hashCode()), response);
+            data.put(key, node);
+            sketch.increment(node.hash);
+            node.queue = WINDOW;
+            window.addLast(node);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * move the node to the most recently used end, an entry on probation is promoted to the protected queue
+     */
+    private void onAccess(Node node) {
+        sketch.increment(node.hash);
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.moveToLast(node);
+        } else {
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            while (protectedQueue.size > protectedMaximum) {
+                Node demoted = protectedQueue.first();
+                protectedQueue.remove(demoted);
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        }
+    }
+
+    private void evict() {
+        // the entries overflowing the window become the candidates of the main space
+        while (window.size > windowMaximum) {
+            Node candidate = window.first();
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+        while (data.size() > maximumSize) {
+            Node victim = probation.first();
+            Node candidate = probation.last();
+            if (victim == null) {
+                break;
+            }
+            if (victim == candidate) {
+                remove(victim);
+                continue;
+            }
+            // the candidate is admitted only if it's more popular than the victim
+            remove(sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate);
+        }
+    }
+
+    private void remove(Node node) {
+        data.remove(node.key, node);
+        if (node.queue == WINDOW) {
+            window.remove(node);
+        } else if (node.queue == PROBATION) {
+            probation.remove(node);
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.remove(node);
+        }
+        node.queue = REMOVED;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static class Node {
+        private final String key;
+        private final int hash;
+        private volatile CachedResponse response;
+        private int queue;
+        private Node prev;
+        private Node next;
+
+        Node(String key, int hash, CachedResponse response) {
+            this.key = key;
+            this.hash = hash;
+            this.response = response;
+        }
+    }
+
+    /**
+     * a doubly linked list from the least recently used to the most recently used, guarded by the lock of the cache
+     */
+    private static class AccessQueue {
+        private final Node head = new Node(null, 0, null);
+        private int size;
+
+        AccessQueue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node first() {
+            return head.next == head ? null : head.next;
+        }
+
+        Node last() {
+            return head.prev == head ? null : head.prev;
+        }
+
+        void addLast(Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.util.UrlTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a retry budget shared by the proxies of a {@link HttpApiProxyFactory}, which allows retries only while they stay under
+ * a ratio of the requests, so that a degraded upstream doesn't receive several times of the traffic
+ * exactly when it is weakest.
+ * <p>
+ * It's a token bucket updated by CAS: every request deposits retryRatio tokens, every retry withdraws one token,
+ * and minRetriesPerSecond tokens are added per second so that the sporadic failures of a low traffic api can still
+ * be retried. The tokens are capped by maxRetries, which bounds the burst of retries after a long quiet period.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RetryBudget {
+    private static final long SCALE = 1000L;
+    private static final int DEFAULT_MAX_RETRIES = 100;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private final long depositPerRequest;
+    private final long reservePerSecond;
+    private final long capacity;
+    private final boolean perHost;
+    private final Bucket bucket;
+    private final ConcurrentMap<String, Bucket> hostBuckets = new ConcurrentHashMap<String, Bucket>();
+
+    /**
+     * @param retryRatio          the max ratio of the retries to the requests, e.g. 0.1 for 10%
+     * @param minRetriesPerSecond the retries allowed per second regardless of the ratio
+     */
+    public RetryBudget(double retryRatio, int minRetriesPerSecond) {
+        this(retryRatio, minRetriesPerSecond, DEFAULT_MAX_RETRIES, false);
+    }
+
+    /**
+     * @param retryRatio          the max ratio of the retries to the requests, e.g. 0.1 for 10%
+     * @param minRetriesPerSecond the retries allowed per second regardless of the ratio
+     * @param maxRetries          the max tokens the bucket holds
+     * @param perHost             whether each host has its own bucket, otherwise all the requests share one
+     */
+    public RetryBudget(double retryRatio, int minRetriesPerSecond, int maxRetries, boolean perHost) {
+        if (retryRatio < 0 || minRetriesPerSecond < 0 || maxRetries < 0) {
+            throw new IllegalArgumentException("retryRatio, minRetriesPerSecond and maxRetries should not be negative");
+        }
+        this.depositPerRequest = (long) (retryRatio * SCALE);
+        this.reservePerSecond = minRetriesPerSecond * SCALE;
+        this.capacity = maxRetries * SCALE;
+        this.perHost = perHost;
+        this.bucket = new Bucket();
+    }
+
+    /**
+     * create a budget of which each host has its own bucket
+     */
+    public static RetryBudget perHost(double retryRatio, int minRetriesPerSecond) {
+        return new RetryBudget(retryRatio, minRetriesPerSecond, DEFAULT_MAX_RETRIES, true);
+    }
+
+    /**
+     * called once for each invocation, before the first attempt
+     *
+     * @param url the url of the request
+     */
+    public void deposit(String url) {
+        getBucket(url).add(depositPerRequest);
+    }
+
+    /**
+     * called before each retry
+     *
+     * @param url the url of the request
+     * @return whether the retry is allowed, a token is withdrawn if so
+     */
+    public boolean tryWithdraw(String url) {
+        return getBucket(url).withdraw();
+    }
+
+    /**
+     * @param url the url of the request
+     * @return the retries allowed at the moment
+     */
+    public int getAvailable(String url) {
+        Bucket b = getBucket(url);
+        b.refill();
+        return (int) (b.tokens.get() / SCALE);
+    }
+
+    private Bucket getBucket(String url) {
+        if (!perHost) {
+            return bucket;
+        }
+        String host = UrlTemplate.getHost(url);
+        Bucket b = hostBuckets.get(host);
+        if (b == null) {
+            b = new Bucket();
+            Bucket exists = hostBuckets.putIfAbsent(host, b);
+            b = exists != null ? exists : b;
+        }
+        return b;
+    }
+
+    private class Bucket {
+        private final AtomicLong tokens = new AtomicLong(Math.min(capacity, reservePerSecond));
+        private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+        /**
+         * add the reserved tokens for the time elapsed since the last refill, only the thread which wins the CAS
+         * of the refill time adds them
+         */
+        void refill() {
+            if (reservePerSecond == 0) {
+                return;
+            }
+            long last = lastRefill.get();
+            long now = System.nanoTime();
+            long refill = (long) ((now - last) / NANOS_PER_SECOND * reservePerSecond);
+            if (refill > 0 && lastRefill.compareAndSet(last, now)) {
+                add(refill);
+            }
+        }
+
+        void add(long n) {
+            while (true) {
+                long current = tokens.get();
+                long next = Math.min(capacity, current + n);
+                if (next == current || tokens.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        boolean withdraw() {
+            refill();
+            while (true) {
+                long current = tokens.get();
+                if (current < SCALE) {
+                    return false;
+                }
+                if (tokens.compareAndSet(current, current - SCALE)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBudget{" +
+                "retryRatio=" + (double) depositPerRequest / SCALE +
+                ", minRetriesPerSecond=" + reservePerSecond / SCALE +
+                ", maxRetries=" + capacity / SCALE +
+                ", perHost=" + perHost +
+                '}';
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.RetryPolicy;
+import com.github.dadiyang.httpinvoker.enumeration.BackOff;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Status;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * decide whether and when to retry according to the {@link RetryPolicy}, it's created for each invocation
+ * and used by both the blocking and the asynchronous retries
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class RetryHandler {
+    /**
+     * returned instead of a delay when no more attempt should be made
+     */
+    static final long STOP = -1;
+    private static final int NOT_MODIFIED = 304;
+    private static final Random RANDOM = new Random();
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String HTTP_DATE_PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final int DECORRELATED_FACTOR = 3;
+    private final RetryPolicy policy;
+    private final HttpRequest request;
+    private final RetryBudget budget;
+    private final int timeout;
+    private final long deadline;
+    private long lastDelay;
+
+    /**
+     * @param policy  the retry policy
+     * @param request the request to retry
+     * @param start   the System.nanoTime() the invocation started, from which the deadline counts
+     */
+    RetryHandler(RetryPolicy policy, HttpRequest request, long start) {
+        this(policy, request, start, null);
+    }
+
+    /**
+     * @param policy  the retry policy
+     * @param request the request to retry
+     * @param start   the System.nanoTime() the invocation started, from which the deadline counts
+     * @param budget  the retry budget shared with other invocations, null if no budget
+     */
+    RetryHandler(RetryPolicy policy, HttpRequest request, long start, RetryBudget budget) {
+        this.policy = policy;
+        this.request = request;
+        this.budget = budget;
+        this.timeout = request.getTimeout();
+        this.deadline = policy.deadline() > 0 ? start + TimeUnit.MILLISECONDS.toNanos(policy.deadline()) : 0;
+        this.lastDelay = policy.initialBackOffPeriod();
+    }
+
+    /**
+     * limit the timeout of the next attempt to the time left before the deadline
+     */
+    void beforeAttempt(HttpRequest request) {
+        if (deadline == 0) {
+            return;
+        }
+        long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        request.setTimeout((int) Math.max(1, timeout > 0 ? Math.min(timeout, left) : left));
+    }
+
+    /**
+     * @param attempts the attempts made so far
+     * @param response the response of the last attempt
+     * @return the delay in milliseconds before the next attempt, or STOP if the response should be returned
+     */
+    long onResponse(int attempts, HttpResponse response) {
+        int statusCode = response.getStatusCode();
+        if (statusCode == NOT_MODIFIED) {
+            // it answers a conditional request, e.g. the revalidation of a cached response, which gets the same again
+            return STOP;
+        }
+        boolean retry = false;
+        for (Status status : policy.retryForStatus()) {
+            if (statusCode >= status.getFrom() && statusCode <= status.getTo()) {
+                retry = true;
+                break;
+            }
+        }
+        return retry ? nextDelay(attempts, getRetryAfter(response)) : STOP;
+    }
+
+    /**
+     * @param attempts the attempts made so far
+     * @param e        the exception thrown by the last attempt
+     * @return the delay in milliseconds before the next attempt, or STOP if the exception should be thrown
+     */
+    long onFailure(int attempts, Throwable e) {
+        for (Class<? extends Throwable> exception : policy.retryFor()) {
+            if (exception.isAssignableFrom(e.getClass())) {
+                return nextDelay(attempts, -1);
+            }
+        }
+        return STOP;
+    }
+
+    private long nextDelay(int attempts, long retryAfter) {
+        if (attempts >= policy.times()) {
+            return STOP;
+        }
+        long delay = backOff(attempts);
+        if (retryAfter >= 0) {
+            // the server asks us to wait longer than we are willing to
+            if (retryAfter > policy.maxBackOffPeriod()) {
+                return STOP;
+            }
+            delay = Math.max(delay, retryAfter);
+        }
+        if (deadline != 0 && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) - deadline >= 0) {
+            return STOP;
+        }
+        // withdraw at last so that no token is spent on a retry which would be given up anyway
+        if (budget != null && !budget.tryWithdraw(request.getUrl())) {
+            return STOP;
+        }
+        lastDelay = delay;
+        return delay;
+    }
+
+    private long backOff(int attempts) {
+        BackOff backOff = policy.backOff();
+        if (backOff == BackOff.FIXED) {
+            return policy.fixedBackOffPeriod();
+        }
+        long initial = policy.initialBackOffPeriod();
+        long max = policy.maxBackOffPeriod();
+        if (backOff == BackOff.DECORRELATED_JITTER) {
+            long upper = Math.max(initial, lastDelay * DECORRELATED_FACTOR);
+            return Math.min(max, initial + (long) (RANDOM.nextDouble() * (upper - initial)));
+        }
+        long exponential = (long) Math.min(max, initial * Math.pow(policy.backOffMultiplier(), attempts - 1));
+        if (backOff == BackOff.FULL_JITTER) {
+            return (long) (RANDOM.nextDouble() * exponential);
+        }
+        return exponential;
+    }
+
+    /**
+     * @return the milliseconds of the Retry-After header, which is either seconds or an http date, -1 if absent
+     * or the FIXED strategy is used, which keeps retrying after the fixed period as before
+     */
+    private long getRetryAfter(HttpResponse response) {
+        if (!policy.honorRetryAfter() || policy.backOff() == BackOff.FIXED) {
+            return -1;
+        }
+        String retryAfter = response.getHeader(RETRY_AFTER);
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter)));
+        } catch (NumberFormatException ignored) {
+            // try the http date format
+        }
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_PATTERN, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(retryAfter).getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * merge the concurrent calls of a per-key lookup method into one call of the bulk method, e.g. getCity(int id)
+ * into getCities(List&lt;Integer&gt; ids), which turns N round trips into one.
+ * <p>
+ * The calls arrived within the window, or up to maxSize of them, make a batch. The distinct keys of the batch are
+ * passed to the bulk method of the same interface, which has a single parameter of a List, a Set or an array,
+ * and returns a collection, an array or a Map keyed by the keys. Each caller gets the element of its key,
+ * which is found by the key property of the elements, or by the position if the key property is empty,
+ * or null if the element is missing. A failure of the bulk call is thrown to every caller of the batch.
+ * <p>
+ * The annotated method takes the key as its only parameter and doesn't need a @HttpReq, it may return a Future
+ * of the element to wait for the batch asynchronously.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+public @interface Batch {
+    /**
+     * @return the name of the bulk method in the same interface
+     */
+    String method();
+
+    /**
+     * @return the property of the elements returned by the bulk method which holds the key, the elements are matched
+     * by the position if it's empty
+     */
+    String key() default "";
+
+    /**
+     * @return the milliseconds to wait for more calls after the first one of a batch
+     */
+    long window() default 10;
+
+    /**
+     * @return the max number of calls in a batch, the batch is sent right away once it's full
+     */
+    int maxSize() default 100;
+}
@@ -0,0 +1,40 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * limit the requests in flight to the upstream, so that a slow upstream cannot occupy all the threads of the caller.
+ * <p>
+ * The limit is adapted to the round trip times observed like TCP Vegas: it grows while the latency stays near
+ * the minimum one, and shrinks once the requests queue up in the upstream or fail. A request beyond the limit
+ * is rejected by {@link com.github.dadiyang.httpinvoker.exception.BulkheadFullException} without being sent.
+ * <p>
+ * The limiters are shared by all the methods of the interface, one for each host or one for the whole interface.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+public @interface Bulkhead {
+    /**
+     * @return the limit before any round trip time is observed
+     */
+    int initialLimit() default 20;
+
+    /**
+     * @return the lower bound of the limit
+     */
+    int minLimit() default 1;
+
+    /**
+     * @return the upper bound of the limit
+     */
+    int maxLimit() default 200;
+
+    /**
+     * @return whether each host has its own limiter, otherwise the hosts of the interface share one
+     */
+    boolean perHost() default true;
+}
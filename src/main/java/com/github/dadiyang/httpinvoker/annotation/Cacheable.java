@@ -0,0 +1,27 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * cache the responses of the method in the {@link com.github.dadiyang.httpinvoker.ResponseCache} of the factory,
+ * e.g. the reference data which changes slowly.
+ * <p>
+ * The HTTP caching semantics is followed: the freshness is taken from the Cache-Control max-age or the Expires
+ * of the response, and the ttl is only used when neither is present. The responses with Cache-Control no-store
+ * are not cached. A stale response with an ETag or a Last-Modified is revalidated by a conditional request,
+ * and reused if the server responds 304 Not Modified.
+ * <p>
+ * It's only allowed on the GET and HEAD methods which are not streaming.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+public @interface Cacheable {
+    /**
+     * @return the milliseconds a response stays fresh if it carries neither Cache-Control max-age nor Expires
+     */
+    long ttl() default 60000;
+}
@@ -0,0 +1,67 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import com.github.dadiyang.httpinvoker.breaker.CircuitBreakerFallback;
+
+import java.lang.annotation.*;
+
+/**
+ * fail fast instead of waiting for the timeout when the downstream is dead.
+ * <p>
+ * Each method has a breaker for each host. The outcomes of the recent calls are kept in a sliding window,
+ * a failure is an exception thrown by the requestor or a 5xx status code. The breaker is opened when the failure rate
+ * or the slow call rate reaches the threshold, then the calls are rejected by
+ * {@link com.github.dadiyang.httpinvoker.exception.CircuitBreakerOpenException} for waitDurationInOpenState
+ * milliseconds, after which a few probing calls are permitted to decide whether to close it.
+ * <p>
+ * The annotation on a method takes precedence over that on the interface.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Documented
+public @interface CircuitBreaker {
+    /**
+     * @return the percentage of failed calls in the window to open the breaker
+     */
+    int failureRateThreshold() default 50;
+
+    /**
+     * @return the percentage of slow calls in the window to open the breaker
+     */
+    int slowCallRateThreshold() default 100;
+
+    /**
+     * @return the milliseconds from which a call is slow, slow calls are not counted if it's not positive
+     */
+    long slowCallDuration() default 0;
+
+    /**
+     * @return the number of the recent calls kept in the sliding window
+     */
+    int windowSize() default 100;
+
+    /**
+     * @return the calls needed in the window before the rates are evaluated
+     */
+    int minimumCalls() default 10;
+
+    /**
+     * @return the milliseconds the breaker stays open before permitting the probing calls
+     */
+    long waitDurationInOpenState() default 30000;
+
+    /**
+     * @return the number of probing calls in the half-open state
+     */
+    int permittedCallsInHalfOpenState() default 3;
+
+    /**
+     * the fallback which provides the return value when the call is rejected, it should have a public no-arg constructor.
+     * The CircuitBreakerOpenException is thrown if it's not specified.
+     *
+     * @return the class of the fallback
+     */
+    Class<? extends CircuitBreakerFallback> fallback() default CircuitBreakerFallback.class;
+}
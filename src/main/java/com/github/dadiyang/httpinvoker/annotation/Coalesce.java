@@ -0,0 +1,20 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * coalesce the identical concurrent requests of the method into one, e.g. the config or dictionary lookups
+ * which burst when the local cache expires.
+ * <p>
+ * The requests with the same method, url, params, headers and cookies in flight at the same time are sent only once,
+ * the callers arrive later wait for the response of the first one, and each of them gets its own return value
+ * processed from the response. It's only allowed on the GET, HEAD and OPTIONS methods which are not streaming.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+public @interface Coalesce {
+}
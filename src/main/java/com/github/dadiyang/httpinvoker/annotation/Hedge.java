@@ -0,0 +1,40 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * send a hedged request if the response has not been received after a delay, and take whichever completes first.
+ * <p>
+ * The hedged request goes to another endpoint if the {@link HttpApi} prefix resolves to several base urls.
+ * Since the request may be sent more than once, it should only be annotated on the idempotent methods,
+ * i.e. GET, HEAD, OPTIONS, PUT and DELETE.
+ * <p>
+ * Hedging is not free: the losers are not cancelled, since a {@link com.github.dadiyang.httpinvoker.requestor.Requestor}
+ * cannot abort a request in flight. Each of them keeps its connection and its permit of the {@link Bulkhead} until
+ * its response arrives, which is closed then. Under load every hedge adds a request in flight against the bulkhead,
+ * so keep the maxAttempts small and the delay at a high percentile, so that only the slow tail is hedged.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+public @interface Hedge {
+    /**
+     * @return the milliseconds to wait before sending each hedged request, if it's not positive,
+     * the percentile of the latencies observed recently is used instead
+     */
+    long delay() default 0;
+
+    /**
+     * @return the max number of requests in flight, including the first one
+     */
+    int maxAttempts() default 2;
+
+    /**
+     * @return the percentile of the recent latencies used as the delay if the delay is not positive,
+     * no request is hedged until there are enough latencies observed
+     */
+    int percentile() default 95;
+}
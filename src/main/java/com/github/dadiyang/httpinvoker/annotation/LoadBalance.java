@@ -0,0 +1,40 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import com.github.dadiyang.httpinvoker.balancer.LoadBalancer;
+import com.github.dadiyang.httpinvoker.balancer.RoundRobinLoadBalancer;
+
+import java.lang.annotation.*;
+
+/**
+ * the load balancing config of an interface whose {@link HttpApi} prefix resolves to comma-separated base urls,
+ * e.g. prefix = "${city.hosts}" with city.hosts=http://10.0.0.1:8080,http://10.0.0.2:8080
+ * <p>
+ * Those interfaces without this annotation use round-robin and eject an endpoint after 5 consecutive failures.
+ * A failure is an IOException or a 5xx status code. When retrying, another endpoint is chosen if there is any.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+public @interface LoadBalance {
+    /**
+     * the strategy, such as RoundRobinLoadBalancer, LeastOutstandingLoadBalancer and PowerOfTwoChoicesLoadBalancer,
+     * or a custom one with a public no-arg constructor
+     *
+     * @return the class of the load balancer
+     */
+    Class<? extends LoadBalancer> value() default RoundRobinLoadBalancer.class;
+
+    /**
+     * @return the consecutive failures to eject an endpoint, the outlier ejection is disabled if it's not positive
+     */
+    int maxFailures() default 5;
+
+    /**
+     * @return the milliseconds an endpoint is ejected for the first time, it's multiplied by the times it's ejected
+     * again without succeeding in between
+     */
+    long ejectionTime() default 30000;
+}
@@ -0,0 +1,55 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import com.github.dadiyang.httpinvoker.enumeration.RateLimitMode;
+
+import java.lang.annotation.*;
+
+/**
+ * limit the rate of the requests sent, so that the quota of an api which throttles us with 429 is not wasted
+ * on the requests to be rejected.
+ * <p>
+ * The permits are held by a token bucket shared by all the proxies of the same
+ * {@link com.github.dadiyang.httpinvoker.HttpApiProxyFactory}, which is identified by the name, or by the interface
+ * (or the method if it's annotated on a method) if the name is empty. So the interfaces calling the same api can share
+ * the quota by the same name. Each retry takes a permit as well, while the responses from the cache or
+ * of a coalesced request don't.
+ * <p>
+ * The annotation on a method takes precedence over that on the interface.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Documented
+public @interface RateLimit {
+    /**
+     * @return the permits added per second
+     */
+    double permitsPerSecond();
+
+    /**
+     * @return the max permits which can be taken at once after a quiet period
+     */
+    int burst() default 1;
+
+    /**
+     * @return what to do when no permit is available
+     */
+    RateLimitMode mode() default RateLimitMode.BLOCK;
+
+    /**
+     * @return the max milliseconds to wait for a permit in BLOCK mode, the call is rejected if it needs to wait longer
+     */
+    long maxWait() default 5000;
+
+    /**
+     * @return the name of the token bucket, the buckets with the same name are shared, the first config wins
+     */
+    String name() default "";
+
+    /**
+     * @return whether each host resolved has its own token bucket
+     */
+    boolean perHost() default false;
+}
@@ -1,5 +1,6 @@
 package com.github.dadiyang.httpinvoker.annotation;
 
+import com.github.dadiyang.httpinvoker.enumeration.BackOff;
 import com.github.dadiyang.httpinvoker.requestor.Status;
 
 import java.io.IOException;
@@ -44,4 +45,60 @@ public @interface RetryPolicy {
      * @return fixed milli
      */
     long fixedBackOffPeriod() default 0;
+
+    /**
+     * the strategy to compute the delay before each retry.
+     * <p>
+     * Default for FIXED, which uses {@link #fixedBackOffPeriod()}
+     *
+     * @return the back off strategy
+     * @since 1.2.5
+     */
+    BackOff backOff() default BackOff.FIXED;
+
+    /**
+     * the base delay in milliseconds of the EXPONENTIAL, FULL_JITTER and DECORRELATED_JITTER strategies
+     *
+     * @return the initial back off period
+     * @since 1.2.5
+     */
+    long initialBackOffPeriod() default 100;
+
+    /**
+     * @return the multiplier of the EXPONENTIAL and FULL_JITTER strategies
+     * @since 1.2.5
+     */
+    double backOffMultiplier() default 2.0;
+
+    /**
+     * the max delay in milliseconds of the EXPONENTIAL, FULL_JITTER and DECORRELATED_JITTER strategies.
+     * <p>
+     * A Retry-After longer than it stops retrying
+     *
+     * @return the max back off period
+     * @since 1.2.5
+     */
+    long maxBackOffPeriod() default 10000;
+
+    /**
+     * the milliseconds all the attempts, including the delays between them, must finish in.
+     * No retry is made if the delay would exceed it, and the timeout of each attempt is limited to the time left.
+     * <p>
+     * Default for 0, which means no deadline
+     *
+     * @return the deadline
+     * @since 1.2.5
+     */
+    long deadline() default 0;
+
+    /**
+     * whether to wait for at least the Retry-After header of the response before retrying,
+     * it's ignored by the FIXED strategy
+     * <p>
+     * Default for true
+     *
+     * @return honor Retry-After or not
+     * @since 1.2.5
+     */
+    boolean honorRetryAfter() default true;
 }
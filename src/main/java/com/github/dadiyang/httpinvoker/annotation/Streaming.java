@@ -0,0 +1,17 @@
+package com.github.dadiyang.httpinvoker.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 表明响应体需要以流的方式读取，而不是先完整地读取到内存中
+ * <p>
+ * 返回值为 InputStream 或 Reader 的方法默认就是流式的，调用方需要在读取完之后关闭它，以便释放连接
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Documented
+public @interface Streaming {
+}
@@ -0,0 +1,111 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * one of the base urls of an {@link EndpointGroup}, together with the statistics for the load balancers
+ * <p>
+ * The statistics are updated without locks, so they may be slightly stale for the concurrent readers.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class Endpoint {
+    /**
+     * the time for the weight of a latency sample to decay to 1/e
+     */
+    private static final double DECAY_NANOS = 10e9;
+    private final String url;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(0));
+    private volatile long lastSampleTime = System.nanoTime();
+    private volatile boolean ejected;
+    private volatile long ejectedUntil;
+    private volatile int ejections;
+
+    Endpoint(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return the base url, e.g. http://10.0.0.1:8080
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the number of requests sent to this endpoint and not completed yet
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return the exponentially weighted moving average of the latency in nanoseconds, which jumps to the peak
+     * immediately and decays slowly, 0 if no request has completed
+     */
+    public double getEwmaNanos() {
+        return Double.longBitsToDouble(ewmaBits.get());
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * @param now the current System.nanoTime()
+     * @return whether it is ejected for consecutive failures
+     */
+    public boolean isEjected(long now) {
+        return ejected && now - ejectedUntil < 0;
+    }
+
+    void start() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @return the consecutive failures including this one, 0 if it succeeded
+     */
+    int complete(long latencyNanos, boolean success) {
+        outstanding.decrementAndGet();
+        observe(latencyNanos);
+        if (success) {
+            consecutiveFailures.set(0);
+            ejections = 0;
+            return 0;
+        }
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    void eject(long ejectionNanos, long now) {
+        // the ejection lasts longer each time the endpoint is ejected again without succeeding in between
+        ejections = Math.min(ejections + 1, 10);
+        ejectedUntil = now + ejectionNanos * ejections;
+        ejected = true;
+        consecutiveFailures.set(0);
+    }
+
+    private void observe(long latencyNanos) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(now - lastSampleTime, 0);
+        lastSampleTime = now;
+        double weight = Math.exp(-elapsed / DECAY_NANOS);
+        while (true) {
+            long bits = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(bits);
+            double next = latencyNanos > ewma ? latencyNanos : ewma * weight + latencyNanos * (1 - weight);
+            if (ewmaBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
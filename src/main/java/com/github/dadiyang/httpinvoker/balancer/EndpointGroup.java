@@ -0,0 +1,176 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import com.github.dadiyang.httpinvoker.annotation.LoadBalance;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the endpoints which a url prefix like "http://10.0.0.1:8080,http://10.0.0.2:8080" resolves to,
+ * each request is sent to one of them chosen by the {@link LoadBalancer}.
+ * <p>
+ * The outliers are ejected passively: an endpoint failing for maxFailures times in a row is not chosen
+ * for the ejection time, which is longer each time it is ejected again. At most half of the endpoints can be ejected,
+ * and if all the candidates are ejected anyway, the load balancer chooses from all of them.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class EndpointGroup {
+    private static final char SEPARATOR = ',';
+    private static final int SERVER_ERROR = 500;
+    private static final int DEFAULT_MAX_FAILURES = 5;
+    private static final long DEFAULT_EJECTION_TIME = 30000L;
+    private final List<Endpoint> endpoints;
+    private final LoadBalancer loadBalancer;
+    private final int maxFailures;
+    private final long ejectionNanos;
+
+    /**
+     * @param urls               the base urls
+     * @param loadBalancer       the strategy to choose an endpoint
+     * @param maxFailures        the consecutive failures to eject an endpoint, the outlier ejection is disabled if it's not positive
+     * @param ejectionTimeMillis the base ejection time in milliseconds
+     */
+    public EndpointGroup(List<String> urls, LoadBalancer loadBalancer, int maxFailures, long ejectionTimeMillis) {
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("endpoint urls should not be empty");
+        }
+        List<Endpoint> list = new ArrayList<Endpoint>(urls.size());
+        for (String url : urls) {
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.loadBalancer = loadBalancer;
+        this.maxFailures = maxFailures;
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTimeMillis);
+    }
+
+    /**
+     * @param prefix a rendered url prefix
+     * @return whether the prefix consists of more than one endpoint
+     */
+    public static boolean isGroup(CharSequence prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (prefix.charAt(i) == SEPARATOR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * create a group from the comma-separated urls
+     *
+     * @param urls        comma-separated base urls
+     * @param loadBalance the config of the group, the default one is used if null
+     * @return the group
+     * @throws IllegalStateException thrown when the load balancer cannot be instantiated
+     */
+    public static EndpointGroup create(String urls, LoadBalance loadBalance) {
+        List<String> list = new ArrayList<String>();
+        for (String url : urls.split(String.valueOf(SEPARATOR))) {
+            url = url.trim();
+            if (!url.isEmpty()) {
+                list.add(url);
+            }
+        }
+        if (loadBalance == null) {
+            return new EndpointGroup(list, new RoundRobinLoadBalancer(), DEFAULT_MAX_FAILURES, DEFAULT_EJECTION_TIME);
+        }
+        LoadBalancer loadBalancer;
+        try {
+            loadBalancer = loadBalance.value().getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot create load balancer: " + loadBalance.value().getName(), e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("cannot create load balancer: " + loadBalance.value().getName(), e);
+        }
+        return new EndpointGroup(list, loadBalancer, loadBalance.maxFailures(), loadBalance.ejectionTime());
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * choose an endpoint for the next request
+     *
+     * @param exclude the endpoint to avoid if there are others available, e.g. the one just failed, nullable
+     * @return the endpoint
+     */
+    public Endpoint choose(Endpoint exclude) {
+        long now = System.nanoTime();
+        List<Endpoint> candidates = available(now, exclude);
+        if (candidates.isEmpty() && exclude != null) {
+            candidates = available(now, null);
+        }
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        return loadBalancer.choose(candidates);
+    }
+
+    /**
+     * should be called right before sending a request to the endpoint
+     */
+    public void start(Endpoint endpoint) {
+        endpoint.start();
+    }
+
+    /**
+     * should be called after a request to the endpoint completed
+     *
+     * @param endpoint     the endpoint
+     * @param latencyNanos the time from sending the request to receiving the response
+     * @param statusCode   the status code of the response, -1 if no response was received
+     */
+    public void complete(Endpoint endpoint, long latencyNanos, int statusCode) {
+        boolean success = statusCode >= 0 && statusCode < SERVER_ERROR;
+        int failures = endpoint.complete(latencyNanos, success);
+        if (maxFailures > 0 && failures >= maxFailures) {
+            long now = System.nanoTime();
+            if (ejectedCount(now) < endpoints.size() / 2) {
+                endpoint.eject(ejectionNanos, now);
+            }
+        }
+    }
+
+    private List<Endpoint> available(long now, Endpoint exclude) {
+        boolean all = true;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint == exclude || endpoint.isEjected(now)) {
+                all = false;
+                break;
+            }
+        }
+        if (all) {
+            return endpoints;
+        }
+        List<Endpoint> list = new ArrayList<Endpoint>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint != exclude && !endpoint.isEjected(now)) {
+                list.add(endpoint);
+            }
+        }
+        return list;
+    }
+
+    private int ejectedCount(long now) {
+        int count = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isEjected(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return endpoints.toString();
+    }
+}
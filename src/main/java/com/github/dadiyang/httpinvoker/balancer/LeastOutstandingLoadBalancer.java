@@ -0,0 +1,32 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * choose the endpoint with the fewest outstanding requests, the ties are broken in a round-robin fashion
+ * so that the first endpoint is not preferred when the load is low
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class LeastOutstandingLoadBalancer implements LoadBalancer {
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Endpoint choose(List<Endpoint> candidates) {
+        int size = candidates.size();
+        int offset = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Endpoint chosen = null;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Endpoint endpoint = candidates.get((offset + i) % size);
+            int outstanding = endpoint.getOutstanding();
+            if (outstanding < min) {
+                min = outstanding;
+                chosen = endpoint;
+            }
+        }
+        return chosen;
+    }
+}
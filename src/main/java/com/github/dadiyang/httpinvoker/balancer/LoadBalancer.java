@@ -0,0 +1,21 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import java.util.List;
+
+/**
+ * the strategy to choose an endpoint for each request, an instance is created for every {@link EndpointGroup}
+ * by the public no-arg constructor, so it can keep its own state
+ *
+ * @author dadiyang
+ * @see com.github.dadiyang.httpinvoker.annotation.LoadBalance
+ * @since 1.2.5
+ */
+public interface LoadBalancer {
+    /**
+     * choose an endpoint, it's called concurrently
+     *
+     * @param candidates the endpoints not ejected, never empty
+     * @return one of the candidates
+     */
+    Endpoint choose(List<Endpoint> candidates);
+}
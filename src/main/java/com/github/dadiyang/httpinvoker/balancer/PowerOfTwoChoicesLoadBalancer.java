@@ -0,0 +1,36 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * pick two endpoints at random and choose the one with the lower cost, which is the EWMA latency multiplied by
+ * the outstanding requests plus one.
+ * <p>
+ * It reacts to slow endpoints quickly since the EWMA jumps to the peak latency, and avoids the herd behavior
+ * of always choosing the best endpoint with stale statistics.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class PowerOfTwoChoicesLoadBalancer implements LoadBalancer {
+    private final Random random = new Random();
+
+    @Override
+    public Endpoint choose(List<Endpoint> candidates) {
+        int size = candidates.size();
+        if (size == 1) {
+            return candidates.get(0);
+        }
+        int i = random.nextInt(size);
+        // a different one from the rest
+        int j = (i + 1 + random.nextInt(size - 1)) % size;
+        Endpoint a = candidates.get(i);
+        Endpoint b = candidates.get(j);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    private static double cost(Endpoint endpoint) {
+        return endpoint.getEwmaNanos() * (endpoint.getOutstanding() + 1);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * choose the endpoints one after another
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RoundRobinLoadBalancer implements LoadBalancer {
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Endpoint choose(List<Endpoint> candidates) {
+        return candidates.get((next.getAndIncrement() & Integer.MAX_VALUE) % candidates.size());
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.dadiyang.httpinvoker.breaker;
+
+import com.github.dadiyang.httpinvoker.exception.CircuitBreakerOpenException;
+
+import java.lang.reflect.Method;
+
+/**
+ * provide the return value of an invocation rejected by an open circuit breaker
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public interface CircuitBreakerFallback {
+    /**
+     * @param method the invoked method
+     * @param args   the arguments of the invocation
+     * @param e      the exception which would be thrown without the fallback
+     * @return the return value of the method, or the value to complete the future with if the method returns a Future
+     * @throws Throwable the exception to be thrown instead, e.g. e itself
+     */
+    Object fallback(Method method, Object[] args, CircuitBreakerOpenException e) throws Throwable;
+}
@@ -0,0 +1,189 @@
+package com.github.dadiyang.httpinvoker.breaker;
+
+import com.github.dadiyang.httpinvoker.annotation.CircuitBreaker;
+import com.github.dadiyang.httpinvoker.enumeration.CircuitState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * a circuit breaker based on a count-based sliding window, it sits on every call so no lock is used.
+ * <p>
+ * The window is a ring of outcomes written by CAS with the counts of the calls, failures and slow calls maintained
+ * incrementally. The state, the time it's entered and the permits of the half-open state are kept in an immutable
+ * phase swapped by CAS, so that a transition is seen atomically by the other threads.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class SlidingWindowCircuitBreaker {
+    private static final int PERCENT = 100;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+    private static final int SLOW = 4;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long waitNanos;
+    private final int permittedCallsInHalfOpenState;
+    private final AtomicIntegerArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+    private final AtomicReference<Phase> phase = new AtomicReference<Phase>(new Phase(CircuitState.CLOSED, 0));
+
+    /**
+     * @param failureRateThreshold          the percentage of failed calls to open the breaker
+     * @param slowCallRateThreshold         the percentage of slow calls to open the breaker
+     * @param slowCallDurationMillis        the milliseconds from which a call is slow, not counted if it's not positive
+     * @param windowSize                    the number of the recent calls kept in the window
+     * @param minimumCalls                  the calls needed before the rates are evaluated
+     * @param waitDurationInOpenStateMillis the milliseconds the breaker stays open
+     * @param permittedCallsInHalfOpenState the number of probing calls in the half-open state
+     */
+    public SlidingWindowCircuitBreaker(int failureRateThreshold, int slowCallRateThreshold, long slowCallDurationMillis,
+                                       int windowSize, int minimumCalls, long waitDurationInOpenStateMillis,
+                                       int permittedCallsInHalfOpenState) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize should be positive");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowCallDurationMillis));
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitDurationInOpenStateMillis);
+        this.permittedCallsInHalfOpenState = Math.max(1, permittedCallsInHalfOpenState);
+        this.window = new AtomicIntegerArray(windowSize);
+    }
+
+    public static SlidingWindowCircuitBreaker create(CircuitBreaker config) {
+        return new SlidingWindowCircuitBreaker(config.failureRateThreshold(), config.slowCallRateThreshold(),
+                config.slowCallDuration(), config.windowSize(), config.minimumCalls(),
+                config.waitDurationInOpenState(), config.permittedCallsInHalfOpenState());
+    }
+
+    /**
+     * called before each call
+     *
+     * @return whether the call is permitted
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            Phase p = phase.get();
+            switch (p.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - p.since < waitNanos) {
+                        return false;
+                    }
+                    // the first caller after the wait duration moves the breaker to half-open
+                    phase.compareAndSet(p, new Phase(CircuitState.HALF_OPEN, permittedCallsInHalfOpenState));
+                    break;
+                default:
+                    return p.acquirePermit();
+            }
+        }
+    }
+
+    /**
+     * called after each permitted call completed
+     *
+     * @param nanos   the duration of the call
+     * @param failure whether the call failed
+     */
+    public void onComplete(long nanos, boolean failure) {
+        boolean slow = slowCallNanos > 0 && nanos >= slowCallNanos;
+        Phase p = phase.get();
+        if (p.state == CircuitState.OPEN) {
+            // a call permitted before the breaker was opened
+            return;
+        }
+        if (p.state == CircuitState.HALF_OPEN) {
+            if (failure || slow) {
+                open(p);
+            } else if (p.successes.incrementAndGet() >= permittedCallsInHalfOpenState) {
+                phase.compareAndSet(p, new Phase(CircuitState.CLOSED, 0));
+            }
+            return;
+        }
+        int outcome = SUCCESS | (failure ? FAILURE : 0) | (slow ? SLOW : 0);
+        int index = (int) (cursor.getAndIncrement() % window.length());
+        count(window.getAndSet(index, outcome), -1);
+        count(outcome, 1);
+        int n = calls.get();
+        if (n >= minimumCalls && (failures.get() * PERCENT >= failureRateThreshold * n
+                || (slowCallNanos > 0 && slowCalls.get() * PERCENT >= slowCallRateThreshold * n))) {
+            open(p);
+        }
+    }
+
+    public CircuitState getState() {
+        return phase.get().state;
+    }
+
+    private void open(Phase current) {
+        if (phase.compareAndSet(current, new Phase(CircuitState.OPEN, 0))) {
+            // the outcomes before opening should not open it again right after it's closed
+            for (int i = 0; i < window.length(); i++) {
+                count(window.getAndSet(i, 0), -1);
+            }
+        }
+    }
+
+    private void count(int outcome, int delta) {
+        if (outcome == 0) {
+            return;
+        }
+        calls.addAndGet(delta);
+        if ((outcome & FAILURE) != 0) {
+            failures.addAndGet(delta);
+        }
+        if ((outcome & SLOW) != 0) {
+            slowCalls.addAndGet(delta);
+        }
+    }
+
+    /**
+     * a state with the time it's entered, and the permits and successes if it's half-open
+     */
+    private static class Phase {
+        private final CircuitState state;
+        private final long since;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        Phase(CircuitState state, int permits) {
+            this.state = state;
+            this.since = System.nanoTime();
+            this.permits = new AtomicInteger(permits);
+        }
+
+        boolean acquirePermit() {
+            while (true) {
+                int n = permits.get();
+                if (n <= 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(n, n - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SlidingWindowCircuitBreaker{" +
+                "state=" + getState() +
+                ", calls=" + calls.get() +
+                ", failures=" + failures.get() +
+                ", slowCalls=" + slowCalls.get() +
+                '}';
+    }
+}
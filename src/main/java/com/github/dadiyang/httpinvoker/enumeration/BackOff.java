@@ -0,0 +1,27 @@
+package com.github.dadiyang.httpinvoker.enumeration;
+
+/**
+ * the strategies to compute the delay before a retry, n is the number of attempts made so far
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public enum BackOff {
+    /**
+     * always wait for fixedBackOffPeriod
+     */
+    FIXED,
+    /**
+     * initialBackOffPeriod * backOffMultiplier ^ (n - 1), capped by maxBackOffPeriod
+     */
+    EXPONENTIAL,
+    /**
+     * a random delay between 0 and the EXPONENTIAL one, so that the clients failed at the same time
+     * don't retry at the same time
+     */
+    FULL_JITTER,
+    /**
+     * a random delay between initialBackOffPeriod and 3 times the previous delay, capped by maxBackOffPeriod
+     */
+    DECORRELATED_JITTER
+}
@@ -0,0 +1,23 @@
+package com.github.dadiyang.httpinvoker.enumeration;
+
+/**
+ * the states of a circuit breaker
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public enum CircuitState {
+    /**
+     * the calls are permitted and their outcomes are recorded in the sliding window
+     */
+    CLOSED,
+    /**
+     * the calls are rejected without being sent until the wait duration elapses
+     */
+    OPEN,
+    /**
+     * a limited number of probing calls are permitted, the breaker is closed if all of them succeed,
+     * otherwise it's opened again
+     */
+    HALF_OPEN
+}
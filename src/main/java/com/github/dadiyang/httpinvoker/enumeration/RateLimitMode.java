@@ -0,0 +1,18 @@
+package com.github.dadiyang.httpinvoker.enumeration;
+
+/**
+ * what to do when no permit of the rate limit is available
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public enum RateLimitMode {
+    /**
+     * wait for a permit, at most maxWait milliseconds, the asynchronous methods wait without blocking the caller
+     */
+    BLOCK,
+    /**
+     * reject the call right away
+     */
+    FAIL
+}
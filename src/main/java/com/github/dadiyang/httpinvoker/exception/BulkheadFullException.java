@@ -0,0 +1,17 @@
+package com.github.dadiyang.httpinvoker.exception;
+
+/**
+ * Signals that a request is rejected without being sent because the requests in flight have reached the limit
+ * of the bulkhead.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class BulkheadFullException extends IllegalStateException {
+    public BulkheadFullException() {
+    }
+
+    public BulkheadFullException(String s) {
+        super(s);
+    }
+}
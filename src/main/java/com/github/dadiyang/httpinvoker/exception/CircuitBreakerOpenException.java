@@ -0,0 +1,16 @@
+package com.github.dadiyang.httpinvoker.exception;
+
+/**
+ * Signals that a request is rejected without being sent because the circuit breaker is open.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class CircuitBreakerOpenException extends IllegalStateException {
+    public CircuitBreakerOpenException() {
+    }
+
+    public CircuitBreakerOpenException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.dadiyang.httpinvoker.exception;
+
+/**
+ * Signals that a request is rejected without being sent because no permit of the rate limit is available in time.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RateLimitExceededException extends IllegalStateException {
+    public RateLimitExceededException() {
+    }
+
+    public RateLimitExceededException(String s) {
+        super(s);
+    }
+}
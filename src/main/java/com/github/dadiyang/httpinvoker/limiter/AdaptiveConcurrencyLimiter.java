@@ -0,0 +1,150 @@
+package com.github.dadiyang.httpinvoker.limiter;
+
+import com.github.dadiyang.httpinvoker.annotation.Bulkhead;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * a concurrency limiter of which the limit is adapted to the round trip times like TCP Vegas, it sits on every request
+ * so no lock is used.
+ * <p>
+ * The queue in the upstream is estimated by limit * (1 - minRtt / rtt). The limit grows by log10(limit) or more while
+ * the queue is short, and shrinks by log10(limit) once it's long. It's cut to 90% if a request fails without a response,
+ * which is mostly a timeout. The limit is not grown while less than half of it is used, since the round trip times
+ * tell nothing about a higher concurrency then. The min round trip time is probed again periodically so that the
+ * limiter follows the upstream if its baseline latency changes.
+ * <p>
+ * The limit, the min round trip time and the samples since the last probe are kept in an immutable state swapped
+ * by CAS.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int ALPHA = 3;
+    private static final int BETA = 6;
+    private static final int PROBE_MULTIPLIER = 30;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicReference<State> state;
+
+    /**
+     * @param initialLimit the limit before any round trip time is observed
+     * @param minLimit     the lower bound of the limit
+     * @param maxLimit     the upper bound of the limit
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("minLimit should be positive and maxLimit should not be less than it");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.state = new AtomicReference<State>(new State(clamp(initialLimit), 0, 0));
+    }
+
+    public static AdaptiveConcurrencyLimiter create(Bulkhead config) {
+        return new AdaptiveConcurrencyLimiter(config.initialLimit(), config.minLimit(), config.maxLimit());
+    }
+
+    /**
+     * called before each request
+     *
+     * @return whether the request is permitted, the caller must call onComplete or release after it if so
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= state.get().limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * give the permit back without adjusting the limit, e.g. the request is not sent after all
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * give the permit back and adjust the limit by the outcome of the request
+     *
+     * @param rttNanos the round trip time of the request
+     * @param dropped  whether the request failed without a response
+     */
+    public void onComplete(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        if (rttNanos <= 0) {
+            return;
+        }
+        while (true) {
+            State prev = state.get();
+            if (state.compareAndSet(prev, prev.next(rttNanos, dropped, current))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the current limit of the requests in flight
+     */
+    public int getLimit() {
+        return state.get().limit;
+    }
+
+    /**
+     * @return the requests in flight
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private int clamp(double limit) {
+        return (int) Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    private class State {
+        private final int limit;
+        private final long minRttNanos;
+        private final int samples;
+
+        State(int limit, long minRttNanos, int samples) {
+            this.limit = limit;
+            this.minRttNanos = minRttNanos;
+            this.samples = samples;
+        }
+
+        /**
+         * @param inflight the requests in flight when the request completed, including itself
+         */
+        State next(long rttNanos, boolean dropped, int inflight) {
+            if (dropped) {
+                return new State(clamp(limit * BACKOFF_RATIO), minRttNanos, samples + 1);
+            }
+            if (minRttNanos == 0 || rttNanos < minRttNanos || samples >= PROBE_MULTIPLIER * limit) {
+                // take it as the latency without load, the limit is kept until the next sample
+                return new State(limit, rttNanos, 0);
+            }
+            int newLimit = limit;
+            if (inflight * 2 >= limit) {
+                double log = Math.max(1, Math.log10(limit));
+                double queue = Math.ceil(limit * (1 - (double) minRttNanos / rttNanos));
+                if (queue <= log) {
+                    newLimit = clamp(limit + BETA * log);
+                } else if (queue < ALPHA * log) {
+                    newLimit = clamp(limit + log);
+                } else if (queue > BETA * log) {
+                    newLimit = clamp(limit - log);
+                }
+            }
+            return new State(newLimit, minRttNanos, samples + 1);
+        }
+    }
+}
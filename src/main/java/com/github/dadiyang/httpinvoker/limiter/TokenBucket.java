@@ -0,0 +1,69 @@
+package com.github.dadiyang.httpinvoker.limiter;
+
+import com.github.dadiyang.httpinvoker.annotation.RateLimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a token bucket in the form of the generic cell rate algorithm, it sits on every request so no lock is used.
+ * <p>
+ * Instead of counting the tokens, only the time when the bucket would be empty is kept and advanced by an interval
+ * for each permit by CAS. A permit is available right away if that time is within burst intervals from now,
+ * otherwise the caller should wait for the difference. Since the permit is reserved before waiting, the waiters
+ * are served in the order they arrive.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong emptyAt;
+
+    /**
+     * @param permitsPerSecond the permits added per second
+     * @param burst            the max permits which can be taken at once after a quiet period
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst should be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (NANOS_PER_SECOND / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        // full at the beginning
+        this.emptyAt = new AtomicLong(System.nanoTime());
+    }
+
+    public static TokenBucket create(RateLimit config) {
+        return new TokenBucket(config.permitsPerSecond(), config.burst());
+    }
+
+    /**
+     * reserve a permit if it's available within the max wait
+     *
+     * @param maxWaitNanos the max nanoseconds the caller is willing to wait
+     * @return the nanoseconds to wait before using the permit, or -1 if no permit is reserved
+     */
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = emptyAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    /**
+     * @return whether a permit is taken without waiting
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+}
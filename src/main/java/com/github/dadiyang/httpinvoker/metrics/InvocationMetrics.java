@@ -0,0 +1,31 @@
+package com.github.dadiyang.httpinvoker.metrics;
+
+/**
+ * the SPI to collect metrics of the http api invocations, set it by
+ * {@link com.github.dadiyang.httpinvoker.HttpApiProxyFactory.Builder#setInvocationMetrics(InvocationMetrics)}
+ * <p>
+ * Implementations are invoked in the invoking thread or the thread completing an asynchronous invocation,
+ * so they must be thread-safe and should not block. Exceptions thrown by them are logged and ignored.
+ *
+ * @author dadiyang
+ * @see MicrometerInvocationMetrics
+ * @since 1.2.5
+ */
+public interface InvocationMetrics {
+
+    /**
+     * called once after an invocation of a proxied method completed, either successfully or exceptionally
+     *
+     * @param record the latency, status code, retries and sizes of the invocation
+     */
+    void recordInvocation(InvocationRecord record);
+
+    /**
+     * called by the pooling requestors after a connection is leased from the pool, so that the time spent on
+     * waiting for a free connection can be told apart from the network time
+     *
+     * @param route     the target host of the connection, e.g. localhost:8080
+     * @param waitNanos the time in nanoseconds waiting for the connection, including failed leases
+     */
+    void recordPoolLease(String route, long waitNanos);
+}
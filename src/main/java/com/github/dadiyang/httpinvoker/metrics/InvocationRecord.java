@@ -0,0 +1,175 @@
+package com.github.dadiyang.httpinvoker.metrics;
+
+import java.lang.reflect.Method;
+
+/**
+ * the measurements of a single invocation of a proxied method, which is passed to {@link InvocationMetrics}
+ * <p>
+ * The total time is split into the preparing phase, which binds the arguments and renders the url,
+ * the network phase, which is the time spent in the requestor including encoding the request body and all the retries,
+ * and the processing phase, which deserializes the response.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class InvocationRecord {
+    private final Class<?> apiClass;
+    private final Method method;
+    private String httpMethod;
+    private String url;
+    private int statusCode = -1;
+    private int attempts;
+    private long prepareNanos;
+    private long networkNanos;
+    private long processNanos;
+    private long totalNanos;
+    private long requestBytes = -1;
+    private long responseBytes = -1;
+    private Throwable exception;
+
+    public InvocationRecord(Class<?> apiClass, Method method) {
+        this.apiClass = apiClass;
+        this.method = method;
+    }
+
+    /**
+     * @return the proxied interface
+     */
+    public Class<?> getApiClass() {
+        return apiClass;
+    }
+
+    /**
+     * @return the invoked method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public void setHttpMethod(String httpMethod) {
+        this.httpMethod = httpMethod;
+    }
+
+    /**
+     * @return the rendered url, null if the invocation failed before it was rendered.
+     * Note that it contains path variables, so it should not be used as a tag of metrics.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return the status code of the last response, -1 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return how many times the request was sent, 0 if it failed before sending
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void incrementAttempts() {
+        attempts++;
+    }
+
+    /**
+     * @return how many times the request was retried
+     */
+    public int getRetries() {
+        return attempts > 1 ? attempts - 1 : 0;
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    public void setPrepareNanos(long prepareNanos) {
+        this.prepareNanos = prepareNanos;
+    }
+
+    public long getNetworkNanos() {
+        return networkNanos;
+    }
+
+    public void addNetworkNanos(long nanos) {
+        this.networkNanos += nanos;
+    }
+
+    public long getProcessNanos() {
+        return processNanos;
+    }
+
+    public void setProcessNanos(long processNanos) {
+        this.processNanos = processNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * @return the length of the encoded request body of the last attempt, -1 if unknown
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    /**
+     * @return the Content-Length of the last response, -1 if unknown
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+
+    /**
+     * @return the exception thrown by the invocation, null if it succeeded
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    public void setException(Throwable exception) {
+        this.exception = exception;
+    }
+
+    @Override
+    public String toString() {
+        return "InvocationRecord{" +
+                "method=" + apiClass.getSimpleName() + "." + method.getName() +
+                ", httpMethod='" + httpMethod + '\'' +
+                ", url='" + url + '\'' +
+                ", statusCode=" + statusCode +
+                ", attempts=" + attempts +
+                ", totalNanos=" + totalNanos +
+                ", exception=" + exception +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.dadiyang.httpinvoker.metrics;
+
+import com.github.dadiyang.httpinvoker.util.ObjectUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bind the invocation metrics to a Micrometer MeterRegistry, micrometer-core is an optional dependency which should be
+ * added by the user who need it.
+ * <p>
+ * The meters are tagged by the simple name of the interface (api) and the method name (method):
+ * <ul>
+ * <li>http.api.invoker.requests: timer of the whole invocation, additionally tagged by http.method, status and exception</li>
+ * <li>http.api.invoker.prepare: timer of binding the arguments</li>
+ * <li>http.api.invoker.network: timer of sending the request and receiving the response, including retries</li>
+ * <li>http.api.invoker.process: timer of deserializing the response</li>
+ * <li>http.api.invoker.retries: counter of the retries</li>
+ * <li>http.api.invoker.request.size and http.api.invoker.response.size: summaries of the body sizes in bytes</li>
+ * <li>http.api.invoker.pool.lease: timer of waiting for a pooled connection, tagged by route only</li>
+ * </ul>
+ * Percentile histograms can be enabled by a MeterFilter of the registry, for example
+ * {@code registry.config().meterFilter(...)} which configures the meters whose name starts with http.api.invoker
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class MicrometerInvocationMetrics implements InvocationMetrics {
+    public static final String PREFIX = "http.api.invoker.";
+    private static final String NONE = "none";
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Method, Tags> methodTags = new ConcurrentHashMap<Method, Tags>();
+
+    public MicrometerInvocationMetrics(MeterRegistry registry) {
+        ObjectUtils.requireNonNull(registry, "registry should not be null");
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordInvocation(InvocationRecord record) {
+        Tags tags = getTags(record);
+        String status = record.getStatusCode() < 0 ? NONE : String.valueOf(record.getStatusCode());
+        String exception = record.getException() == null ? NONE : record.getException().getClass().getSimpleName();
+        String httpMethod = record.getHttpMethod() == null ? NONE : record.getHttpMethod();
+        registry.timer(PREFIX + "requests", tags.and("http.method", httpMethod, "status", status, "exception", exception))
+                .record(record.getTotalNanos(), TimeUnit.NANOSECONDS);
+        registry.timer(PREFIX + "prepare", tags).record(record.getPrepareNanos(), TimeUnit.NANOSECONDS);
+        if (record.getAttempts() > 0) {
+            registry.timer(PREFIX + "network", tags).record(record.getNetworkNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (record.getStatusCode() >= 0) {
+            registry.timer(PREFIX + "process", tags).record(record.getProcessNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (record.getRetries() > 0) {
+            registry.counter(PREFIX + "retries", tags).increment(record.getRetries());
+        }
+        if (record.getRequestBytes() >= 0) {
+            registry.summary(PREFIX + "request.size", tags).record(record.getRequestBytes());
+        }
+        if (record.getResponseBytes() >= 0) {
+            registry.summary(PREFIX + "response.size", tags).record(record.getResponseBytes());
+        }
+    }
+
+    @Override
+    public void recordPoolLease(String route, long waitNanos) {
+        registry.timer(PREFIX + "pool.lease", Tags.of("route", route)).record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Tags getTags(InvocationRecord record) {
+        Tags tags = methodTags.get(record.getMethod());
+        if (tags == null) {
+            tags = Tags.of("api", record.getApiClass().getSimpleName(), "method", record.getMethod().getName());
+            methodTags.putIfAbsent(record.getMethod(), tags);
+        }
+        return tags;
+    }
+}
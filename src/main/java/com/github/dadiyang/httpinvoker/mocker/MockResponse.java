@@ -140,7 +140,11 @@ public class MockResponse implements HttpResponse {
 
     @Override
     public String getHeader(String name) {
-        return getHeaders().get(name);
+        if (headers == null) {
+            return null;
+        }
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
     }
 
     @Override
@@ -0,0 +1,19 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+/**
+ * A requestor which is able to send request without blocking the caller thread.
+ * <p>
+ * It will be used to serve those methods whose return type is Future or CompletableFuture.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public interface AsyncRequestor extends Requestor {
+    /**
+     * send the request asynchronously, the callback will be notified once the response is received or the request failed
+     *
+     * @param request  the request info
+     * @param callback the callback to be notified, must not be null
+     */
+    void sendRequestAsync(HttpRequest request, ResponseCallback callback);
+}
@@ -1,49 +1,109 @@
 package com.github.dadiyang.httpinvoker.requestor;
 
+import com.github.dadiyang.httpinvoker.serializer.JsonSerializer;
 import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
+import com.github.dadiyang.httpinvoker.serializer.StreamingJsonSerializer;
+import com.github.dadiyang.httpinvoker.util.IoUtils;
 import com.github.dadiyang.httpinvoker.util.ObjectUtils;
+import com.github.dadiyang.httpinvoker.util.ReflectionUtils;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 
 /**
  * @author huangxuyang
  * date 2019/2/21
  */
-public class DefaultResponseProcessor implements ResponseProcessor {
+public class DefaultResponseProcessor implements TypedResponseProcessor {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     @Override
     public Object process(HttpResponse response, Method method) {
+        // get generic return type
+        Type type = method.getGenericReturnType();
+        type = type == null ? method.getReturnType() : type;
+        return process(response, method, type);
+    }
+
+    @Override
+    public Object process(HttpResponse response, Method method, Type type) {
+        Class<?> returnType = ReflectionUtils.getRawClass(type);
         // not need a return value
-        if (ObjectUtils.equals(method.getReturnType(), Void.class)
-                || ObjectUtils.equals(method.getReturnType(), void.class)) {
+        if (ObjectUtils.equals(returnType, Void.class)
+                || ObjectUtils.equals(returnType, void.class)) {
             return null;
         }
-        String body = response.getBody();
-        if (body == null || body.trim().isEmpty()) {
-            return null;
+        // streams are handed over before the body is read, so that they will not be buffered
+        if (ReflectionUtils.isInputStreamType(returnType)) {
+            return response.getBodyStream();
         }
-        // return body if return type is Object
-        if (method.getReturnType() == Object.class) {
-            return response.getBody();
+        if (ReflectionUtils.isReaderType(returnType)) {
+            return new BufferedReader(new InputStreamReader(response.getBodyStream(), getCharset(response)));
         }
-        if (method.getReturnType() == String.class
-                || method.getReturnType() == CharSequence.class) {
-            return body;
+        if (returnType != Object.class && returnType.isAssignableFrom(response.getClass())) {
+            return response;
         }
-        if (method.getReturnType() == byte[].class) {
-            return response.getBodyAsBytes();
+        if (returnType == byte[].class) {
+            byte[] bytes = response.getBodyAsBytes();
+            return bytes == null || bytes.length == 0 ? null : bytes;
         }
-        if (method.getReturnType().isAssignableFrom(BufferedInputStream.class)) {
-            return response.getBodyStream();
+        // return body if return type is Object
+        if (returnType == Object.class
+                || returnType == String.class
+                || returnType == CharSequence.class) {
+            String body = response.getBody();
+            return body == null || body.trim().isEmpty() ? null : body;
         }
-        if (method.getReturnType().isAssignableFrom(response.getClass())) {
-            return response;
+        return parseJson(response, type);
+    }
+
+    /**
+     * parse the body as json, directly from the body stream if the serializer supports it,
+     * so that the body will not be decoded into an intermediate String
+     *
+     * @return null if the body is blank
+     */
+    static Object parseJson(HttpResponse response, Type type) {
+        JsonSerializer serializer = JsonSerializerDecider.getJsonSerializer();
+        InputStream in = serializer instanceof StreamingJsonSerializer ? response.getBodyStream() : null;
+        if (in == null) {
+            String body = response.getBody();
+            return body == null || body.trim().isEmpty() ? null : serializer.parseObject(body, type);
+        }
+        try {
+            PushbackInputStream pin = new PushbackInputStream(in);
+            // skip the leading whitespaces to find out whether the body is blank
+            int b = pin.read();
+            while (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                b = pin.read();
+            }
+            if (b < 0) {
+                return null;
+            }
+            pin.unread(b);
+            return ((StreamingJsonSerializer) serializer).parseObject(pin, getCharset(response), type);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read json from response!", e);
+        } finally {
+            IoUtils.closeStream(in);
+        }
+    }
+
+    /**
+     * @return the charset of the response, or UTF-8 if it's absent or unsupported
+     */
+    static Charset getCharset(HttpResponse response) {
+        String charset = response.getCharset();
+        try {
+            return charset == null || charset.trim().isEmpty() ? UTF_8 : Charset.forName(charset.trim());
+        } catch (IllegalArgumentException e) {
+            return UTF_8;
         }
-        // get generic return type
-        Type type = method.getGenericReturnType();
-        type = type == null ? method.getReturnType() : type;
-        return JsonSerializerDecider.getJsonSerializer().parseObject(response.getBody(), type);
     }
 }
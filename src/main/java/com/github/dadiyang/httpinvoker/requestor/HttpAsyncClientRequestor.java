@@ -0,0 +1,184 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.util.ObjectUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.dadiyang.httpinvoker.util.ParamUtils.isUploadRequest;
+
+/**
+ * an asynchronous http requestor base on HttpAsyncClient, the request will not block any thread while waiting for response
+ * <p>
+ * The blocking requests are sent by the pooled HttpClient inherited from {@link HttpClientRequestor}, so that the
+ * streaming responses are supported. Both of the clients are created from the same {@link HttpClientConfig},
+ * and they should be released by {@link #close()}, which also stops the I/O reactor thread of the async client.
+ * <p>
+ * note that multipart bodies will be buffered in memory before sending asynchronously
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class HttpAsyncClientRequestor extends HttpClientRequestor implements AsyncRequestor, Closeable {
+    private CloseableHttpAsyncClient httpAsyncClient;
+
+    /**
+     * 使用默认的配置创建 httpAsyncClient 及 httpClient
+     */
+    public HttpAsyncClientRequestor() {
+        this(new HttpClientConfig.Builder().build());
+    }
+
+    /**
+     * 根据配置创建带连接池的 httpAsyncClient 及 httpClient
+     */
+    public HttpAsyncClientRequestor(HttpClientConfig config) {
+        this(config, createHttpAsyncClient(config));
+    }
+
+    /**
+     * 自定义配置 httpAsyncClient，未启动的 client 将被启动，阻塞的请求使用默认配置的 httpClient 发送
+     */
+    public HttpAsyncClientRequestor(CloseableHttpAsyncClient httpAsyncClient) {
+        this(new HttpClientConfig.Builder().build(), httpAsyncClient);
+    }
+
+    private HttpAsyncClientRequestor(HttpClientConfig config, CloseableHttpAsyncClient httpAsyncClient) {
+        super(config);
+        ObjectUtils.requireNonNull(httpAsyncClient, "httpAsyncClient should not be null");
+        this.httpAsyncClient = httpAsyncClient;
+        if (!httpAsyncClient.isRunning()) {
+            httpAsyncClient.start();
+        }
+    }
+
+    /**
+     * create a pooling httpAsyncClient according to the config, the options of validation and eviction
+     * are not supported by the non-blocking pool, the timeouts are applied to each request
+     *
+     * @param config the pool and keep-alive config
+     * @return the httpAsyncClient, which is not started yet
+     * @throws IllegalStateException thrown when the I/O reactor cannot be created
+     */
+    public static CloseableHttpAsyncClient createHttpAsyncClient(HttpClientConfig config) {
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(), null,
+                    RegistryBuilder.<SchemeIOSessionStrategy>create()
+                            .register("http", NoopIOSessionStrategy.INSTANCE)
+                            .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                            .build(),
+                    DefaultSchemePortResolver.INSTANCE, SystemDefaultDnsResolver.INSTANCE,
+                    config.getTimeToLive(), TimeUnit.MILLISECONDS);
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("cannot create the I/O reactor of httpAsyncClient", e);
+        }
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        for (Map.Entry<String, Integer> entry : config.getRouteMaxPerRoute().entrySet()) {
+            connectionManager.setMaxPerRoute(toRoute(entry.getKey()), entry.getValue());
+        }
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(createKeepAliveStrategy(config.getKeepAlive()))
+                .build();
+    }
+
+    @Override
+    public void sendRequestAsync(HttpRequest request, final ResponseCallback callback) {
+        HttpRequestBase httpRequestBase;
+        try {
+            httpRequestBase = createAsyncRequest(request);
+        } catch (Exception e) {
+            callback.failed(e);
+            return;
+        }
+        httpAsyncClient.execute(httpRequestBase, new FutureCallback<org.apache.http.HttpResponse>() {
+            @Override
+            public void completed(org.apache.http.HttpResponse result) {
+                HttpResponse response;
+                try {
+                    response = toResponse(result);
+                } catch (IOException e) {
+                    callback.failed(e);
+                    return;
+                }
+                callback.completed(response);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                callback.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                callback.failed(new CancellationException("request cancelled"));
+            }
+        });
+    }
+
+    private HttpRequestBase createAsyncRequest(HttpRequest request) throws IOException {
+        HttpRequestBase httpRequestBase = createHttpRequest(request);
+        // a multipart entity with streams cannot be produced by non-blocking I/O, so buffer it first
+        if (httpRequestBase instanceof HttpEntityEnclosingRequestBase && isUploadRequest(request.getBody())) {
+            HttpEntityEnclosingRequestBase entityRequest = (HttpEntityEnclosingRequestBase) httpRequestBase;
+            HttpEntity entity = entityRequest.getEntity();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            ByteArrayEntity buffered = new ByteArrayEntity(out.toByteArray());
+            buffered.setContentType(entity.getContentType());
+            entityRequest.setEntity(buffered);
+        }
+        return httpRequestBase;
+    }
+
+    /**
+     * the entity consumed by the async client can only be read once, so make it repeatable as HttpClientRequestor does
+     */
+    private HttpResponse toResponse(org.apache.http.HttpResponse response) throws IOException {
+        if (response.getEntity() != null) {
+            response.setEntity(new BufferedHttpEntity(response.getEntity()));
+        }
+        return new HttpClientResponse(response);
+    }
+
+    public CloseableHttpAsyncClient getHttpAsyncClient() {
+        return httpAsyncClient;
+    }
+
+    /**
+     * close both of the clients, the I/O reactor thread of the async one stops after it
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            httpAsyncClient.close();
+        } finally {
+            if (getHttpClient() != null) {
+                getHttpClient().close();
+            }
+        }
+    }
+}
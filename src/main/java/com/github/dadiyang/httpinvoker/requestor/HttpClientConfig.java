@@ -0,0 +1,305 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertyResolver;
+import com.github.dadiyang.httpinvoker.util.ObjectUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * connection pool, timeout and keep-alive configuration of {@link HttpClientRequestor}
+ * <p>
+ * The timeouts less than or equal to 0 fall back to the timeout of the request, which is specified by @HttpReq,
+ * so that no connection will be pinned forever by a hung upstream.
+ * <p>
+ * It can be created by the {@link Builder} or bound from a {@link PropertyResolver} by {@link #from(PropertyResolver)}
+ * with the following keys, all of them are optional:
+ * <pre>
+ * httpclient.max-total=32
+ * httpclient.max-per-route=16
+ * # max connections of specific routes, separated by comma
+ * httpclient.route-max-per-route=api.example.com:443=64,localhost:8080=8
+ * httpclient.connect-timeout=1000
+ * httpclient.socket-timeout=5000
+ * httpclient.connection-request-timeout=500
+ * httpclient.keep-alive=30000
+ * httpclient.idle-timeout=60000
+ * httpclient.time-to-live=-1
+ * httpclient.validate-after-inactivity=2000
+ * </pre>
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class HttpClientConfig {
+    public static final String DEFAULT_PREFIX = "httpclient.";
+    private static final int DEFAULT_MAX_TOTAL = 32;
+    private static final int DEFAULT_MAX_PER_ROUTE = 16;
+    private static final long DEFAULT_IDLE_TIMEOUT = 60000L;
+    private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+    private int maxTotal = DEFAULT_MAX_TOTAL;
+    private int maxPerRoute = DEFAULT_MAX_PER_ROUTE;
+    private Map<String, Integer> routeMaxPerRoute = Collections.emptyMap();
+    private int connectTimeout = -1;
+    private int socketTimeout = -1;
+    private int connectionRequestTimeout = -1;
+    private long keepAlive = -1;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long timeToLive = -1;
+    private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+
+    /**
+     * the builder of HttpClientConfig
+     */
+    public static class Builder {
+        private final HttpClientConfig config = new HttpClientConfig();
+        private final Map<String, Integer> routeMaxPerRoute = new LinkedHashMap<String, Integer>();
+
+        /**
+         * max connections of the whole pool
+         */
+        public Builder setMaxTotal(int maxTotal) {
+            config.maxTotal = maxTotal;
+            return this;
+        }
+
+        /**
+         * default max connections of each route
+         */
+        public Builder setMaxPerRoute(int maxPerRoute) {
+            config.maxPerRoute = maxPerRoute;
+            return this;
+        }
+
+        /**
+         * max connections of a specific route
+         *
+         * @param route host:port, such as api.example.com:443
+         * @param max   max connections of the route
+         */
+        public Builder setMaxPerRoute(String route, int max) {
+            ObjectUtils.requireNonNull(route, "route should not be null");
+            routeMaxPerRoute.put(route, max);
+            return this;
+        }
+
+        /**
+         * timeout in milliseconds for establishing a connection
+         */
+        public Builder setConnectTimeout(int connectTimeout) {
+            config.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * timeout in milliseconds for waiting data, i.e. max inactivity between two consecutive data packets
+         */
+        public Builder setSocketTimeout(int socketTimeout) {
+            config.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        /**
+         * timeout in milliseconds for leasing a connection from the pool
+         */
+        public Builder setConnectionRequestTimeout(int connectionRequestTimeout) {
+            config.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        /**
+         * how long in milliseconds an idle connection may be kept alive at most,
+         * the Keep-Alive header of the response is respected if it's shorter.
+         * Less than or equal to 0 means only the Keep-Alive header decides.
+         */
+        public Builder setKeepAlive(long keepAlive) {
+            config.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * connections idle longer than it will be closed by a background thread, together with expired connections.
+         * Less than or equal to 0 disables the eviction thread.
+         */
+        public Builder setIdleTimeout(long idleTimeout) {
+            config.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * max life time in milliseconds of a connection, less than or equal to 0 means infinite
+         */
+        public Builder setTimeToLive(long timeToLive) {
+            config.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * connections idle longer than it will be validated before being leased, less than or equal to 0 disables it
+         */
+        public Builder setValidateAfterInactivity(int validateAfterInactivity) {
+            config.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        /**
+         * @return a new config every time, which is not affected by the later changes of the builder
+         */
+        public HttpClientConfig build() {
+            HttpClientConfig built = config.copy();
+            built.routeMaxPerRoute = Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(routeMaxPerRoute));
+            return built;
+        }
+    }
+
+    /**
+     * bind the config from the properties with the default prefix "httpclient."
+     *
+     * @see #from(PropertyResolver, String)
+     */
+    public static HttpClientConfig from(PropertyResolver propertyResolver) {
+        return from(propertyResolver, DEFAULT_PREFIX);
+    }
+
+    /**
+     * bind the config from the properties, the absent ones use the default values
+     *
+     * @param propertyResolver the property resolver, such as the one used by HttpApiProxyFactory
+     * @param prefix           prefix of the keys
+     * @throws IllegalArgumentException thrown when a value is not a number or a route is malformed
+     */
+    public static HttpClientConfig from(PropertyResolver propertyResolver, String prefix) {
+        ObjectUtils.requireNonNull(propertyResolver, "propertyResolver should not be null");
+        Builder builder = new Builder();
+        HttpClientConfig defaults = builder.config;
+        builder.setMaxTotal(getInt(propertyResolver, prefix + "max-total", defaults.maxTotal))
+                .setMaxPerRoute(getInt(propertyResolver, prefix + "max-per-route", defaults.maxPerRoute))
+                .setConnectTimeout(getInt(propertyResolver, prefix + "connect-timeout", defaults.connectTimeout))
+                .setSocketTimeout(getInt(propertyResolver, prefix + "socket-timeout", defaults.socketTimeout))
+                .setConnectionRequestTimeout(getInt(propertyResolver, prefix + "connection-request-timeout", defaults.connectionRequestTimeout))
+                .setKeepAlive(getLong(propertyResolver, prefix + "keep-alive", defaults.keepAlive))
+                .setIdleTimeout(getLong(propertyResolver, prefix + "idle-timeout", defaults.idleTimeout))
+                .setTimeToLive(getLong(propertyResolver, prefix + "time-to-live", defaults.timeToLive))
+                .setValidateAfterInactivity(getInt(propertyResolver, prefix + "validate-after-inactivity", defaults.validateAfterInactivity));
+        String routes = getString(propertyResolver, prefix + "route-max-per-route");
+        if (routes != null) {
+            for (String route : routes.split(",")) {
+                route = route.trim();
+                int i = route.lastIndexOf('=');
+                if (i <= 0) {
+                    throw new IllegalArgumentException("route max per route should be like host:port=max, but got: " + route);
+                }
+                builder.setMaxPerRoute(route.substring(0, i).trim(), parseInt(route.substring(i + 1).trim(), route));
+            }
+        }
+        return builder.build();
+    }
+
+    private static String getString(PropertyResolver propertyResolver, String key) {
+        if (!propertyResolver.containsProperty(key)) {
+            return null;
+        }
+        String value = propertyResolver.getProperty(key);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static int getInt(PropertyResolver propertyResolver, String key, int defaultValue) {
+        String value = getString(propertyResolver, key);
+        return value == null ? defaultValue : parseInt(value, key);
+    }
+
+    private static long getLong(PropertyResolver propertyResolver, String key, long defaultValue) {
+        String value = getString(propertyResolver, key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the value of " + key + " should be a number, but got: " + value, e);
+        }
+    }
+
+    private static int parseInt(String value, String key) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the value of " + key + " should be a number, but got: " + value, e);
+        }
+    }
+
+    private HttpClientConfig copy() {
+        HttpClientConfig copy = new HttpClientConfig();
+        copy.maxTotal = maxTotal;
+        copy.maxPerRoute = maxPerRoute;
+        copy.routeMaxPerRoute = routeMaxPerRoute;
+        copy.connectTimeout = connectTimeout;
+        copy.socketTimeout = socketTimeout;
+        copy.connectionRequestTimeout = connectionRequestTimeout;
+        copy.keepAlive = keepAlive;
+        copy.idleTimeout = idleTimeout;
+        copy.timeToLive = timeToLive;
+        copy.validateAfterInactivity = validateAfterInactivity;
+        return copy;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * @return max connections of specific routes, keyed by host:port
+     */
+    public Map<String, Integer> getRouteMaxPerRoute() {
+        return routeMaxPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpClientConfig{" +
+                "maxTotal=" + maxTotal +
+                ", maxPerRoute=" + maxPerRoute +
+                ", routeMaxPerRoute=" + routeMaxPerRoute +
+                ", connectTimeout=" + connectTimeout +
+                ", socketTimeout=" + socketTimeout +
+                ", connectionRequestTimeout=" + connectionRequestTimeout +
+                ", keepAlive=" + keepAlive +
+                ", idleTimeout=" + idleTimeout +
+                ", timeToLive=" + timeToLive +
+                ", validateAfterInactivity=" + validateAfterInactivity +
+                '}';
+    }
+}
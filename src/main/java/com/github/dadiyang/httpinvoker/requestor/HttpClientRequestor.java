@@ -1,30 +1,49 @@
 package com.github.dadiyang.httpinvoker.requestor;
 
+import com.github.dadiyang.httpinvoker.metrics.InvocationMetrics;
 import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
 import com.github.dadiyang.httpinvoker.util.ObjectUtils;
 import com.github.dadiyang.httpinvoker.util.ParamUtils;
 import com.github.dadiyang.httpinvoker.util.StringUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpMessage;
+import org.apache.http.NoHttpResponseException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.*;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.dadiyang.httpinvoker.enumeration.ReqMethod.*;
 import static com.github.dadiyang.httpinvoker.util.ParamUtils.*;
@@ -36,16 +55,40 @@ import static com.github.dadiyang.httpinvoker.util.ParamUtils.*;
  * @since 2019-06-13
  */
 public class HttpClientRequestor implements Requestor {
+    private static final Logger log = LoggerFactory.getLogger(HttpClientRequestor.class);
     private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
     private static final String APPLICATION_JSON = "application/json";
     private static final String CONTENT_TYPE = "Content-Type";
+    private static final String HTTPS = "https";
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    private static final String CONNECTION_REUSED = "http-invoker.connection-reused";
     private CloseableHttpClient httpClient;
+    private HttpClientConfig config;
 
     /**
      * 使用默认的 httpClient 实现和配置
      */
     public HttpClientRequestor() {
-        httpClient = createHttpClient();
+        this(new HttpClientConfig.Builder().build());
+    }
+
+    /**
+     * 根据配置创建带连接池的 httpClient
+     */
+    public HttpClientRequestor(HttpClientConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * 根据配置创建带连接池的 httpClient，并将从连接池获取连接的等待时间记录到 metrics 中
+     *
+     * @since 1.2.5
+     */
+    public HttpClientRequestor(HttpClientConfig config, InvocationMetrics metrics) {
+        ObjectUtils.requireNonNull(config, "config should not be null");
+        this.config = config;
+        this.httpClient = createHttpClient(config, metrics);
     }
 
     /**
@@ -53,80 +96,136 @@ public class HttpClientRequestor implements Requestor {
      */
     public HttpClientRequestor(CloseableHttpClient httpClient) {
         this.httpClient = httpClient;
+        this.config = new HttpClientConfig.Builder().build();
     }
 
-    private CloseableHttpClient createHttpClient() {
-        PoolingHttpClientConnectionManager poolingHttpClientConnectionManager = new PoolingHttpClientConnectionManager();
-        poolingHttpClientConnectionManager.setMaxTotal(32);
-        poolingHttpClientConnectionManager.setDefaultMaxPerRoute(16);
-        return HttpClients.custom()
-                .setConnectionManager(poolingHttpClientConnectionManager)
-                .build();
+    /**
+     * create a pooling httpClient according to the config
+     *
+     * @param config the pool, keep-alive and eviction config
+     * @return the httpClient
+     */
+    public static CloseableHttpClient createHttpClient(HttpClientConfig config) {
+        return createHttpClient(config, null);
+    }
+
+    /**
+     * create a pooling httpClient according to the config
+     *
+     * @param config  the pool, keep-alive and eviction config
+     * @param metrics the metrics to record the time waiting for a pooled connection, nullable
+     * @return the httpClient
+     * @since 1.2.5
+     */
+    public static CloseableHttpClient createHttpClient(HttpClientConfig config, InvocationMetrics metrics) {
+        PoolingHttpClientConnectionManager connectionManager = metrics == null
+                ? new PoolingHttpClientConnectionManager(config.getTimeToLive(), TimeUnit.MILLISECONDS)
+                : new MeteredConnectionManager(config.getTimeToLive(), metrics);
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        for (Map.Entry<String, Integer> entry : config.getRouteMaxPerRoute().entrySet()) {
+            connectionManager.setMaxPerRoute(toRoute(entry.getKey()), entry.getValue());
+        }
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(createKeepAliveStrategy(config.getKeepAlive()))
+                .setRequestExecutor(new ReuseTrackingRequestExecutor())
+                .setRetryHandler(new StaleConnectionRetryHandler(config.getMaxTotal()));
+        if (config.getIdleTimeout() > 0) {
+            // start a background thread to close expired and idle connections
+            builder.evictExpiredConnections()
+                    .evictIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param route [scheme://]host[:port]
+     */
+    static HttpRoute toRoute(String route) {
+        String scheme = null;
+        String hostAndPort = route;
+        int i = route.indexOf("://");
+        if (i > 0) {
+            scheme = route.substring(0, i);
+            hostAndPort = route.substring(i + 3);
+        }
+        String host = hostAndPort;
+        int port = -1;
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon > 0) {
+            host = hostAndPort.substring(0, colon);
+            port = Integer.parseInt(hostAndPort.substring(colon + 1));
+        }
+        if (scheme == null) {
+            scheme = port == HTTPS_PORT ? HTTPS : "http";
+        }
+        boolean secure = HTTPS.equalsIgnoreCase(scheme);
+        if (port < 0) {
+            port = secure ? HTTPS_PORT : HTTP_PORT;
+        }
+        return new HttpRoute(new HttpHost(host, port, scheme), null, secure);
+    }
+
+    static ConnectionKeepAliveStrategy createKeepAliveStrategy(final long maxKeepAlive) {
+        if (maxKeepAlive <= 0) {
+            return DefaultConnectionKeepAliveStrategy.INSTANCE;
+        }
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(org.apache.http.HttpResponse response, HttpContext context) {
+                long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                // the server doesn't specify it or specifies a longer one
+                return keepAlive <= 0 || keepAlive > maxKeepAlive ? maxKeepAlive : keepAlive;
+            }
+        };
     }
 
     @Override
     public HttpResponse sendRequest(HttpRequest request) throws IOException {
+        return sendRequest(createHttpRequest(request), request.isStreaming());
+    }
+
+    /**
+     * convert the request to a prepared HttpClient request with headers, cookies and config set
+     *
+     * @param request the request info
+     * @return the HttpClient request
+     * @throws IllegalArgumentException thrown when the request method is not supported
+     */
+    protected HttpRequestBase createHttpRequest(HttpRequest request) throws IOException {
         String method = StringUtils.upperCase(request.getMethod());
+        HttpRequestBase httpRequestBase;
         if (ObjectUtils.equals(method, GET)) {
-            return sendGet(request);
+            httpRequestBase = new HttpGet(request.getUrl() + toQueryString(request.getData()));
         } else if (ObjectUtils.equals(method, POST)) {
-            return sendPost(request);
+            httpRequestBase = createPost(request);
         } else if (ObjectUtils.equals(method, PUT)) {
-            return sendPut(request);
+            HttpPut httpPut = new HttpPut(request.getUrl());
+            httpPut.setEntity(createHttpEntity(request));
+            httpRequestBase = httpPut;
         } else if (ObjectUtils.equals(method, DELETE)) {
-            return sendDelete(request);
+            httpRequestBase = new HttpDelete(request.getUrl() + toQueryString(request.getData()));
         } else if (ObjectUtils.equals(method, PATCH)) {
-            return sendPatch(request);
+            HttpPatch httpPatch = new HttpPatch(request.getUrl());
+            httpPatch.setEntity(createHttpEntity(request));
+            httpRequestBase = httpPatch;
         } else if (ObjectUtils.equals(method, HEAD)) {
-            return sendHead(request);
+            httpRequestBase = new HttpHead(request.getUrl() + toQueryString(request.getData()));
         } else if (ObjectUtils.equals(method, OPTIONS)) {
-            return sendOptions(request);
+            httpRequestBase = new HttpOptions(request.getUrl() + toQueryString(request.getData()));
         } else if (ObjectUtils.equals(method, TRACE)) {
-            return sendTrace(request);
+            httpRequestBase = new HttpTrace(request.getUrl() + toQueryString(request.getData()));
         } else {
             throw new IllegalArgumentException("Unsupported http method: " + method);
         }
+        prepare(request, httpRequestBase);
+        return httpRequestBase;
     }
 
-    private HttpResponse sendTrace(HttpRequest request) throws IOException {
-        String fullUrl = request.getUrl() + toQueryString(request.getData());
-        HttpTrace httpTrace = new HttpTrace(fullUrl);
-        return sendRequest(request, httpTrace);
-    }
-
-    private HttpResponse sendOptions(HttpRequest request) throws IOException {
-        String fullUrl = request.getUrl() + toQueryString(request.getData());
-        HttpOptions httpOptions = new HttpOptions(fullUrl);
-        return sendRequest(request, httpOptions);
-    }
-
-    private HttpResponse sendHead(HttpRequest request) throws IOException {
-        String fullUrl = request.getUrl() + toQueryString(request.getData());
-        HttpHead httpHead = new HttpHead(fullUrl);
-        return sendRequest(request, httpHead);
-    }
-
-    private HttpResponse sendPatch(HttpRequest request) throws IOException {
-        HttpEntity entity = createHttpEntity(request);
-        HttpPatch httpPatch = new HttpPatch(request.getUrl());
-        httpPatch.setEntity(entity);
-        return sendRequest(request, httpPatch);
-    }
-
-    private HttpResponse sendDelete(HttpRequest request) throws IOException {
-        String fullUrl = request.getUrl() + toQueryString(request.getData());
-        HttpDelete httpDelete = new HttpDelete(fullUrl);
-        return sendRequest(request, httpDelete);
-    }
-
-    private HttpResponse sendPut(HttpRequest request) throws IOException {
-        HttpEntity entity = createHttpEntity(request);
-        HttpPut httpPut = new HttpPut(request.getUrl());
-        httpPut.setEntity(entity);
-        return sendRequest(request, httpPut);
-    }
-
-    private HttpResponse sendPost(HttpRequest request) throws IOException {
+    private HttpRequestBase createPost(HttpRequest request) throws IOException {
+        HttpPost httpPost = new HttpPost(request.getUrl());
         // handle MultiPart
         if (isUploadRequest(request.getBody())) {
             MultiPart multiPart;
@@ -140,20 +239,21 @@ public class HttpClientRequestor implements Requestor {
             for (MultiPart.Part part : multiPart.getParts()) {
                 if (part.getInputStream() != null) {
                     builder.addBinaryBody(part.getKey(), part.getInputStream(), ContentType.DEFAULT_BINARY, part.getValue());
+                } else if (part.getFile() != null) {
+                    // FileBody streams the file from disk and can be repeated when retrying
+                    builder.addBinaryBody(part.getKey(), part.getFile(), ContentType.DEFAULT_BINARY, part.getValue());
                 } else {
                     ContentType contentType = ContentType.create("text/plain", "UTF-8");
                     builder.addTextBody(part.getKey(), part.getValue(), contentType);
                 }
             }
             HttpEntity entity = builder.build();
-            HttpPost httpPost = new HttpPost(request.getUrl());
+            request.setContentLength(entity.getContentLength());
             httpPost.setEntity(entity);
-            return sendMultiPartRequest(request, httpPost);
+        } else {
+            httpPost.setEntity(createHttpEntity(request));
         }
-        HttpEntity entity = createHttpEntity(request);
-        HttpPost httpPost = new HttpPost(request.getUrl());
-        httpPost.setEntity(entity);
-        return sendRequest(request, httpPost);
+        return httpPost;
     }
 
     private HttpEntity createHttpEntity(HttpRequest request) throws IOException {
@@ -180,50 +280,49 @@ public class HttpClientRequestor implements Requestor {
                 entity = basicHttpEntity;
             }
         }
+        request.setContentLength(entity.getContentLength());
         return entity;
     }
 
-    private HttpResponse sendGet(HttpRequest request) throws IOException {
-        String fullUrl = request.getUrl() + toQueryString(request.getData());
-        HttpGet httpGet = new HttpGet(fullUrl);
-        return sendRequest(request, httpGet);
-    }
-
-    private HttpResponse sendRequest(HttpRequest request, HttpRequestBase httpRequestBase) throws IOException {
-        prepare(request, httpRequestBase);
+    private HttpResponse sendRequest(HttpRequestBase httpRequestBase, boolean streaming) throws IOException {
         CloseableHttpResponse response = httpClient.execute(httpRequestBase);
-        if (response.getEntity() != null) {
-            response.setEntity(new BufferedHttpEntity(response.getEntity()));
-            EntityUtils.consume(response.getEntity());
+        if (streaming) {
+            // the connection will be released when the body stream or the response is closed
+            return new HttpClientResponse(response);
         }
-        return new HttpClientResponse(response);
-    }
-
-    private HttpResponse sendMultiPartRequest(HttpRequest request, HttpRequestBase httpRequestBase) throws IOException {
-        prepare(request, httpRequestBase);
-        CloseableHttpClient httpClient = null;
         try {
-            httpClient = createHttpClient();
-            CloseableHttpResponse response = httpClient.execute(httpRequestBase);
-            response.setEntity(new BufferedHttpEntity(response.getEntity()));
-            EntityUtils.consume(response.getEntity());
-            return new HttpClientResponse(response);
-        } finally {
-            if (httpClient != null) {
-                httpClient.close();
+            if (response.getEntity() != null) {
+                response.setEntity(new BufferedHttpEntity(response.getEntity()));
+                EntityUtils.consume(response.getEntity());
             }
+        } finally {
+            // release the connection back to the pool
+            response.close();
         }
+        return new HttpClientResponse(response);
     }
 
+    @SuppressWarnings("deprecation")
     private void prepare(HttpRequest request, HttpRequestBase httpRequestBase) {
         addHeaders(request, httpRequestBase);
         addCookies(request, httpRequestBase);
+        HttpEntity entity = httpRequestBase instanceof HttpEntityEnclosingRequestBase
+                ? ((HttpEntityEnclosingRequestBase) httpRequestBase).getEntity() : null;
+        // those timeouts not configured fall back to the timeout of the request
         RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectionRequestTimeout(request.getTimeout())
+                .setConnectTimeout(orDefault(config.getConnectTimeout(), request.getTimeout()))
+                .setSocketTimeout(orDefault(config.getSocketTimeout(), request.getTimeout()))
+                .setConnectionRequestTimeout(orDefault(config.getConnectionRequestTimeout(), request.getTimeout()))
+                // a request with a body is not resent once it's sent, so check the pooled connection before sending it
+                .setStaleConnectionCheckEnabled(entity != null)
                 .build();
         httpRequestBase.setConfig(requestConfig);
     }
 
+    private static int orDefault(int timeout, int defaultTimeout) {
+        return timeout > 0 ? timeout : defaultTimeout;
+    }
+
     private void addCookies(HttpRequest request, HttpMessage msg) {
         Map<String, String> cookies = request.getCookies();
         if (cookies == null || cookies.isEmpty()) {
@@ -252,4 +351,89 @@ public class HttpClientRequestor implements Requestor {
     public void setHttpClient(CloseableHttpClient httpClient) {
         this.httpClient = httpClient;
     }
+
+    public HttpClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * mark whether the request is sent over a connection which has served other requests
+     */
+    private static class ReuseTrackingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public org.apache.http.HttpResponse execute(org.apache.http.HttpRequest request, HttpClientConnection conn,
+                                                    HttpContext context) throws IOException, HttpException {
+            context.setAttribute(CONNECTION_REUSED, conn.getMetrics().getRequestCount() > 0);
+            return super.execute(request, conn, context);
+        }
+    }
+
+    /**
+     * Besides the default retries, resend a request if a reused connection gets no response at all, which happens
+     * when the server has closed the keep-alive connection while it's idle in the pool and the stale check is skipped.
+     * <p>
+     * The server may have processed the request before closing the connection, so it's only resent if it's
+     * idempotent or it has not been fully sent. The failed connection is discarded and the other idle ones may be
+     * stale as well, so it's resent up to the size of the pool rather than the default 3 times.
+     */
+    private static class StaleConnectionRetryHandler extends DefaultHttpRequestRetryHandler {
+        private final int maxResends;
+
+        StaleConnectionRetryHandler(int maxResends) {
+            this.maxResends = maxResends;
+        }
+
+        @Override
+        public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+            if (exception instanceof NoHttpResponseException
+                    && Boolean.TRUE.equals(context.getAttribute(CONNECTION_REUSED))
+                    && executionCount <= maxResends) {
+                HttpClientContext clientContext = HttpClientContext.adapt(context);
+                return handleAsIdempotent(clientContext.getRequest()) || !clientContext.isRequestSent();
+            }
+            return super.retryRequest(exception, executionCount, context);
+        }
+    }
+
+    /**
+     * a connection manager which times the leases of the pooled connections
+     */
+    private static class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+        private final InvocationMetrics metrics;
+
+        MeteredConnectionManager(long timeToLive, InvocationMetrics metrics) {
+            super(timeToLive, TimeUnit.MILLISECONDS);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(final HttpRoute route, Object state) {
+            final ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        return request.get(timeout, timeUnit);
+                    } finally {
+                        recordLease(route, System.nanoTime() - start);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        private void recordLease(HttpRoute route, long waitNanos) {
+            try {
+                metrics.recordPoolLease(route.getTargetHost().toHostString(), waitNanos);
+            } catch (RuntimeException e) {
+                log.warn("failed to record the pool lease", e);
+            }
+        }
+    }
 }
@@ -2,9 +2,10 @@ package com.github.dadiyang.httpinvoker.requestor;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -13,11 +14,11 @@ import java.util.*;
  * @author huangxuyang
  * @since 2019-06-13
  */
-public class HttpClientResponse implements HttpResponse {
+public class HttpClientResponse implements HttpResponse, Closeable {
     public static final String SET_COOKIE = "set-cookie";
-    private final CloseableHttpResponse response;
+    private final org.apache.http.HttpResponse response;
 
-    public HttpClientResponse(CloseableHttpResponse response) {
+    public HttpClientResponse(org.apache.http.HttpResponse response) {
         this.response = response;
     }
 
@@ -33,12 +34,14 @@ public class HttpClientResponse implements HttpResponse {
 
     @Override
     public String getCharset() {
-        return response.getEntity().getContentEncoding().getValue();
+        ContentType contentType = response.getEntity() == null ? null : ContentType.getLenient(response.getEntity());
+        return contentType == null || contentType.getCharset() == null ? null : contentType.getCharset().name();
     }
 
     @Override
     public String getContentType() {
-        return response.getEntity().getContentType().getValue();
+        Header contentType = response.getEntity() == null ? null : response.getEntity().getContentType();
+        return contentType == null ? null : contentType.getValue();
     }
 
     @Override
@@ -52,6 +55,9 @@ public class HttpClientResponse implements HttpResponse {
 
     @Override
     public InputStream getBodyStream() {
+        if (response.getEntity() == null) {
+            return null;
+        }
         try {
             return response.getEntity().getContent();
         } catch (IOException e) {
@@ -135,4 +141,14 @@ public class HttpClientResponse implements HttpResponse {
         }
         return values;
     }
+
+    /**
+     * release the connection if the entity has not been consumed, it's only necessary for streaming responses
+     */
+    @Override
+    public void close() throws IOException {
+        if (response instanceof Closeable) {
+            ((Closeable) response).close();
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package com.github.dadiyang.httpinvoker.requestor;
 
+import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -16,6 +18,9 @@ public class HttpRequest {
     private Map<String, Object> data;
     private Object body;
     private String fileFormKey;
+    private boolean streaming;
+    private long contentLength = -1;
+    private Method proxiedMethod;
 
     public HttpRequest(String url) {
         this.url = url;
@@ -117,4 +122,59 @@ public class HttpRequest {
         this.fileFormKey = fileFormKey;
     }
 
+    /**
+     * @return whether the response body should be kept as a stream instead of being read into memory,
+     * the connection will be released after the stream is closed
+     * @since 1.2.5
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @return the length in bytes of the encoded request body, which is set by the requestors knowing it
+     * after encoding the body, -1 if unknown
+     * @since 1.2.5
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * @return the method of the proxied interface which is being invoked, null if the request is not created by a proxy
+     * @since 1.2.5
+     */
+    public Method getProxiedMethod() {
+        return proxiedMethod;
+    }
+
+    public void setProxiedMethod(Method proxiedMethod) {
+        this.proxiedMethod = proxiedMethod;
+    }
+
+    /**
+     * @return a copy of the request to be sent along with it, e.g. a hedged request. The maps are copied,
+     * while the data values and the body are shared
+     * @since 1.2.5
+     */
+    public HttpRequest copy() {
+        HttpRequest copy = new HttpRequest(url, method, timeout);
+        copy.headers = headers == null ? null : new HashMap<String, String>(headers);
+        copy.cookies = cookies == null ? null : new HashMap<String, String>(cookies);
+        copy.data = data == null ? null : new LinkedHashMap<String, Object>(data);
+        copy.body = body;
+        copy.fileFormKey = fileFormKey;
+        copy.streaming = streaming;
+        copy.proxiedMethod = proxiedMethod;
+        return copy;
+    }
+
 }
@@ -0,0 +1,55 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.util.ReflectionUtils;
+
+/**
+ * 通过反射创建基于 JDK 11+ java.net.http.HttpClient 的请求器
+ * <p>
+ * JdkHttpClientRequestor 只在 JDK 11+ 上编译，因此需要先通过 isSupported 检查当前环境是否可用
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class JdkHttpClientRequestorFactory {
+    private static final String JDK_HTTP_CLIENT_CLASS = "java.net.http.HttpClient";
+    private static final String REQUESTOR_CLASS = "com.github.dadiyang.httpinvoker.requestor.JdkHttpClientRequestor";
+
+    private JdkHttpClientRequestorFactory() {
+        throw new UnsupportedOperationException("utils should not be initialized!");
+    }
+
+    /**
+     * @return 当前运行环境是否有 java.net.http.HttpClient 且 JdkHttpClientRequestor 已被编译
+     */
+    public static boolean isSupported() {
+        return ReflectionUtils.classExists(JDK_HTTP_CLIENT_CLASS) && ReflectionUtils.classExists(REQUESTOR_CLASS);
+    }
+
+    /**
+     * 使用默认配置创建请求器，所有默认配置的请求器共享同一个 HttpClient
+     *
+     * @throws IllegalStateException 当前环境不支持时抛出
+     */
+    public static AsyncRequestor create() {
+        return newInstance(new Class<?>[0], new Object[0]);
+    }
+
+    /**
+     * @param connectTimeout 建立连接的超时时间，单位毫秒
+     * @throws IllegalStateException 当前环境不支持时抛出
+     */
+    public static AsyncRequestor create(int connectTimeout) {
+        return newInstance(new Class<?>[]{int.class}, new Object[]{connectTimeout});
+    }
+
+    private static AsyncRequestor newInstance(Class<?>[] parameterTypes, Object[] args) {
+        if (!isSupported()) {
+            throw new IllegalStateException("JdkHttpClientRequestor requires JDK 11+");
+        }
+        try {
+            return (AsyncRequestor) Class.forName(REQUESTOR_CLASS).getConstructor(parameterTypes).newInstance(args);
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to create JdkHttpClientRequestor", e);
+        }
+    }
+}
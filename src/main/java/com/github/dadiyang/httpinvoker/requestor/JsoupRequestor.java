@@ -8,8 +8,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import static com.github.dadiyang.httpinvoker.util.IoUtils.closeStream;
 import static com.github.dadiyang.httpinvoker.util.ParamUtils.*;
 import static org.jsoup.Connection.Method;
 import static org.jsoup.Connection.Response;
@@ -145,16 +149,28 @@ public class JsoupRequestor implements Requestor {
     }
 
     private Response handleMultiPart(Connection conn, MultiPart body) throws IOException {
-        for (MultiPart.Part part : body.getParts()) {
-            if (part.getKey() == null || part.getValue() == null) {
-                throw new IllegalArgumentException("both key and value of part must not be null");
+        // the streams of file parts are opened here, so they should be closed here
+        List<InputStream> opened = new ArrayList<InputStream>();
+        try {
+            for (MultiPart.Part part : body.getParts()) {
+                if (part.getKey() == null || part.getValue() == null) {
+                    throw new IllegalArgumentException("both key and value of part must not be null");
+                }
+                if (part.getInputStream() != null) {
+                    conn.data(part.getKey(), part.getValue(), part.getInputStream());
+                } else if (part.getFile() != null) {
+                    InputStream in = part.openInputStream();
+                    opened.add(in);
+                    conn.data(part.getKey(), part.getValue(), in);
+                } else {
+                    conn.data(part.getKey(), part.getValue());
+                }
             }
-            if (part.getInputStream() != null) {
-                conn.data(part.getKey(), part.getValue(), part.getInputStream());
-            } else {
-                conn.data(part.getKey(), part.getValue());
+            return conn.execute();
+        } finally {
+            for (InputStream in : opened) {
+                closeStream(in);
             }
         }
-        return conn.execute();
     }
 }
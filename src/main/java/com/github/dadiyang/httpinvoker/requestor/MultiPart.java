@@ -1,5 +1,8 @@
 package com.github.dadiyang.httpinvoker.requestor;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -57,6 +60,7 @@ public class MultiPart {
         private String key;
         private String value;
         private InputStream inputStream;
+        private File file;
 
         public Part() {
         }
@@ -72,6 +76,20 @@ public class MultiPart {
             this.inputStream = inputStream;
         }
 
+        /**
+         * a file part, the file will be streamed from disk when sending rather than being read into memory
+         *
+         * @param key   form key
+         * @param value file name
+         * @param file  the file to upload
+         * @since 1.2.5
+         */
+        public Part(String key, String value, File file) {
+            this.key = key;
+            this.value = value;
+            this.file = file;
+        }
+
         public String getKey() {
             return key;
         }
@@ -95,5 +113,29 @@ public class MultiPart {
         public void setInputStream(InputStream inputStream) {
             this.inputStream = inputStream;
         }
+
+        public File getFile() {
+            return file;
+        }
+
+        public void setFile(File file) {
+            this.file = file;
+        }
+
+        /**
+         * @return whether it's a file or stream part rather than a text part
+         * @since 1.2.5
+         */
+        public boolean isBinary() {
+            return inputStream != null || file != null;
+        }
+
+        /**
+         * @return the input stream, or a new stream of the file which should be closed by the caller
+         * @since 1.2.5
+         */
+        public InputStream openInputStream() throws IOException {
+            return inputStream != null ? inputStream : new FileInputStream(file);
+        }
     }
 }
@@ -13,7 +13,11 @@ import java.lang.reflect.Method;
 public interface RequestPreprocessor {
     /**
      * for compatible, we use a ThreadLocal to store current method
+     *
+     * @deprecated use {@link HttpRequest#getProxiedMethod()} instead, it's not set for the proxies of a factory
+     * using virtual threads
      */
+    @Deprecated
     ThreadLocal<Method> CURRENT_METHOD_THREAD_LOCAL = new ThreadLocal<Method>();
 
     /**
@@ -0,0 +1,23 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+/**
+ * callback of an asynchronous request
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public interface ResponseCallback {
+    /**
+     * the response is received
+     *
+     * @param response the response
+     */
+    void completed(HttpResponse response);
+
+    /**
+     * the request failed
+     *
+     * @param e the cause
+     */
+    void failed(Throwable e);
+}
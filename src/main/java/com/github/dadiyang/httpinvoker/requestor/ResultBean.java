@@ -0,0 +1,63 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {code: 0, msg/message: 'success', data: 'OK'} 结构的响应体，用于 ResultBeanResponseProcessor 一次性解析响应，
+ * 并将 data 直接绑定为方法的返回值类型，而不需要先解析为 Map 再将 data 序列化后重新解析
+ * <p>
+ * 使用 gson 时，首字母大写的 Code 字段通过 alternate 兼容；fastjson 默认忽略字段名的大小写
+ *
+ * @param <T> data 的类型，即方法的返回值类型
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class ResultBean<T> {
+    @SerializedName(value = "code", alternate = {"Code"})
+    private String code;
+    private String msg;
+    private String message;
+    private T data;
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getMsg() {
+        return msg;
+    }
+
+    public void setMsg(String msg) {
+        this.msg = msg;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultBean{" +
+                "code='" + code + '\'' +
+                ", msg='" + msg + '\'' +
+                ", message='" + message + '\'' +
+                ", data=" + data +
+                '}';
+    }
+}
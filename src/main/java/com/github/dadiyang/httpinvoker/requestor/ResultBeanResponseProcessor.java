@@ -7,18 +7,22 @@ import com.github.dadiyang.httpinvoker.exception.UnexpectedResultException;
 import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
 import com.github.dadiyang.httpinvoker.util.ObjectUtils;
 import com.github.dadiyang.httpinvoker.util.ParamUtils;
+import com.github.dadiyang.httpinvoker.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 注册响应处理器，用于对后台返回的结果都是类似 {code: 0, msg/message: 'success', data: 'OK'} 的结构，
@@ -29,60 +33,140 @@ import java.util.concurrent.ConcurrentHashMap;
  * @since 1.1.4
  */
 @Component
-public class ResultBeanResponseProcessor implements ResponseProcessor {
+public class ResultBeanResponseProcessor implements TypedResponseProcessor {
     private static final Logger log = LoggerFactory.getLogger(ResultBeanResponseProcessor.class);
     private static final String CODE = "code";
     private static final String DATA = "data";
     private static final String MESSAGE = "message";
     private static final String MSG = "msg";
     private Map<Class<?>, Boolean> isResultBeanCache = new ConcurrentHashMap<Class<?>, Boolean>();
+    /**
+     * 返回值类型对应的 ResultBean 类型，序列化器以类型为 key 缓存解析器，因此同一个返回值类型需要复用同一个 ResultBean 类型
+     */
+    private ConcurrentMap<Type, Type> resultBeanTypeCache = new ConcurrentHashMap<Type, Type>();
 
     @Override
     public Object process(HttpResponse response, Method method) throws UnexpectedResultException {
-        String rs = response.getBody();
+        return process(response, method, method.getGenericReturnType());
+    }
+
+    @Override
+    public Object process(HttpResponse response, Method method, Type type) throws UnexpectedResultException {
+        Class<?> returnType = ReflectionUtils.getRawClass(type);
+        // 流、字节数组及响应本身无需解包，在读取响应体之前直接返回，避免流被完整读入内存
+        if (ReflectionUtils.isInputStreamType(returnType)) {
+            return response.getBodyStream();
+        }
+        if (ReflectionUtils.isReaderType(returnType)) {
+            return new BufferedReader(new InputStreamReader(response.getBodyStream(), DefaultResponseProcessor.getCharset(response)));
+        }
+        if (returnType != Object.class && returnType.isAssignableFrom(response.getClass())) {
+            return response;
+        }
+        if (returnType == byte[].class) {
+            byte[] bytes = response.getBodyAsBytes();
+            return bytes == null || bytes.length == 0 ? null : bytes;
+        }
         // 声明接口返回值不是 ResultBean，则直接解析
         if (method.isAnnotationPresent(NotResultBean.class)
                 || method.getDeclaringClass().isAnnotationPresent(NotResultBean.class)) {
-            return parseObject(method, rs);
+            if (returnType == Void.class || returnType == void.class) {
+                return null;
+            }
+            if (returnType == Object.class || returnType == String.class || returnType == CharSequence.class) {
+                return parseObject(type, response.getBody());
+            }
+            // 直接从响应体的字节流反序列化
+            return DefaultResponseProcessor.parseJson(response, type);
         }
+        String rs = response.getBody();
         // 以下几种情况下，无需解析响应
         if (rs == null || rs.trim().isEmpty()) {
             return null;
         }
-        Class<?> returnType = method.getReturnType();
-        if (returnType == byte[].class) {
-            return response.getBodyAsBytes();
-        }
-        if (returnType != Object.class && returnType.isAssignableFrom(BufferedInputStream.class)) {
-            return response.getBodyStream();
-        }
-        if (returnType != Object.class && returnType.isAssignableFrom(response.getClass())) {
-            return response;
-        }
         ExpectedCode expectedCode = getExpectedAnnotation(method);
         // 如果返回值要求的就是一个 ResultBean，则不做处理
         if (ObjectUtils.equals(isResultBean(expectedCode, returnType), true)) {
-            return parseObject(method, rs);
+            return parseObject(type, rs);
+        }
+        // 返回值为具体类型时，只解析一次响应体，并将 data 直接绑定为返回值类型
+        if (isSinglePassSupported(expectedCode, returnType)) {
+            ResultBean<?> bean = parseResultBean(type, rs);
+            if (bean != null) {
+                if (isExpectedCode(expectedCode, bean.getCode())) {
+                    return bean.getData();
+                }
+                throw unexpectedResult(method, bean.getMessage() != null ? bean.getMessage() : bean.getMsg());
+            }
         }
         Map<String, Object> obj = JsonSerializerDecider.getJsonSerializer().toMap(rs);
         if (isResponseNotResultBean(expectedCode, obj)) {
             // 非 ResultBean 则解析整个返回结果
-            return parseObject(method, rs);
+            return parseObject(type, rs);
         }
 
         //  标准的 ResultBean 包装类处理，进行解包处理，即只取 data 的值
         if (isExpectedCode(expectedCode, obj)) {
             // code 为期望的值时说明返回结果是正确的
-            return parseObject(method, ObjectUtils.toString(obj.get(DATA)));
+            return parseObject(type, ObjectUtils.toString(obj.get(DATA)));
         } else {
-            // 否则为接口返回错误
-            HttpReq req = method.getAnnotation(HttpReq.class);
-            String uri = req != null ? req.value() : method.getName();
-            // 兼容两种错误信息的写法
+            // 否则为接口返回错误，兼容两种错误信息的写法
             String errMsg = obj.containsKey(MESSAGE) ? ObjectUtils.toString(obj.get(MESSAGE)) : ObjectUtils.toString(obj.get(MSG));
-            log.warn("请求api失败, uri: " + uri + ", 错误信息: " + errMsg);
-            throw new UnexpectedResultException(errMsg);
+            throw unexpectedResult(method, errMsg);
+        }
+    }
+
+    private UnexpectedResultException unexpectedResult(Method method, String errMsg) {
+        HttpReq req = method.getAnnotation(HttpReq.class);
+        String uri = req != null ? req.value() : method.getName();
+        log.warn("请求api失败, uri: " + uri + ", 错误信息: " + errMsg);
+        return new UnexpectedResultException(errMsg);
+    }
+
+    /**
+     * 只有默认的 code 字段名才能绑定到 {@link ResultBean}，而返回值为 Object 或字符串时沿用原来的逻辑，直接返回 data 的字符串
+     */
+    private boolean isSinglePassSupported(ExpectedCode expectedCode, Class<?> returnType) {
+        if (expectedCode != null && (!ObjectUtils.equals(CODE, expectedCode.codeFieldName()) || !expectedCode.ignoreFieldInitialCase())) {
+            return false;
+        }
+        return returnType != Object.class
+                && returnType != String.class
+                && returnType != CharSequence.class
+                && returnType != Void.class
+                && returnType != void.class;
+    }
+
+    /**
+     * 将响应体解析为 ResultBean，data 直接绑定为返回值类型
+     *
+     * @return 无法确定响应体是否为 ResultBean 时返回 null，包括解析失败（如接口返回错误时 data 与返回值类型不匹配），
+     * 没有 code 字段，以及 msg/message/data 均为空（无法区分字段不存在和值为 null），此时交由解析为 Map 的逻辑处理
+     */
+    private ResultBean<?> parseResultBean(Type type, String rs) {
+        Type beanType = resultBeanTypeCache.get(type);
+        if (beanType == null) {
+            beanType = ReflectionUtils.newParameterizedType(ResultBean.class, type);
+            Type exists = resultBeanTypeCache.putIfAbsent(type, beanType);
+            beanType = exists != null ? exists : beanType;
+        }
+        ResultBean<?> bean;
+        try {
+            bean = JsonSerializerDecider.getJsonSerializer().parseObject(rs, beanType);
+        } catch (RuntimeException e) {
+            log.debug("parse response as ResultBean failed, fall back to parse it as a map", e);
+            return null;
+        }
+        if (bean == null || bean.getCode() == null
+                || (bean.getMsg() == null && bean.getMessage() == null && bean.getData() == null)) {
+            return null;
         }
+        return bean;
+    }
+
+    private boolean isExpectedCode(ExpectedCode expectedCode, String code) {
+        int expected = expectedCode != null ? expectedCode.value() : 0;
+        return ObjectUtils.equals(expected, Integer.parseInt(code));
     }
 
     private boolean isExpectedCode(ExpectedCode expectedCode, Map<String, Object> obj) {
@@ -119,32 +203,29 @@ public class ResultBeanResponseProcessor implements ResponseProcessor {
      * 判断一个 Class 是否为 ResultBean，即是否同时包含 code/msg/data 三个字段
      */
     private Boolean isResultBean(final ExpectedCode expectedCode, final Class<?> returnType) {
-        if (isResultBeanCache.containsKey(returnType)) {
-            return isResultBeanCache.get(returnType);
+        Boolean cached = isResultBeanCache.get(returnType);
+        if (cached != null) {
+            return cached;
         }
-        synchronized (this) {
-            if (isResultBeanCache.containsKey(returnType)) {
-                return isResultBeanCache.get(returnType);
-            }
-            if (ParamUtils.isBasicType(returnType) || returnType.isInterface()) {
-                return false;
-            }
-            Field[] fields = getDeclaredFields(returnType);
-            boolean hasCode = false;
-            boolean hasMsg = false;
-            boolean hasData = false;
-            String codeField = expectedCode == null ? CODE : expectedCode.codeFieldName();
-            boolean ignoreInitialCase = expectedCode == null || expectedCode.ignoreFieldInitialCase();
-            for (Field field : fields) {
-                String fieldName = field.getName().toLowerCase();
-                hasCode = hasCode || ObjectUtils.equals(codeField, fieldName) || (ignoreInitialCase && ObjectUtils.equals(fieldName, ParamUtils.changeInitialCase(codeField)));
-                hasMsg = hasMsg || ObjectUtils.equals(MSG, fieldName) || ObjectUtils.equals(MESSAGE, fieldName);
-                hasData = hasData || ObjectUtils.equals(DATA, fieldName);
-            }
-            boolean isResultBean = hasCode && hasMsg && hasData;
-            isResultBeanCache.put(returnType, isResultBean);
-            return isResultBean;
+        // 不加锁，并发时重复计算得到的结果相同
+        if (ParamUtils.isBasicType(returnType) || returnType.isInterface()) {
+            return false;
+        }
+        Field[] fields = getDeclaredFields(returnType);
+        boolean hasCode = false;
+        boolean hasMsg = false;
+        boolean hasData = false;
+        String codeField = expectedCode == null ? CODE : expectedCode.codeFieldName();
+        boolean ignoreInitialCase = expectedCode == null || expectedCode.ignoreFieldInitialCase();
+        for (Field field : fields) {
+            String fieldName = field.getName().toLowerCase();
+            hasCode = hasCode || ObjectUtils.equals(codeField, fieldName) || (ignoreInitialCase && ObjectUtils.equals(fieldName, ParamUtils.changeInitialCase(codeField)));
+            hasMsg = hasMsg || ObjectUtils.equals(MSG, fieldName) || ObjectUtils.equals(MESSAGE, fieldName);
+            hasData = hasData || ObjectUtils.equals(DATA, fieldName);
         }
+        boolean isResultBean = hasCode && hasMsg && hasData;
+        isResultBeanCache.put(returnType, isResultBean);
+        return isResultBean;
     }
 
     /**
@@ -185,19 +266,19 @@ public class ResultBeanResponseProcessor implements ResponseProcessor {
     /**
      * 支持泛型的反序列化方法
      */
-    private Object parseObject(Method method, String dataString) {
+    private Object parseObject(Type type, String dataString) {
         if (dataString == null || dataString.trim().isEmpty()) {
             return null;
         }
         // 方法无需返回值
-        Class<?> returnType = method.getReturnType();
+        Class<?> returnType = ReflectionUtils.getRawClass(type);
         if (returnType == Void.class || returnType == void.class) {
             return null;
         } else if (returnType == Object.class
                 || returnType == String.class
-                || method.getReturnType() == CharSequence.class) {
+                || returnType == CharSequence.class) {
             return dataString;
         }
-        return JsonSerializerDecider.getJsonSerializer().parseObject(dataString, method.getGenericReturnType());
+        return JsonSerializerDecider.getJsonSerializer().parseObject(dataString, type);
     }
 }
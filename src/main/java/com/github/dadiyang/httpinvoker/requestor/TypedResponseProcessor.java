@@ -0,0 +1,27 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * A ResponseProcessor which processes the response according to a given type instead of the method's return type.
+ * <p>
+ * It is given the actual result type of every method, which differs from the return type for those methods whose
+ * return value is a wrapper of the actual result, such as Future&lt;T&gt;, a ResponseProcessor which does not
+ * implement this interface will be given the method only.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public interface TypedResponseProcessor extends ResponseProcessor {
+
+    /**
+     * processing response before method return
+     *
+     * @param response   response
+     * @param method     the proxied method
+     * @param returnType the type of the value expected, e.g. T of Future&lt;T&gt;
+     * @return the value of the given type
+     */
+    Object process(HttpResponse response, Method method, Type returnType);
+}
@@ -2,7 +2,11 @@ package com.github.dadiyang.httpinvoker.serializer;
 
 import com.alibaba.fastjson.JSON;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -14,7 +18,7 @@ import java.util.Map;
  * @author dadiyang
  * @since 2019/3/1
  */
-public class FastJsonJsonSerializer implements JsonSerializer {
+public class FastJsonJsonSerializer implements StreamingJsonSerializer {
     private static final FastJsonJsonSerializer INSTANCE = new FastJsonJsonSerializer();
 
     public static FastJsonJsonSerializer getInstance() {
@@ -34,6 +38,19 @@ public class FastJsonJsonSerializer implements JsonSerializer {
         return JSON.parseObject(json, type);
     }
 
+    @Override
+    public <T> T parseObject(InputStream in, Charset charset, Type type) throws IOException {
+        return JSON.parseObject(in, charset, type);
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws IOException {
+        if (object == null) {
+            return;
+        }
+        JSON.writeJSONString(out, object);
+    }
+
     @Override
     public List<Object> parseArray(String json) {
         return JSON.parseArray(json);
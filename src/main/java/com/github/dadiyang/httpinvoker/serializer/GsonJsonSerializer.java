@@ -8,8 +8,14 @@ import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -22,7 +28,7 @@ import java.util.Map;
  * @author dadiyang
  * @since 2019/3/1
  */
-public class GsonJsonSerializer implements JsonSerializer {
+public class GsonJsonSerializer implements StreamingJsonSerializer {
     private static final Gson GSON = new GsonBuilder()
             .registerTypeAdapter(new TypeToken<Map<String, Object>>() {
             }.getType(), NumberTypeAdapter.INSTANCE)
@@ -32,6 +38,7 @@ public class GsonJsonSerializer implements JsonSerializer {
             .registerTypeAdapter(java.util.Date.class, new DateDeserializer()).setDateFormat(DateFormat.LONG)
             .create();
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
     private static final GsonJsonSerializer INSTANCE = new GsonJsonSerializer();
 
     public static GsonJsonSerializer getInstance() {
@@ -48,6 +55,27 @@ public class GsonJsonSerializer implements JsonSerializer {
         return GSON.fromJson(json, type);
     }
 
+    @Override
+    public <T> T parseObject(InputStream in, Charset charset, Type type) throws IOException {
+        try {
+            return GSON.fromJson(new InputStreamReader(in, charset), type);
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        try {
+            GSON.toJson(object, writer);
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        // 只刷新而不关闭，输出流由调用方关闭
+        writer.flush();
+    }
+
     @Override
     public List<Object> parseArray(String json) {
         Type type = new TypeToken<List<Object>>() {
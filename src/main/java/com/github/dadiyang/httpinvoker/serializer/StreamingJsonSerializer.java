@@ -0,0 +1,38 @@
+package com.github.dadiyang.httpinvoker.serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+/**
+ * 支持直接读写字节流的序列化器
+ * <p>
+ * 响应处理器在序列化器实现了本接口时，直接从响应体的字节流反序列化，不再先把整个响应体解码为字符串；
+ * 为兼容已注册的自定义序列化器，这两个方法单独放在子接口中，而不是直接添加到 {@link JsonSerializer}
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public interface StreamingJsonSerializer extends JsonSerializer {
+    /**
+     * 从字节流中反序列化对象，流由调用方负责关闭
+     *
+     * @param in      json 字节流
+     * @param charset 字节流的编码
+     * @param type    目标类型，支持泛型
+     * @return 反序列化的结果，流中没有内容时返回 null
+     * @throws IOException 读取流失败时抛出
+     */
+    <T> T parseObject(InputStream in, Charset charset, Type type) throws IOException;
+
+    /**
+     * 将对象以 UTF-8 编码序列化到输出流中，写入的内容与 {@link #serialize(Object)} 一致，流由调用方负责关闭
+     *
+     * @param object 对象
+     * @param out    输出流
+     * @throws IOException 写入流失败时抛出
+     */
+    void serialize(Object object, OutputStream out) throws IOException;
+}
@@ -0,0 +1,280 @@
+package com.github.dadiyang.httpinvoker.util;
+
+import com.github.dadiyang.httpinvoker.serializer.FastJsonJsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.GsonJsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.JsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * convert param objects to maps directly, the result is the same as serializing the object by the built-in json
+ * serializers and then parsing it to a map, but without the json round trip.
+ * <p>
+ * The properties of each class are resolved only once and cached. Objects which cannot be converted exactly the same
+ * as the json serializers do, such as classes with json annotations or java.time types, are not supported and
+ * should be handled by the json serializer.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+class BeanFlattener {
+    private static final Object UNSUPPORTED = new Object();
+    private static final int MAX_DEPTH = 16;
+    private static final String[] JSON_ANNOTATION_PACKAGES = {"com.alibaba.fastjson.", "com.google.gson.", "com.fasterxml.jackson."};
+    private static final ConcurrentMap<Class<?>, BeanFlattener> FLATTENERS = new ConcurrentHashMap<Class<?>, BeanFlattener>();
+    private static final BeanFlattener NOT_SUPPORTED = new BeanFlattener(new String[0], new Method[0]);
+    private final String[] names;
+    private final Method[] getters;
+
+    private BeanFlattener(String[] names, Method[] getters) {
+        this.names = names;
+        this.getters = getters;
+    }
+
+    /**
+     * convert a bean or a map to a map as the json serializer does
+     *
+     * @return the map, or null if the object is not supported or a custom json serializer is in use
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> toMap(Object value) {
+        if (value == null || !isBuiltInSerializer(JsonSerializerDecider.getJsonSerializer())) {
+            return null;
+        }
+        Object rs = convert(value, 0);
+        return rs instanceof Map ? (Map<String, Object>) rs : null;
+    }
+
+    /**
+     * custom serializers may have their own naming strategies, so we only take over the built-in ones
+     */
+    private static boolean isBuiltInSerializer(JsonSerializer serializer) {
+        return serializer.getClass() == FastJsonJsonSerializer.class || serializer.getClass() == GsonJsonSerializer.class;
+    }
+
+    /**
+     * @return the value as it would be after a json round trip, or UNSUPPORTED
+     */
+    private static Object convert(Object value, int depth) {
+        if (value == null) {
+            return null;
+        }
+        if (depth > MAX_DEPTH) {
+            return UNSUPPORTED;
+        }
+        if (value instanceof String || value instanceof Boolean
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger || value instanceof BigDecimal) {
+            return value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            // decimals are parsed as BigDecimal by both serializers
+            return Double.isNaN(d) || Double.isInfinite(d) ? UNSUPPORTED : new BigDecimal(value.toString());
+        }
+        if (value instanceof Character || value instanceof Enum) {
+            return value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+        }
+        // subclasses of Date, such as java.sql.Timestamp, are serialized differently by the serializers
+        if (value.getClass() == Date.class) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<String, Object> rs = new LinkedHashMap<String, Object>(map.size() * 4 / 3 + 1);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!put(rs, String.valueOf(entry.getKey()), entry.getValue(), depth)) {
+                    return UNSUPPORTED;
+                }
+            }
+            return rs;
+        }
+        if (value instanceof Collection) {
+            List<Object> rs = new ArrayList<Object>(((Collection<?>) value).size());
+            for (Object item : (Collection<?>) value) {
+                if (!add(rs, item, depth)) {
+                    return UNSUPPORTED;
+                }
+            }
+            return rs;
+        }
+        if (value.getClass().isArray()) {
+            // byte[] and char[] are serialized as strings
+            if (value instanceof byte[] || value instanceof char[]) {
+                return UNSUPPORTED;
+            }
+            int length = Array.getLength(value);
+            List<Object> rs = new ArrayList<Object>(length);
+            for (int i = 0; i < length; i++) {
+                if (!add(rs, Array.get(value, i), depth)) {
+                    return UNSUPPORTED;
+                }
+            }
+            return rs;
+        }
+        return getFlattener(value.getClass()).flatten(value, depth);
+    }
+
+    private static boolean put(Map<String, Object> map, String key, Object value, int depth) {
+        Object converted = convert(value, depth + 1);
+        if (converted == UNSUPPORTED) {
+            return false;
+        }
+        // null values are omitted by the serializers
+        if (converted != null) {
+            map.put(key, converted);
+        }
+        return true;
+    }
+
+    private static boolean add(List<Object> list, Object item, int depth) {
+        Object converted = convert(item, depth + 1);
+        if (converted == UNSUPPORTED) {
+            return false;
+        }
+        list.add(converted);
+        return true;
+    }
+
+    private Object flatten(Object bean, int depth) {
+        if (this == NOT_SUPPORTED) {
+            return UNSUPPORTED;
+        }
+        Map<String, Object> rs = new LinkedHashMap<String, Object>(names.length * 4 / 3 + 1);
+        for (int i = 0; i < names.length; i++) {
+            Object value;
+            try {
+                value = getters[i].invoke(bean);
+            } catch (Exception e) {
+                // let the json serializer report it
+                return UNSUPPORTED;
+            }
+            if (!put(rs, names[i], value, depth)) {
+                return UNSUPPORTED;
+            }
+        }
+        return rs;
+    }
+
+    private static BeanFlattener getFlattener(Class<?> clazz) {
+        BeanFlattener flattener = FLATTENERS.get(clazz);
+        if (flattener == null) {
+            flattener = resolve(clazz);
+            BeanFlattener exists = FLATTENERS.putIfAbsent(clazz, flattener);
+            flattener = exists != null ? exists : flattener;
+        }
+        return flattener;
+    }
+
+    /**
+     * only conventional beans are supported, i.e. every non-transient field has a public getter and vice versa,
+     * so that fastjson, which uses getters, and gson, which uses fields, produce the same properties
+     */
+    private static BeanFlattener resolve(Class<?> clazz) {
+        String className = clazz.getName();
+        if (clazz.isInterface() || className.startsWith("java.") || className.startsWith("javax.")
+                || hasJsonAnnotation(clazz)) {
+            return NOT_SUPPORTED;
+        }
+        Map<String, Method> publicGetters = new HashMap<String, Method>();
+        for (Method method : clazz.getMethods()) {
+            if (isGetter(method)) {
+                publicGetters.put(method.getName(), method);
+            }
+        }
+        List<String> names = new ArrayList<String>();
+        List<Method> getters = new ArrayList<Method>();
+        // the same order as gson: fields of the subclass come first
+        for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                String name = field.getName();
+                Method getter = findGetter(publicGetters, field);
+                if (Modifier.isTransient(field.getModifiers())) {
+                    // both serializers skip transient fields, together with their getters
+                    if (getter != null) {
+                        publicGetters.remove(getter.getName());
+                    }
+                    continue;
+                }
+                if (getter == null || names.contains(name) || hasJsonAnnotation(field) || hasJsonAnnotation(getter)) {
+                    return NOT_SUPPORTED;
+                }
+                publicGetters.remove(getter.getName());
+                names.add(name);
+                getters.add(getter);
+            }
+        }
+        // a getter without field is a property for fastjson but not for gson
+        if (!publicGetters.isEmpty()) {
+            return NOT_SUPPORTED;
+        }
+        try {
+            for (Method getter : getters) {
+                if (!Modifier.isPublic(getter.getDeclaringClass().getModifiers())) {
+                    getter.setAccessible(true);
+                }
+            }
+        } catch (SecurityException e) {
+            return NOT_SUPPORTED;
+        }
+        return new BeanFlattener(names.toArray(new String[0]), getters.toArray(new Method[0]));
+    }
+
+    private static boolean isGetter(Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length > 0
+                || method.getReturnType() == void.class || method.getDeclaringClass() == Object.class) {
+            return false;
+        }
+        String name = method.getName();
+        return (name.startsWith("get") && name.length() > 3)
+                || (name.startsWith("is") && name.length() > 2
+                && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class));
+    }
+
+    private static Method findGetter(Map<String, Method> publicGetters, Field field) {
+        String name = field.getName();
+        // the property name derived from the getter only equals the field name when it starts with a lower case letter
+        char initial = name.charAt(0);
+        if (initial < 'a' || initial > 'z') {
+            return null;
+        }
+        String capitalized = Character.toUpperCase(initial) + name.substring(1);
+        Method getter = publicGetters.get("get" + capitalized);
+        if (getter == null && (field.getType() == boolean.class || field.getType() == Boolean.class)) {
+            getter = publicGetters.get("is" + capitalized);
+        }
+        return getter;
+    }
+
+    private static boolean hasJsonAnnotation(AnnotatedElement element) {
+        for (Annotation annotation : element.getAnnotations()) {
+            String name = annotation.annotationType().getName();
+            for (String pkg : JSON_ANNOTATION_PACKAGES) {
+                if (name.startsWith(pkg)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,7 @@ package com.github.dadiyang.httpinvoker.util;
 
 import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
 import com.github.dadiyang.httpinvoker.requestor.MultiPart;
+import com.github.dadiyang.httpinvoker.serializer.JsonSerializer;
 import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
 
 import java.io.*;
@@ -23,6 +24,7 @@ public class ParamUtils {
     private static final String FILE_NAME = "fileName";
     private static final String DEFAULT_UPLOAD_FORM_KEY = "media";
     private static final String FORM_KEY = "formKey";
+    private static final int QUERY_STRING_BUFFER_SIZE = 128;
     private static final List<Class<?>> BASIC_TYPE = Arrays.asList(Byte.class, Short.class,
             Integer.class, Long.class, Float.class, Double.class, Character.class,
             Boolean.class, String.class, Void.class, Date.class);
@@ -106,7 +108,7 @@ public class ParamUtils {
                 }
             }
         } else {
-            Map<String, Object> obj = JsonSerializerDecider.getJsonSerializer().toMap(JsonSerializerDecider.getJsonSerializer().serialize(value));
+            Map<String, Object> obj = toMap(value);
             for (Map.Entry<String, Object> entry : obj.entrySet()) {
                 String key;
                 if (prefix == null || prefix.isEmpty()) {
@@ -124,6 +126,24 @@ public class ParamUtils {
         return map;
     }
 
+    /**
+     * convert a bean or a map to a map, which is the same as serializing it to json and then parsing it to a map.
+     * <p>
+     * Conventional beans and maps are converted directly without the json round trip when a built-in json serializer
+     * is in use, others fall back to the json serializer.
+     *
+     * @param value the bean or map
+     * @return a map represent the value
+     */
+    public static Map<String, Object> toMap(Object value) {
+        Map<String, Object> map = BeanFlattener.toMap(value);
+        if (map != null) {
+            return map;
+        }
+        JsonSerializer serializer = JsonSerializerDecider.getJsonSerializer();
+        return serializer.toMap(serializer.serialize(value));
+    }
+
     /**
      * convert param object to query string
      * <p>
@@ -136,30 +156,38 @@ public class ParamUtils {
         if (arg == null) {
             return "";
         }
-        StringBuilder qs = new StringBuilder("?");
-        Map<String, Object> obj = JsonSerializerDecider.getJsonSerializer().toMap(JsonSerializerDecider.getJsonSerializer().serialize(arg));
+        Map<String, Object> obj = toMap(arg);
+        StringBuilder qs = new StringBuilder(QUERY_STRING_BUFFER_SIZE).append('?');
         for (Map.Entry<String, Object> entry : obj.entrySet()) {
-            if (isCollection(entry.getValue())) {
-                qs.append(collectionToQueryString(obj, entry));
+            // arrays have been converted to lists by toMap
+            if (entry.getValue() instanceof Collection) {
+                appendCollection(qs, entry.getKey(), (Collection<?>) entry.getValue());
             } else {
-                String value = entry.getValue() == null ? "" : entry.getValue().toString();
+                String value = entry.getValue() == null ? "" : toQueryValue(entry.getValue());
                 try {
                     value = URLEncoder.encode(value, "UTF-8");
                 } catch (UnsupportedEncodingException ignored) {
                 }
-                qs.append(entry.getKey()).append("=").append(value).append("&");
+                qs.append(entry.getKey()).append('=').append(value).append('&');
             }
         }
         return qs.substring(0, qs.length() - 1);
     }
 
-    private static String collectionToQueryString(Map<String, Object> obj, Map.Entry<String, Object> entry) {
-        List<Object> arr = JsonSerializerDecider.getJsonSerializer().parseArray(ObjectUtils.toString(obj.get(entry.getKey())));
-        StringBuilder valBuilder = new StringBuilder();
-        for (Object item : arr) {
-            valBuilder.append(entry.getKey()).append("=").append(item).append("&");
+    private static void appendCollection(StringBuilder qs, String key, Collection<?> items) {
+        for (Object item : items) {
+            qs.append(key).append('=').append(item == null ? null : toQueryValue(item)).append('&');
+        }
+    }
+
+    /**
+     * nested objects are written as json, as what the maps parsed by the json serializer print
+     */
+    private static String toQueryValue(Object value) {
+        if (value instanceof Map || value instanceof Collection) {
+            return JsonSerializerDecider.getJsonSerializer().serialize(value);
         }
-        return valBuilder.toString();
+        return value.toString();
     }
 
     public static char changeCase(char c) {
@@ -200,15 +228,13 @@ public class ParamUtils {
                 }
             }
         }
-        InputStream in;
         if (File.class.isAssignableFrom(request.getBody().getClass())) {
+            // the file will be opened by the requestor when sending
             File file = (File) request.getBody();
-            in = new FileInputStream(file);
-            fileName = file.getName();
+            parts.add(new MultiPart.Part(formKey, file.getName(), file));
         } else {
-            in = (InputStream) request.getBody();
+            parts.add(new MultiPart.Part(formKey, fileName, (InputStream) request.getBody()));
         }
-        parts.add(new MultiPart.Part(formKey, fileName, in));
         return new MultiPart(parts);
     }
 
@@ -1,5 +1,12 @@
 package com.github.dadiyang.httpinvoker.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,4 +43,102 @@ public class ReflectionUtils {
             return false;
         }
     }
+
+    /**
+     * 获取泛型类型对应的原始类型，无法确定时返回 Object.class
+     */
+    public static Class<?> getRawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return getRawClass(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType) {
+            Class<?> component = getRawClass(((GenericArrayType) type).getGenericComponentType());
+            return Array.newInstance(component, 0).getClass();
+        }
+        return Object.class;
+    }
+
+    /**
+     * @return whether the type is an InputStream which the response body stream can be assigned to
+     */
+    public static boolean isInputStreamType(Class<?> type) {
+        return type != Object.class && type.isAssignableFrom(BufferedInputStream.class);
+    }
+
+    /**
+     * @return whether the type is a Reader which a reader of the response body can be assigned to
+     */
+    public static boolean isReaderType(Class<?> type) {
+        return type != Object.class && type.isAssignableFrom(BufferedReader.class);
+    }
+
+    /**
+     * 创建参数化类型，如 newParameterizedType(List.class, String.class) 即 List&lt;String&gt;
+     * <p>
+     * 序列化器一般以类型为 key 缓存解析器，因此调用方应缓存并复用创建的类型
+     */
+    public static ParameterizedType newParameterizedType(Class<?> rawType, Type... actualTypeArguments) {
+        return new ParameterizedTypeImpl(rawType, actualTypeArguments);
+    }
+
+    private static class ParameterizedTypeImpl implements ParameterizedType {
+        private final Class<?> rawType;
+        private final Type[] actualTypeArguments;
+
+        private ParameterizedTypeImpl(Class<?> rawType, Type[] actualTypeArguments) {
+            this.rawType = rawType;
+            this.actualTypeArguments = actualTypeArguments.clone();
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return actualTypeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return rawType.getDeclaringClass();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType that = (ParameterizedType) o;
+            return ObjectUtils.equals(rawType, that.getRawType())
+                    && ObjectUtils.equals(getOwnerType(), that.getOwnerType())
+                    && Arrays.equals(actualTypeArguments, that.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            // 与 JDK 的实现保持一致
+            return Arrays.hashCode(actualTypeArguments) ^ (getOwnerType() == null ? 0 : getOwnerType().hashCode()) ^ rawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(rawType.getName()).append('<');
+            for (int i = 0; i < actualTypeArguments.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                Type arg = actualTypeArguments[i];
+                sb.append(arg instanceof Class ? ((Class<?>) arg).getName() : arg.toString());
+            }
+            return sb.append('>').toString();
+        }
+    }
 }
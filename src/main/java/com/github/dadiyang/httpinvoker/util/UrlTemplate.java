@@ -0,0 +1,341 @@
+package com.github.dadiyang.httpinvoker.util;
+
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertyResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A url template which is parsed only once and then rendered in a single pass.
+ * <p>
+ * Three kinds of placeholders are supported, all of them can provide a default value after a colon:
+ * <ul>
+ * <li>${key:default} config variable, resolved by a {@link PropertyResolver}</li>
+ * <li>{key:default} path variable, the param will be removed from the params after being filled</li>
+ * <li>#{key:default} path variable, the param will be kept in the params after being filled</li>
+ * </ul>
+ * The values of path variables are percent-encoded according to where they appear, in path or in query string,
+ * and those which have already been encoded will be kept as they are. The value of a config variable may contain
+ * placeholders as well, which are rendered with the same params.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class UrlTemplate {
+    private static final Logger log = LoggerFactory.getLogger(UrlTemplate.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final String PATH_SAFE_CHARS = "-._~!$&'()*+,;=:@";
+    private static final String QUERY_SAFE_CHARS = "-._~!$'()*,;:@/?";
+    private static final int LITERAL = 0;
+    private static final int CONFIG = 1;
+    private static final int PATH_REMOVE = 2;
+    private static final int PATH_KEEP = 3;
+    private static final int MAX_NESTED_DEPTH = 8;
+    private static final int MAX_NESTED_CACHE_SIZE = 1024;
+    /**
+     * the compiled config values which contain placeholders, by the values
+     */
+    private static final ConcurrentMap<String, UrlTemplate> NESTED_TEMPLATES = new ConcurrentHashMap<String, UrlTemplate>();
+    private final String source;
+    private final Segment[] segments;
+    private final boolean hasPathVariables;
+
+    private UrlTemplate(String source, Segment[] segments) {
+        this.source = source;
+        this.segments = segments;
+        boolean hasPath = false;
+        for (Segment segment : segments) {
+            hasPath = hasPath || segment.type == PATH_REMOVE || segment.type == PATH_KEEP;
+        }
+        this.hasPathVariables = hasPath;
+    }
+
+    /**
+     * parse the template into segments
+     *
+     * @param template the url template
+     * @return the compiled template
+     */
+    public static UrlTemplate compile(String template) {
+        ObjectUtils.requireNonNull(template, "url template should not be null");
+        List<Segment> segments = new ArrayList<Segment>();
+        StringBuilder literal = new StringBuilder(template.length());
+        boolean inQuery = false;
+        int i = 0;
+        int len = template.length();
+        while (i < len) {
+            char c = template.charAt(i);
+            int end = c == '{' ? placeholderEnd(template, i) : -1;
+            if (end < 0) {
+                inQuery = inQuery || c == '?';
+                literal.append(c);
+                i++;
+                continue;
+            }
+            int type = PATH_REMOVE;
+            int literalLen = literal.length();
+            if (literalLen > 0 && literal.charAt(literalLen - 1) == '$') {
+                type = CONFIG;
+            } else if (literalLen > 0 && literal.charAt(literalLen - 1) == '#') {
+                type = PATH_KEEP;
+            }
+            if (type != PATH_REMOVE) {
+                literal.setLength(literalLen - 1);
+            }
+            if (literal.length() > 0) {
+                segments.add(new Segment(LITERAL, literal.toString(), null, null, inQuery));
+                literal.setLength(0);
+            }
+            String key = template.substring(i + 1, end);
+            String defaultValue = null;
+            int colon = key.indexOf(':');
+            if (colon >= 0) {
+                defaultValue = key.substring(colon + 1);
+                key = key.substring(0, colon);
+            }
+            segments.add(new Segment(type, template.substring(type == PATH_REMOVE ? i : i - 1, end + 1), key, defaultValue, inQuery));
+            i = end + 1;
+        }
+        if (literal.length() > 0) {
+            segments.add(new Segment(LITERAL, literal.toString(), null, null, inQuery));
+        }
+        return new UrlTemplate(template, segments.toArray(new Segment[0]));
+    }
+
+    /**
+     * find the index of '}' which closes the placeholder starts at the given index, a placeholder cannot contain '/'
+     *
+     * @return the index of '}' or -1 if it is not a placeholder
+     */
+    private static int placeholderEnd(String template, int start) {
+        for (int i = start + 1; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '/') {
+                return -1;
+            }
+            if (c == '}') {
+                return i > start + 1 ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * check whether the url starts with a protocol, such as http://
+     */
+    public static boolean hasProtocol(CharSequence url) {
+        if (url.length() < 5) {
+            return false;
+        }
+        char first = url.charAt(0);
+        if (!((first >= 'a' && first <= 'z') || (first >= 'A' && first <= 'Z'))) {
+            return false;
+        }
+        for (int i = 2; i + 2 < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '\n' || c == '\r') {
+                return false;
+            }
+            if (c == ':' && url.charAt(i + 1) == '/' && url.charAt(i + 2) == '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * get the scheme://host:port part of the url, e.g. http://localhost:8080 of http://localhost:8080/city?id=1
+     *
+     * @since 1.2.5
+     */
+    public static String getHost(String url) {
+        if (url == null) {
+            return "";
+        }
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.indexOf('/', start);
+        int query = url.indexOf('?', start);
+        if (query >= 0 && (end < 0 || query < end)) {
+            end = query;
+        }
+        return end < 0 ? url : url.substring(0, end);
+    }
+
+    /**
+     * render the template into the given StringBuilder
+     *
+     * @param sb                     the StringBuilder to append to
+     * @param propertyResolver       resolver for config variables
+     * @param params                 params for path variables, those filled by {key} will be removed
+     * @param fillPathVariables      whether to fill path variables, they will be kept as they are if false
+     * @param exceptionOnNotProvided if throw an exception on path variable doesn't provided, otherwise keep it as it is
+     * @return whether all the placeholders have been resolved
+     * @throws IllegalArgumentException thrown when a config variable or a required path variable absent,
+     *                                  or the config variables are nested too deep, e.g. referring to each other
+     */
+    public boolean render(StringBuilder sb, PropertyResolver propertyResolver, Map<String, Object> params,
+                          boolean fillPathVariables, boolean exceptionOnNotProvided) {
+        return render(sb, propertyResolver, params, fillPathVariables, exceptionOnNotProvided, 0);
+    }
+
+    private boolean render(StringBuilder sb, PropertyResolver propertyResolver, Map<String, Object> params,
+                           boolean fillPathVariables, boolean exceptionOnNotProvided, int depth) {
+        boolean resolved = true;
+        List<String> toRemove = null;
+        for (Segment segment : segments) {
+            switch (segment.type) {
+                case LITERAL:
+                    sb.append(segment.text);
+                    break;
+                case CONFIG:
+                    String config = resolveConfig(propertyResolver, segment);
+                    if (config.indexOf('{') < 0) {
+                        sb.append(config);
+                        break;
+                    }
+                    if (depth >= MAX_NESTED_DEPTH) {
+                        throw new IllegalArgumentException("the config variables of the url [" + source + "] are nested too deep");
+                    }
+                    resolved = compileNested(config).render(sb, propertyResolver, params, fillPathVariables,
+                            exceptionOnNotProvided, depth + 1) && resolved;
+                    break;
+                default:
+                    if (!fillPathVariables) {
+                        sb.append(segment.text);
+                        resolved = false;
+                        break;
+                    }
+                    Object value = params == null ? null : params.get(segment.key);
+                    if (value == null && segment.defaultValue == null) {
+                        // path variable must be provided
+                        String msg = "the url [" + source + "] needs a variable: [" + segment.key + "], but not provided.";
+                        log.warn(msg);
+                        if (exceptionOnNotProvided) {
+                            throw new IllegalArgumentException(msg);
+                        }
+                        sb.append(segment.text);
+                        resolved = false;
+                        break;
+                    }
+                    if (value != null && segment.type == PATH_REMOVE) {
+                        if (toRemove == null) {
+                            toRemove = new ArrayList<String>(2);
+                        }
+                        toRemove.add(segment.key);
+                    }
+                    appendEncoded(sb, value == null ? segment.defaultValue : value.toString(), segment.inQuery);
+            }
+        }
+        if (toRemove != null) {
+            for (String key : toRemove) {
+                params.remove(key);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * render the template into a String
+     *
+     * @see #render(StringBuilder, PropertyResolver, Map, boolean, boolean)
+     */
+    public String render(PropertyResolver propertyResolver, Map<String, Object> params, boolean exceptionOnNotProvided) {
+        StringBuilder sb = new StringBuilder(source.length() + 32);
+        render(sb, propertyResolver, params, true, exceptionOnNotProvided);
+        return sb.toString();
+    }
+
+    private static UrlTemplate compileNested(String value) {
+        UrlTemplate template = NESTED_TEMPLATES.get(value);
+        if (template == null) {
+            template = compile(value);
+            // the values are from the config so they are few, the bound only guards against a changing one
+            if (NESTED_TEMPLATES.size() < MAX_NESTED_CACHE_SIZE) {
+                NESTED_TEMPLATES.putIfAbsent(value, template);
+            }
+        }
+        return template;
+    }
+
+    private String resolveConfig(PropertyResolver propertyResolver, Segment segment) {
+        String val = propertyResolver == null || !propertyResolver.containsProperty(segment.key)
+                ? null : propertyResolver.getProperty(segment.key);
+        if (val != null) {
+            return val;
+        }
+        if (segment.defaultValue == null) {
+            // config variable must be provided
+            String msg = "the url [" + source + "] needs a variable: [" + segment.key + "], but not provided.";
+            log.warn(msg);
+            throw new IllegalArgumentException(msg);
+        }
+        return segment.defaultValue;
+    }
+
+    private static void appendEncoded(StringBuilder sb, String value, boolean inQuery) {
+        String safeChars = inQuery ? QUERY_SAFE_CHARS : PATH_SAFE_CHARS;
+        int len = value.length();
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || safeChars.indexOf(c) >= 0 || (c == '%' && isEscaped(value, i))) {
+                sb.append(c);
+                continue;
+            }
+            int charCount = Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1)) ? 2 : 1;
+            byte[] bytes = c < 0x80 ? new byte[]{(byte) c} : value.substring(i, i + charCount).getBytes(UTF_8);
+            for (byte b : bytes) {
+                sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            i += charCount - 1;
+        }
+    }
+
+    private static boolean isEscaped(String value, int i) {
+        return i + 2 < value.length() && isHex(value.charAt(i + 1)) && isHex(value.charAt(i + 2));
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean hasPathVariables() {
+        return hasPathVariables;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static class Segment {
+        private final int type;
+        /**
+         * the literal text, or the whole placeholder text for a variable
+         */
+        private final String text;
+        private final String key;
+        private final String defaultValue;
+        private final boolean inQuery;
+
+        Segment(int type, String text, String key, String defaultValue, boolean inQuery) {
+            this.type = type;
+            this.text = text;
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.inQuery = inQuery;
+        }
+    }
+}
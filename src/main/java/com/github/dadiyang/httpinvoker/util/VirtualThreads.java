@@ -0,0 +1,66 @@
+package com.github.dadiyang.httpinvoker.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * the virtual threads of JDK 21+, which are accessed reflectively since the library is compiled for JDK 6
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class VirtualThreads {
+    private static final String BUILDER_CLASS = "java.lang.Thread$Builder";
+
+    private VirtualThreads() {
+        throw new UnsupportedOperationException("静态工具类不允许被实例化");
+    }
+
+    /**
+     * @return whether the virtual threads are supported by the running JDK
+     */
+    public static boolean isSupported() {
+        return SupportHolder.SUPPORTED;
+    }
+
+    /**
+     * create an executor starting a new virtual thread for each task
+     *
+     * @param prefix the name prefix of the threads
+     * @throws IllegalStateException thrown when the virtual threads are not supported
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("virtual threads are only supported on JDK 21+, but it's "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            Class<?> builderClass = Class.forName(BUILDER_CLASS);
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to create the virtual thread executor", e);
+        }
+    }
+
+    private static class SupportHolder {
+        private static final boolean SUPPORTED = detect();
+
+        /**
+         * the api exists on JDK 19/20 as a preview, on which it fails unless the preview is enabled
+         */
+        private static boolean detect() {
+            try {
+                Thread.class.getMethod("ofVirtual").invoke(null);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
+import com.github.dadiyang.httpinvoker.util.NamedThreadFactory;
+import com.github.dadiyang.httpinvoker.util.ObjectUtils;
+import com.github.dadiyang.httpinvoker.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static com.github.dadiyang.httpinvoker.util.ParamUtils.*;
+
+/**
+ * an http requestor base on java.net.http.HttpClient of JDK 11+
+ * <p>
+ * HTTP/2 is preferred, so that the requests to the same host can be multiplexed on a few connections,
+ * and it will fall back to HTTP/1.1 if the server doesn't support it.
+ * Requests can be sent either blocking or asynchronously, and none of the threads will be blocked in the latter case.
+ * <p>
+ * This class is only compiled on JDK 11+, use {@link JdkHttpClientRequestorFactory} to create it by reflection.
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class JdkHttpClientRequestor implements AsyncRequestor {
+    private static final Logger log = LoggerFactory.getLogger(JdkHttpClientRequestor.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+    private static final String APPLICATION_JSON = "application/json";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String COOKIE = "Cookie";
+    private static final String CRLF = "\r\n";
+    /**
+     * those headers are managed by the HttpClient itself and are not allowed to set
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(
+            Arrays.asList("connection", "content-length", "expect", "host", "upgrade"));
+    /**
+     * all the HttpClients created by this class share the same executor
+     */
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(new NamedThreadFactory("http-api-invoker-jdk-http"));
+    private final HttpClient httpClient;
+
+    /**
+     * 使用默认的 HttpClient 实现和配置
+     */
+    public JdkHttpClientRequestor() {
+        this(DefaultHttpClientHolder.INSTANCE);
+    }
+
+    /**
+     * @param connectTimeout 建立连接的超时时间，单位毫秒，请求超时时间由 @HttpReq 的 timeout 指定
+     */
+    public JdkHttpClientRequestor(int connectTimeout) {
+        this(createHttpClient(connectTimeout));
+    }
+
+    /**
+     * 自定义配置 HttpClient
+     */
+    public JdkHttpClientRequestor(HttpClient httpClient) {
+        ObjectUtils.requireNonNull(httpClient, "httpClient should not be null");
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * create a HttpClient preferring HTTP/2 with the shared executor
+     *
+     * @param connectTimeout timeout in milliseconds for establishing connections
+     */
+    public static HttpClient createHttpClient(int connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .executor(SHARED_EXECUTOR)
+                .build();
+    }
+
+    @Override
+    public HttpResponse sendRequest(HttpRequest request) throws IOException {
+        java.net.http.HttpRequest jdkRequest = createJdkRequest(request);
+        try {
+            if (request.isStreaming()) {
+                return new JdkHttpResponse(httpClient.send(jdkRequest, java.net.http.HttpResponse.BodyHandlers.ofInputStream()));
+            }
+            return new JdkHttpResponse(httpClient.send(jdkRequest, java.net.http.HttpResponse.BodyHandlers.ofByteArray()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("thread interrupted when waiting for response");
+        }
+    }
+
+    @Override
+    public void sendRequestAsync(HttpRequest request, final ResponseCallback callback) {
+        java.net.http.HttpRequest jdkRequest;
+        try {
+            jdkRequest = createJdkRequest(request);
+        } catch (Exception e) {
+            callback.failed(e);
+            return;
+        }
+        if (request.isStreaming()) {
+            httpClient.sendAsync(jdkRequest, java.net.http.HttpResponse.BodyHandlers.ofInputStream())
+                    .whenComplete(new CallbackAdapter<InputStream>(callback));
+        } else {
+            httpClient.sendAsync(jdkRequest, java.net.http.HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete(new CallbackAdapter<byte[]>(callback));
+        }
+    }
+
+    /**
+     * convert the request to a java.net.http.HttpRequest with headers, cookies and body set
+     *
+     * @throws IllegalArgumentException thrown when the request method is not supported
+     */
+    protected java.net.http.HttpRequest createJdkRequest(HttpRequest request) throws IOException {
+        String method = StringUtils.upperCase(request.getMethod());
+        if (method == null || "CONNECT".equals(method)) {
+            throw new IllegalArgumentException("Unsupported http method: " + method);
+        }
+        boolean hasBody = "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method);
+        String url = hasBody ? request.getUrl() : request.getUrl() + toQueryString(request.getData());
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(url));
+        if (request.getTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(request.getTimeout()));
+        }
+        addHeaders(request, builder);
+        addCookies(request, builder);
+        java.net.http.HttpRequest.BodyPublisher publisher = java.net.http.HttpRequest.BodyPublishers.noBody();
+        if (hasBody) {
+            if (isUploadRequest(request.getBody())) {
+                MultiPart multiPart = request.getBody() instanceof MultiPart
+                        ? (MultiPart) request.getBody() : convertInputStreamAndFile(request);
+                String boundary = UUID.randomUUID().toString().replace("-", "");
+                builder.setHeader(CONTENT_TYPE, "multipart/form-data; boundary=" + boundary);
+                publisher = createMultiPartPublisher(multiPart, boundary);
+            } else {
+                publisher = createBodyPublisher(request, builder);
+            }
+        }
+        request.setContentLength(publisher.contentLength());
+        return builder.method(method, publisher).build();
+    }
+
+    private java.net.http.HttpRequest.BodyPublisher createBodyPublisher(HttpRequest request, java.net.http.HttpRequest.Builder builder) {
+        String contentType = request.getHeaders() == null ? null : request.getHeaders().get(CONTENT_TYPE);
+        // handle x-www-form-urlencoded
+        if (ObjectUtils.equals(FORM_URLENCODED, contentType)) {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> entry : toMapStringString(request.getData(), "").entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append('&');
+                }
+                sb.append(encode(entry.getKey())).append('=').append(encode(entry.getValue()));
+            }
+            return java.net.http.HttpRequest.BodyPublishers.ofString(sb.toString(), UTF_8);
+        }
+        Object body = request.getBody() != null ? request.getBody() : request.getData();
+        if (body == null) {
+            return java.net.http.HttpRequest.BodyPublishers.noBody();
+        }
+        if (contentType == null) {
+            builder.setHeader(CONTENT_TYPE, APPLICATION_JSON);
+        }
+        return java.net.http.HttpRequest.BodyPublishers.ofString(JsonSerializerDecider.getJsonSerializer().serialize(body), UTF_8);
+    }
+
+    /**
+     * the parts are streamed one after another instead of being buffered in memory, and files are opened only when they are reached
+     */
+    private java.net.http.HttpRequest.BodyPublisher createMultiPartPublisher(MultiPart multiPart, String boundary) {
+        // either byte[] of the part heads or the binary parts
+        final List<Object> segments = new ArrayList<Object>();
+        for (MultiPart.Part part : multiPart.getParts()) {
+            if (part.getKey() == null || part.getValue() == null) {
+                throw new IllegalArgumentException("both key and value of part must not be null");
+            }
+            StringBuilder head = new StringBuilder();
+            head.append("--").append(boundary).append(CRLF)
+                    .append("Content-Disposition: form-data; name=\"").append(part.getKey()).append('"');
+            if (part.isBinary()) {
+                head.append("; filename=\"").append(part.getValue()).append('"').append(CRLF)
+                        .append("Content-Type: application/octet-stream").append(CRLF).append(CRLF);
+                segments.add(head.toString().getBytes(UTF_8));
+                segments.add(part);
+                segments.add(CRLF.getBytes(UTF_8));
+            } else {
+                head.append(CRLF).append("Content-Type: text/plain; charset=UTF-8").append(CRLF).append(CRLF)
+                        .append(part.getValue()).append(CRLF);
+                segments.add(head.toString().getBytes(UTF_8));
+            }
+        }
+        segments.add(("--" + boundary + "--" + CRLF).getBytes(UTF_8));
+        return java.net.http.HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+            @Override
+            public InputStream get() {
+                // SequenceInputStream closes each stream once it's exhausted
+                return new SequenceInputStream(new Enumeration<InputStream>() {
+                    private final Iterator<Object> iterator = segments.iterator();
+
+                    @Override
+                    public boolean hasMoreElements() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public InputStream nextElement() {
+                        Object segment = iterator.next();
+                        if (segment instanceof byte[]) {
+                            return new ByteArrayInputStream((byte[]) segment);
+                        }
+                        try {
+                            return ((MultiPart.Part) segment).openInputStream();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void addHeaders(HttpRequest request, java.net.http.HttpRequest.Builder builder) {
+        if (request.getHeaders() == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            if (RESTRICTED_HEADERS.contains(entry.getKey().toLowerCase())) {
+                log.debug("header {} is managed by HttpClient and will be ignored", entry.getKey());
+                continue;
+            }
+            builder.setHeader(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void addCookies(HttpRequest request, java.net.http.HttpRequest.Builder builder) {
+        if (request.getCookies() == null || request.getCookies().isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : request.getCookies().entrySet()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        builder.setHeader(COOKIE, sb.toString());
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * complete the callback when the future of HttpClient is completed
+     */
+    private static class CallbackAdapter<T> implements BiConsumer<java.net.http.HttpResponse<T>, Throwable> {
+        private final ResponseCallback callback;
+
+        CallbackAdapter(ResponseCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void accept(java.net.http.HttpResponse<T> response, Throwable e) {
+            if (e != null) {
+                callback.failed(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else {
+                callback.completed(new JdkHttpResponse(response));
+            }
+        }
+    }
+
+    /**
+     * lazy holder of the HttpClient shared by the requestors created with default configuration
+     */
+    private static class DefaultHttpClientHolder {
+        private static final HttpClient INSTANCE = createHttpClient(DEFAULT_CONNECT_TIMEOUT);
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.util.IoUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpCookie;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the response of {@link JdkHttpClientRequestor}, the body is either a byte array which has been fully read in memory,
+ * or an InputStream for streaming requests, which will release the connection when closed
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class JdkHttpResponse implements HttpResponse, Closeable {
+    private static final String SET_COOKIE = "set-cookie";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CHARSET = "charset=";
+    private final java.net.http.HttpResponse<?> response;
+    private byte[] bytes;
+
+    /**
+     * @param response the response whose body is byte[] or InputStream
+     */
+    public JdkHttpResponse(java.net.http.HttpResponse<?> response) {
+        this.response = response;
+        if (response.body() instanceof byte[]) {
+            this.bytes = (byte[]) response.body();
+        }
+    }
+
+    @Override
+    public int getStatusCode() {
+        return response.statusCode();
+    }
+
+    /**
+     * HTTP/2 doesn't carry a reason phrase, so only the status code and the protocol version are available
+     */
+    @Override
+    public String getStatusMessage() {
+        return response.version() + " " + response.statusCode();
+    }
+
+    @Override
+    public String getCharset() {
+        String contentType = getContentType();
+        if (contentType == null) {
+            return null;
+        }
+        int i = contentType.toLowerCase().indexOf(CHARSET);
+        if (i < 0) {
+            return null;
+        }
+        String charset = contentType.substring(i + CHARSET.length());
+        int end = charset.indexOf(';');
+        charset = end < 0 ? charset : charset.substring(0, end);
+        return charset.trim().replace("\"", "");
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(CONTENT_TYPE);
+    }
+
+    @Override
+    public byte[] getBodyAsBytes() {
+        if (bytes == null) {
+            // read the whole stream, then the connection will be released
+            InputStream in = (InputStream) response.body();
+            try {
+                bytes = in.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot read bytes from response!", e);
+            } finally {
+                IoUtils.closeStream(in);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public InputStream getBodyStream() {
+        if (bytes == null) {
+            return (InputStream) response.body();
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public String getBody() {
+        String charset = getCharset();
+        Charset cs = charset != null && Charset.isSupported(charset) ? Charset.forName(charset) : Charset.forName("UTF-8");
+        return new String(getBodyAsBytes(), cs);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        Map<String, List<String>> headers = response.headers().map();
+        if (headers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> map = new HashMap<String, String>(headers.size());
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                map.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, List<String>> multiHeaders() {
+        return response.headers().map();
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+        return response.headers().allValues(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return response.headers().firstValue(name).orElse(null);
+    }
+
+    @Override
+    public Map<String, String> getCookies() {
+        List<String> values = response.headers().allValues(SET_COOKIE);
+        if (values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> map = new HashMap<String, String>();
+        for (String value : values) {
+            for (HttpCookie cookie : HttpCookie.parse(value)) {
+                map.put(cookie.getName(), cookie.getValue());
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String getCookie(String name) {
+        return getCookies().get(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bytes == null) {
+            ((InputStream) response.body()).close();
+        }
+    }
+}
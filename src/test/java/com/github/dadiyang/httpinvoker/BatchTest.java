@@ -0,0 +1,136 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.Batch;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.entity.City;
+import com.github.dadiyang.httpinvoker.enumeration.ReqMethod;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.util.RecordingRequestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证并发的单个查询合并为一次批量调用，并按 key 属性或位置分发给各调用方
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class BatchTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void batch() throws Exception {
+        RecordingRequestor requestor = createRequestor(false);
+        final CityApi api = requestor.createProxy(CityApi.class);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<City>> futures = new ArrayList<Future<City>>();
+            for (int i = 0; i < THREADS; i++) {
+                final int id = i % 4;
+                futures.add(executor.submit(new Callable<City>() {
+                    @Override
+                    public City call() throws Exception {
+                        return api.getCity(id);
+                    }
+                }));
+            }
+            for (int i = 0; i < THREADS; i++) {
+                City city = futures.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals(Integer.valueOf(i % 4), city.getId());
+                assertEquals("city" + i % 4, city.getName());
+            }
+            // the keys are passed once no matter how many callers ask for them
+            assertEquals(4, ((Collection<?>) requestor.getRequests().get(0).getBody()).size());
+            assertEquals(1, requestor.getCount());
+            // the element missing from the response
+            assertNull(api.getCity(404));
+            assertEquals("city1", api.getCityAsync(1).get(5, TimeUnit.SECONDS).getName());
+            assertEquals(3, requestor.getCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void maxSizeAndPosition() throws Exception {
+        RecordingRequestor requestor = createRequestor(false);
+        CityApi api = requestor.createProxy(CityApi.class);
+        List<Future<City>> futures = new ArrayList<Future<City>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(api.getCityByPosition(i));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals("city" + i, futures.get(i).get(5, TimeUnit.SECONDS).getName());
+        }
+        // the window is long but a batch is sent once it has 2 calls
+        assertEquals(2, requestor.getCount());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        CityApi api = createRequestor(true).createProxy(CityApi.class);
+        Future<City> first = api.getCityAsync(1);
+        Future<City> second = api.getCityAsync(2);
+        for (Future<City> future : new Future[]{first, second}) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("the failure should be thrown to every caller");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void invalidDeclaration() {
+        // 批量方法不存在时，创建代理即失败，而不是每次调用都失败
+        new HttpApiProxyFactory.Builder().build().getProxy(InvalidApi.class);
+    }
+
+    private static RecordingRequestor createRequestor(final boolean error) {
+        return new RecordingRequestor(new RecordingRequestor.Responder() {
+            @Override
+            public HttpResponse respond(HttpRequest request) {
+                if (error) {
+                    return new MockResponse(500, "error");
+                }
+                StringBuilder json = new StringBuilder("[");
+                for (Object id : (Collection<?>) request.getBody()) {
+                    if (!"404".equals(String.valueOf(id))) {
+                        json.append(json.length() > 1 ? "," : "")
+                                .append("{\"id\":").append(id).append(",\"name\":\"city").append(id).append("\"}");
+                    }
+                }
+                return new MockResponse(200, json.append("]").toString());
+            }
+        });
+    }
+
+    interface CityApi {
+        @HttpReq(value = "http://localhost/cities", method = ReqMethod.POST)
+        List<City> getCities(List<Integer> ids) throws IOException;
+
+        @Batch(method = "getCities", key = "id", window = 50)
+        City getCity(int id) throws IOException;
+
+        @Batch(method = "getCities", key = "id")
+        Future<City> getCityAsync(int id);
+
+        @Batch(method = "getCities", window = 5000, maxSize = 2)
+        Future<City> getCityByPosition(int id);
+    }
+
+    interface InvalidApi {
+        @Batch(method = "missing")
+        City getCity(int id) throws IOException;
+    }
+}
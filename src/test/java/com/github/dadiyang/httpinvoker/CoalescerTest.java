@@ -0,0 +1,112 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.Coalesce;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.enumeration.ReqMethod;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.util.RecordingRequestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证相同的并发请求只发送一次，各调用方得到各自的返回值
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class CoalescerTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void coalesce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingRequestor requestor = createRequestor().hold(release);
+        final DictApi api = requestor.createProxy(DictApi.class);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        return api.getDict("city");
+                    }
+                }));
+            }
+            Future<List<String>> async = api.getDictAsync("city");
+            // wait for the callers to join the flight
+            Thread.sleep(200);
+            release.countDown();
+            List<String> first = futures.get(0).get(5, TimeUnit.SECONDS);
+            assertEquals(2, first.size());
+            for (Future<List<String>> future : futures) {
+                List<String> dict = future.get(5, TimeUnit.SECONDS);
+                assertEquals(first, dict);
+                if (future != futures.get(0)) {
+                    // each caller gets its own return value
+                    assertNotSame(first, dict);
+                }
+            }
+            assertEquals(first, async.get(5, TimeUnit.SECONDS));
+            // the requests of the sync and async methods are identical, so they share the flight
+            assertEquals(1, requestor.getCount());
+            // a new flight after landing
+            api.getDict("city");
+            assertEquals(2, requestor.getCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void key() {
+        HttpRequest request = new HttpRequest("http://localhost/dict");
+        Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("b", "2");
+        data.put("a", "1");
+        request.setData(data);
+        HttpRequest another = new HttpRequest("http://localhost/dict");
+        Map<String, Object> anotherData = new LinkedHashMap<String, Object>();
+        anotherData.put("a", "1");
+        anotherData.put("b", "2");
+        another.setData(anotherData);
+        assertEquals(Coalescer.key(request), Coalescer.key(another));
+
+        anotherData.put("b", "3");
+        assertNotEquals(Coalescer.key(request), Coalescer.key(another));
+        another.setBody("body");
+        assertNull(Coalescer.key(another));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notSafe() throws Exception {
+        createRequestor().createProxy(DictApi.class).post("city");
+    }
+
+    private static RecordingRequestor createRequestor() {
+        return RecordingRequestor.returning(200, "[\"Beijing\",\"Shanghai\"]");
+    }
+
+    interface DictApi {
+        @Coalesce
+        @HttpReq("http://localhost/dict")
+        List<String> getDict(@Param("type") String type) throws IOException;
+
+        @Coalesce
+        @HttpReq("http://localhost/dict")
+        CompletableFuture<List<String>> getDictAsync(@Param("type") String type);
+
+        @Coalesce
+        @HttpReq(value = "http://localhost/dict", method = ReqMethod.POST)
+        List<String> post(@Param("type") String type) throws IOException;
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证 invokeAll 并发执行多个调用，失败的调用互不影响，超过截止时间时取消未完成的调用
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class FanOutTest {
+
+    @Test
+    public void invokeAll() throws Exception {
+        HttpApiProxyFactory factory = createFactory(new CountDownLatch(1));
+        List<Callable<String>> calls = createCalls(factory.getProxy(CityApi.class), "Beijing", "error", "Shanghai");
+        long start = System.nanoTime();
+        List<Future<String>> futures = factory.invokeAll(calls, 5, TimeUnit.SECONDS);
+        // each call takes 100ms, they run concurrently
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+        assertEquals("Beijing", futures.get(0).get());
+        try {
+            futures.get(1).get();
+            fail("the failure should be thrown by its future");
+        } catch (ExecutionException expected) {
+            // the others are not affected
+        }
+        assertEquals("Shanghai", futures.get(2).get());
+    }
+
+    @Test
+    public void deadline() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        HttpApiProxyFactory factory = createFactory(interrupted);
+        List<Callable<String>> calls = createCalls(factory.getProxy(CityApi.class), "Beijing", "slow");
+        long start = System.nanoTime();
+        List<Future<String>> futures = factory.invokeAll(calls, 300, TimeUnit.MILLISECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals("Beijing", futures.get(0).get());
+        assertTrue(futures.get(1).isCancelled());
+        // the straggler is interrupted
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requestTimeoutLimitedByDeadline() throws Exception {
+        final List<Integer> timeouts = new CopyOnWriteArrayList<Integer>();
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) {
+                timeouts.add(request.getTimeout());
+                return new MockResponse(200, "ok");
+            }
+        };
+        HttpApiProxyFactory factory = new HttpApiProxyFactory.Builder().setRequestor(requestor).build();
+        CityApi api = factory.getProxy(CityApi.class);
+        api.getCity("Beijing");
+        // 不在 invokeAll 中调用时使用方法本身的超时时间
+        int methodTimeout = timeouts.get(0);
+        factory.invokeAll(createCalls(api, "Beijing", "Shanghai"), 300, TimeUnit.MILLISECONDS);
+        assertEquals(3, timeouts.size());
+        for (int timeout : timeouts.subList(1, 3)) {
+            assertTrue("请求的超时时间不应超过剩余的截止时间: " + timeout, timeout > 0 && timeout <= 300);
+        }
+        // 线程复用后不应残留截止时间
+        api.getCity("Beijing");
+        assertEquals(methodTimeout, (int) timeouts.get(3));
+    }
+
+    @Test
+    public void rejectedWhenQueueFull() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        HttpApiProxyFactory factory = new HttpApiProxyFactory.Builder()
+                .setRequestor(createFactory(interrupted).getRequestor())
+                .setFanOutThreads(1)
+                .setFanOutQueueCapacity(1)
+                .build();
+        CityApi api = factory.getProxy(CityApi.class);
+        try {
+            factory.invokeAll(createCalls(api, "slow", "Beijing", "Shanghai"), 5, TimeUnit.SECONDS);
+            fail("队列已满时应拒绝");
+        } catch (RejectedExecutionException expected) {
+            // 已调度的调用被取消，不再占用线程
+        }
+        List<Future<String>> futures = factory.invokeAll(createCalls(api, "Beijing"), 1, TimeUnit.SECONDS);
+        assertEquals("Beijing", futures.get(0).get());
+    }
+
+    @Test
+    public void fanOutExecutor() {
+        // 默认线程池在首次使用时创建，之后复用
+        HttpApiProxyFactory factory = new HttpApiProxyFactory.Builder().build();
+        assertSame(factory.getFanOutExecutor(), factory.getFanOutExecutor());
+        assertNotSame(factory.getFanOutExecutor(), new HttpApiProxyFactory().getFanOutExecutor());
+        Executor executor = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(executor, new HttpApiProxyFactory.Builder().setFanOutExecutor(executor).build().getFanOutExecutor());
+        } finally {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private static List<Callable<String>> createCalls(final CityApi api, String... names) {
+        List<Callable<String>> calls = new ArrayList<Callable<String>>();
+        for (final String name : names) {
+            calls.add(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return api.getCity(name);
+                }
+            });
+        }
+        return calls;
+    }
+
+    private static HttpApiProxyFactory createFactory(final CountDownLatch interrupted) {
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) throws IOException {
+                String name = String.valueOf(request.getData().get("name"));
+                try {
+                    Thread.sleep("slow".equals(name) ? 10000 : 100);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new IOException("interrupted");
+                }
+                if ("error".equals(name)) {
+                    throw new IOException("error");
+                }
+                return new MockResponse(200, name);
+            }
+        };
+        return new HttpApiProxyFactory.Builder().setRequestor(requestor).build();
+    }
+
+    interface CityApi {
+        @HttpReq("http://localhost/city")
+        String getCity(@Param("name") String name) throws IOException;
+    }
+}
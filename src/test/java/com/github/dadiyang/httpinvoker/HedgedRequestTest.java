@@ -0,0 +1,128 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.Hedge;
+import com.github.dadiyang.httpinvoker.annotation.HttpApi;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.enumeration.ReqMethod;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.util.RecordingRequestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证对冲请求：慢请求时发往另一个节点并取先返回的结果
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class HedgedRequestTest {
+
+    @Test
+    public void hedgeToAnotherEndpoint() throws Exception {
+        RecordingRequestor requestor = createRequestor("http://a:8080");
+        CityApi api = createApi(requestor);
+        long start = System.nanoTime();
+        assertEquals("http://b:8080/city", api.getCity());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        assertEquals(2, requestor.getCount());
+        assertEquals("http://a:8080/city", requestor.getUrls().get(0));
+
+        requestor.reset();
+        api = createApi(requestor);
+        assertEquals("http://b:8080/city", api.getCityAsync().get(5, TimeUnit.SECONDS));
+        assertEquals(2, requestor.getCount());
+    }
+
+    @Test
+    public void noHedgeForFastResponse() throws Exception {
+        RecordingRequestor requestor = createRequestor(null);
+        createApi(requestor).getCity();
+        Thread.sleep(150);
+        assertEquals(1, requestor.getCount());
+    }
+
+    @Test
+    public void allFailed() {
+        CityApi api = createApi(createRequestor(null));
+        try {
+            api.failed();
+            fail("should fail");
+        } catch (IOException e) {
+            assertEquals("connection refused", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notIdempotent() throws Exception {
+        createApi(createRequestor(null)).post();
+    }
+
+    @Test
+    public void percentile() {
+        LatencyTracker tracker = new LatencyTracker(95);
+        for (int i = 1; i < 10; i++) {
+            tracker.record(i);
+        }
+        assertEquals(-1, tracker.getPercentile());
+        tracker = new LatencyTracker(95);
+        for (int i = 100; i > 0; i--) {
+            tracker.record(i);
+        }
+        assertEquals(95, tracker.getPercentile());
+    }
+
+    /**
+     * @param slowHost the requests to this host respond after 500ms
+     */
+    private static RecordingRequestor createRequestor(final String slowHost) {
+        return new RecordingRequestor(new RecordingRequestor.Responder() {
+            @Override
+            public HttpResponse respond(HttpRequest request) throws IOException {
+                if (request.getUrl().endsWith("/failed")) {
+                    throw new IOException("connection refused");
+                }
+                if (slowHost != null && request.getUrl().startsWith(slowHost)) {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new MockResponse(200, request.getUrl());
+            }
+        });
+    }
+
+    private static CityApi createApi(RecordingRequestor requestor) {
+        Properties properties = new Properties();
+        properties.setProperty("city.hosts", "http://a:8080,http://b:8080");
+        return requestor.createProxy(CityApi.class, properties);
+    }
+
+    @HttpApi(prefix = "${city.hosts}")
+    interface CityApi {
+        @Hedge(delay = 50)
+        @HttpReq("/city")
+        String getCity() throws IOException;
+
+        @Hedge(delay = 50)
+        @HttpReq("/city")
+        CompletableFuture<String> getCityAsync();
+
+        @Hedge(delay = 50)
+        @HttpReq("/failed")
+        String failed() throws IOException;
+
+        @Hedge(delay = 50)
+        @HttpReq(value = "/city", method = ReqMethod.POST)
+        String post() throws IOException;
+    }
+}
@@ -1,5 +1,9 @@
 package com.github.dadiyang.httpinvoker;
 
+import com.github.dadiyang.httpinvoker.annotation.HttpApi;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
 import com.github.dadiyang.httpinvoker.propertyresolver.MultiSourcePropertyResolver;
 import com.github.dadiyang.httpinvoker.propertyresolver.PropertyResolver;
 import com.github.dadiyang.httpinvoker.requestor.*;
@@ -11,7 +15,9 @@ import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
@@ -98,4 +104,41 @@ public class HttpApiProxyFactoryTest {
         assertEquals("OK", resolvers.getProperty("Env1"));
         assertEquals("OK", resolvers.getProperty("PR1"));
     }
+
+    /**
+     * 配置项的值中的占位符也应被填充
+     */
+    @Test
+    public void placeholdersInConfig() throws IOException {
+        final List<String> urls = new CopyOnWriteArrayList<String>();
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) {
+                urls.add(request.getUrl());
+                return new MockResponse(200, "北京");
+            }
+        };
+        Properties properties = new Properties();
+        properties.setProperty("city.port", "8080");
+        properties.setProperty("city.host", "http://localhost:${city.port}");
+        properties.setProperty("api.city", "http://localhost/city/{id}");
+        PlaceholderService service = new HttpApiProxyFactory.Builder()
+                .setRequestor(requestor)
+                .addProperties(properties)
+                .build()
+                .getProxy(PlaceholderService.class);
+        assertEquals("北京", service.getCityName(7));
+        assertEquals("北京", service.getCityNameByPrefix(7));
+        assertEquals("http://localhost/city/7", urls.get(0));
+        assertEquals("http://localhost:8080/city/7", urls.get(1));
+    }
+
+    @HttpApi(prefix = "${city.host}")
+    interface PlaceholderService {
+        @HttpReq("${api.city}")
+        String getCityName(@Param("id") int id) throws IOException;
+
+        @HttpReq("/city/{id}")
+        String getCityNameByPrefix(@Param("id") int id) throws IOException;
+    }
 }
\ No newline at end of file
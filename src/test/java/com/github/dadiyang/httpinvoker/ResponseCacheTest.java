@@ -0,0 +1,132 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.Cacheable;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.enumeration.ReqMethod;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.util.RecordingRequestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证响应缓存：新鲜的响应直接复用，过期的响应通过条件请求重新验证，并按 W-TinyLFU 淘汰
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class ResponseCacheTest {
+    private static final String ETAG = "\"v1\"";
+
+    @Test
+    public void fresh() throws Exception {
+        RecordingRequestor requestor = createRequestor("max-age=60");
+        DictApi api = createApi(requestor);
+        List<String> first = api.getDict("city");
+        List<String> second = api.getDict("city");
+        assertEquals(Arrays.asList("Beijing", "Shanghai"), second);
+        assertNotSame(first, second);
+        assertEquals(Arrays.asList("Beijing", "Shanghai"), api.getDictAsync("city").get(5, TimeUnit.SECONDS));
+        assertEquals(1, requestor.getCount());
+        // another param is another key
+        api.getDict("country");
+        assertEquals(2, requestor.getCount());
+    }
+
+    @Test
+    public void revalidate() throws Exception {
+        RecordingRequestor requestor = createRequestor("no-cache");
+        DictApi api = createApi(requestor);
+        api.getDict("city");
+        List<HttpRequest> requests = requestor.getRequests();
+        Map<String, String> headers = requests.get(0).getHeaders();
+        assertTrue(headers == null || !headers.containsKey("If-None-Match"));
+        // the server responds 304 for the conditional request, and the cached body is reused
+        assertEquals(Arrays.asList("Beijing", "Shanghai"), api.getDict("city"));
+        assertEquals(2, requests.size());
+        assertEquals(ETAG, requests.get(1).getHeaders().get("If-None-Match"));
+    }
+
+    @Test
+    public void noStore() throws Exception {
+        RecordingRequestor requestor = createRequestor("no-store");
+        DictApi api = createApi(requestor);
+        api.getDict("city");
+        api.getDict("city");
+        assertEquals(2, requestor.getCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notCacheable() throws Exception {
+        createApi(createRequestor(null)).post("city");
+    }
+
+    @Test
+    public void evictOneOffEntries() {
+        ResponseCache cache = new ResponseCache(100, true);
+        MockResponse response = new MockResponse(200, "hot");
+        for (int i = 0; i < 10; i++) {
+            cache.put("hot", null, response, 60000);
+            cache.get("hot");
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, null, new MockResponse(200, "cold"), 60000);
+        }
+        assertEquals(100, cache.size());
+        assertEquals("hot", cache.get("hot").getBody());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("hot"));
+    }
+
+    /**
+     * @param cacheControl the Cache-Control of the 200 responses, which carry an ETag
+     */
+    private static RecordingRequestor createRequestor(final String cacheControl) {
+        return new RecordingRequestor(new RecordingRequestor.Responder() {
+            @Override
+            public HttpResponse respond(HttpRequest request) {
+                Map<String, String> headers = request.getHeaders();
+                if (headers != null && ETAG.equals(headers.get("If-None-Match"))) {
+                    return new MockResponse(304, "");
+                }
+                MockResponse response = new MockResponse(200, "[\"Beijing\",\"Shanghai\"]");
+                Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
+                responseHeaders.put("Cache-Control", Collections.singletonList(cacheControl));
+                responseHeaders.put("ETag", Collections.singletonList(ETAG));
+                response.setHeaders(responseHeaders);
+                return response;
+            }
+        });
+    }
+
+    private static DictApi createApi(RecordingRequestor requestor) {
+        return new HttpApiProxyFactory.Builder()
+                .setRequestor(requestor)
+                .setResponseCache(new ResponseCache(16))
+                .build()
+                .getProxy(DictApi.class);
+    }
+
+    interface DictApi {
+        @Cacheable
+        @HttpReq("http://localhost/dict")
+        List<String> getDict(@Param("type") String type) throws IOException;
+
+        @Cacheable
+        @HttpReq("http://localhost/dict")
+        CompletableFuture<List<String>> getDictAsync(@Param("type") String type);
+
+        @Cacheable
+        @HttpReq(value = "http://localhost/dict", method = ReqMethod.POST)
+        List<String> post(@Param("type") String type) throws IOException;
+    }
+}
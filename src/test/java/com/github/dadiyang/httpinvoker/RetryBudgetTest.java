@@ -0,0 +1,98 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.RetryPolicy;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证重试预算对重试次数的限制
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RetryBudgetTest {
+    private static final String URL = "http://localhost:8080/city";
+
+    @Test
+    public void ratio() {
+        RetryBudget budget = new RetryBudget(0.1, 0);
+        assertFalse(budget.tryWithdraw(URL));
+        for (int i = 0; i < 20; i++) {
+            budget.deposit(URL);
+        }
+        assertEquals(2, budget.getAvailable(URL));
+        assertTrue(budget.tryWithdraw(URL));
+        assertTrue(budget.tryWithdraw(URL));
+        assertFalse(budget.tryWithdraw(URL));
+    }
+
+    @Test
+    public void maxRetries() {
+        RetryBudget budget = new RetryBudget(1, 0, 3, false);
+        for (int i = 0; i < 10; i++) {
+            budget.deposit(URL);
+        }
+        assertEquals(3, budget.getAvailable(URL));
+    }
+
+    @Test
+    public void minRetriesPerSecond() throws Exception {
+        RetryBudget budget = new RetryBudget(0, 10);
+        assertEquals(10, budget.getAvailable(URL));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget.tryWithdraw(URL));
+        }
+        assertFalse(budget.tryWithdraw(URL));
+        Thread.sleep(300);
+        assertTrue(budget.tryWithdraw(URL));
+    }
+
+    @Test
+    public void perHost() {
+        RetryBudget budget = RetryBudget.perHost(1, 0);
+        budget.deposit("http://a:8080/city?id=1");
+        assertEquals(1, budget.getAvailable("http://a:8080/other"));
+        assertEquals(0, budget.getAvailable("http://b:8080/city"));
+    }
+
+    @Test
+    public void capRetries() {
+        final AtomicInteger count = new AtomicInteger();
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) throws IOException {
+                count.incrementAndGet();
+                throw new IOException("connection refused");
+            }
+        };
+        Service service = new HttpApiProxyFactory.Builder()
+                .setRequestor(requestor)
+                .setRetryBudget(new RetryBudget(0.5, 0))
+                .build()
+                .getProxy(Service.class);
+        for (int i = 0; i < 10; i++) {
+            try {
+                service.get();
+                fail("should fail");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+        // 10 requests and 5 retries instead of 30 retries
+        assertEquals(15, count.get());
+    }
+
+    interface Service {
+        @RetryPolicy(times = 4, fixedBackOffPeriod = 0)
+        @HttpReq(URL)
+        String get() throws IOException;
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.RetryPolicy;
+import com.github.dadiyang.httpinvoker.enumeration.BackOff;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证重试的退避策略、Retry-After、总超时以及异步方法的重试
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RetryHandlerTest {
+
+    @Test
+    public void exponential() throws Exception {
+        RetryHandler handler = createHandler("exponential");
+        assertEquals(100, handler.onFailure(1, new IOException()));
+        assertEquals(200, handler.onFailure(2, new IOException()));
+        assertEquals(400, handler.onFailure(3, new IOException()));
+        // capped by maxBackOffPeriod
+        assertEquals(500, handler.onFailure(4, new IOException()));
+        assertEquals(RetryHandler.STOP, handler.onFailure(5, new IOException()));
+        assertEquals(RetryHandler.STOP, handler.onFailure(1, new IllegalStateException()));
+    }
+
+    @Test
+    public void jitter() throws Exception {
+        RetryHandler fullJitter = createHandler("fullJitter");
+        RetryHandler decorrelatedJitter = createHandler("decorrelatedJitter");
+        for (int i = 0; i < 100; i++) {
+            long delay = fullJitter.onFailure(3, new IOException());
+            assertTrue(delay >= 0 && delay <= 400);
+            delay = decorrelatedJitter.onFailure(3, new IOException());
+            assertTrue(delay >= 100 && delay <= 500);
+        }
+    }
+
+    @Test
+    public void retryAfter() throws Exception {
+        RetryHandler handler = createHandler("retryAfter");
+        assertEquals(RetryHandler.STOP, handler.onResponse(1, new MockResponse(200, "")));
+        assertEquals(100, handler.onResponse(1, new MockResponse(503, "")));
+        assertEquals(1000, handler.onResponse(1, retryAfter("1")));
+        assertEquals(100, handler.onResponse(1, retryAfter("0")));
+        assertEquals(100, handler.onResponse(1, retryAfter("invalid")));
+        // the server asks us to wait longer than maxBackOffPeriod
+        assertEquals(RetryHandler.STOP, handler.onResponse(1, retryAfter("3")));
+    }
+
+    @Test
+    public void notModified() throws Exception {
+        RetryHandler handler = createHandler("fixed");
+        assertEquals(200, handler.onResponse(1, new MockResponse(302, "")));
+        // 304 是条件请求的正常响应，重试只会得到同样的结果
+        assertEquals(RetryHandler.STOP, handler.onResponse(1, new MockResponse(304, "")));
+    }
+
+    @Test
+    public void fixedIgnoresRetryAfter() throws Exception {
+        RetryHandler handler = createHandler("fixed");
+        // FIXED 策略仍按固定间隔重试，不会因为 Retry-After 超过 maxBackOffPeriod 而放弃
+        assertEquals(200, handler.onResponse(1, retryAfter("30")));
+        assertEquals(200, handler.onResponse(2, retryAfter("0")));
+    }
+
+    @Test
+    public void deadline() throws Exception {
+        HttpRequest request = new HttpRequest("http://localhost");
+        RetryHandler handler = new RetryHandler(getPolicy("deadline"), request, System.nanoTime());
+        handler.beforeAttempt(request);
+        assertTrue(request.getTimeout() <= 300);
+        assertEquals(200, handler.onFailure(1, new IOException()));
+        Thread.sleep(150);
+        // the delay would exceed the deadline
+        assertEquals(RetryHandler.STOP, handler.onFailure(2, new IOException()));
+    }
+
+    @Test
+    public void asyncRetry() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) throws IOException {
+                if (count.incrementAndGet() < 3) {
+                    throw new IOException("connection refused");
+                }
+                return new MockResponse(200, "OK");
+            }
+        };
+        Service service = new HttpApiProxyFactory.Builder().setRequestor(requestor).build().getProxy(Service.class);
+        assertEquals("OK", service.async().get(5, TimeUnit.SECONDS));
+        assertEquals(3, count.get());
+
+        count.set(-10);
+        try {
+            service.async().get(5, TimeUnit.SECONDS);
+            fail("should fail after 5 attempts");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(-5, count.get());
+    }
+
+    private static MockResponse retryAfter(String value) {
+        MockResponse response = new MockResponse(503, "");
+        response.setHeaders(Collections.<String, List<String>>singletonMap("Retry-After", Collections.singletonList(value)));
+        return response;
+    }
+
+    private static RetryHandler createHandler(String method) throws Exception {
+        return new RetryHandler(getPolicy(method), new HttpRequest("http://localhost"), System.nanoTime());
+    }
+
+    private static RetryPolicy getPolicy(String method) throws Exception {
+        return Service.class.getMethod(method).getAnnotation(RetryPolicy.class);
+    }
+
+    interface Service {
+        @RetryPolicy(times = 5, backOff = BackOff.EXPONENTIAL, maxBackOffPeriod = 500)
+        @HttpReq("http://localhost/exponential")
+        String exponential();
+
+        @RetryPolicy(times = 5, backOff = BackOff.EXPONENTIAL, maxBackOffPeriod = 2000)
+        @HttpReq("http://localhost/retryAfter")
+        String retryAfter();
+
+        @RetryPolicy(times = 5, backOff = BackOff.EXPONENTIAL, initialBackOffPeriod = 10)
+        @HttpReq("http://localhost/async")
+        CompletableFuture<String> async();
+
+        @RetryPolicy(times = 5, backOff = BackOff.FULL_JITTER, maxBackOffPeriod = 500)
+        @HttpReq("http://localhost/fullJitter")
+        String fullJitter();
+
+        @RetryPolicy(times = 5, backOff = BackOff.DECORRELATED_JITTER, maxBackOffPeriod = 500)
+        @HttpReq("http://localhost/decorrelatedJitter")
+        String decorrelatedJitter();
+
+        @RetryPolicy(fixedBackOffPeriod = 200)
+        @HttpReq("http://localhost/fixed")
+        String fixed();
+
+        @RetryPolicy(backOff = BackOff.FIXED, fixedBackOffPeriod = 200, deadline = 300)
+        @HttpReq("http://localhost/deadline")
+        String deadline();
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.dadiyang.httpinvoker;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.RequestPreprocessor;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import com.github.dadiyang.httpinvoker.util.VirtualThreads;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证虚拟线程模式：JDK 21+ 上异步请求在虚拟线程中发送，低版本 JDK 上构建时报错；以及无锁创建代理和通过请求获取当前方法
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class VirtualThreadTest {
+
+    @Test
+    public void virtualThreads() throws Exception {
+        final BlockingQueue<Thread> threads = new LinkedBlockingQueue<Thread>();
+        final BlockingQueue<Method> methods = new LinkedBlockingQueue<Method>();
+        HttpApiProxyFactory.Builder builder = new HttpApiProxyFactory.Builder()
+                .setRequestor(new Requestor() {
+                    @Override
+                    public HttpResponse sendRequest(HttpRequest request) {
+                        threads.add(Thread.currentThread());
+                        return new MockResponse(200, "Beijing");
+                    }
+                })
+                .setRequestPreprocessor(new RequestPreprocessor() {
+                    @Override
+                    @SuppressWarnings("deprecation")
+                    public void process(HttpRequest request) {
+                        assertNull(CURRENT_METHOD_THREAD_LOCAL.get());
+                        methods.add(request.getProxiedMethod());
+                    }
+                })
+                .setVirtualThreads(true);
+        if (!VirtualThreads.isSupported()) {
+            try {
+                builder.build();
+                fail("virtual threads should not be available before JDK 21");
+            } catch (IllegalStateException expected) {
+                return;
+            }
+        }
+        CityApi api = builder.build().getProxy(CityApi.class);
+        assertEquals("Beijing", api.getCityAsync().get(5, TimeUnit.SECONDS));
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(threads.take()));
+        assertEquals(CityApi.class.getMethod("getCityAsync"), methods.take());
+    }
+
+    @Test
+    public void getProxyConcurrently() throws Exception {
+        final HttpApiProxyFactory factory = new HttpApiProxyFactory.Builder().build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CityApi>> futures = new ArrayList<Future<CityApi>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<CityApi>() {
+                    @Override
+                    public CityApi call() {
+                        return factory.getProxy(CityApi.class);
+                    }
+                }));
+            }
+            CityApi api = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<CityApi> future : futures) {
+                // every caller gets the same proxy
+                assertSame(api, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    interface CityApi {
+        @HttpReq("http://localhost/city")
+        String getCity() throws IOException;
+
+        @HttpReq("http://localhost/city")
+        CompletableFuture<String> getCityAsync();
+    }
+}
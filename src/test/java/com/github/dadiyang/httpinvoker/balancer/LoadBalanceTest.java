@@ -0,0 +1,113 @@
+package com.github.dadiyang.httpinvoker.balancer;
+
+import com.github.dadiyang.httpinvoker.annotation.HttpApi;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.LoadBalance;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.annotation.RetryPolicy;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.util.RecordingRequestor;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证 prefix 配置为多个地址时的负载均衡和故障节点摘除
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class LoadBalanceTest {
+    private static final String HOSTS = "http://a:8080, http://b:8080,http://c:8080";
+
+    @Test
+    public void roundRobin() {
+        RecordingRequestor requestor = createRequestor(null);
+        CityApi api = createApi(requestor);
+        for (int i = 0; i < 6; i++) {
+            api.getCity(i);
+        }
+        assertEquals(Arrays.asList("http://a:8080/city/0", "http://b:8080/city/1", "http://c:8080/city/2",
+                "http://a:8080/city/3", "http://b:8080/city/4", "http://c:8080/city/5"), requestor.getUrls());
+    }
+
+    @Test
+    public void retryAnotherEndpointAndEject() {
+        RecordingRequestor requestor = createRequestor("http://b:8080");
+        CityApi api = createApi(requestor);
+        for (int i = 0; i < 6; i++) {
+            api.getCity(i);
+        }
+        List<String> urls = requestor.getUrls();
+        // each failure on b is retried on another endpoint
+        assertEquals(8, urls.size());
+        assertEquals("http://b:8080/city/1", urls.get(1));
+        assertFalse(urls.get(2).startsWith("http://b:8080"));
+        assertEquals("http://b:8080/city/3", urls.get(4));
+        assertFalse(urls.get(5).startsWith("http://b:8080"));
+        // b is ejected after 2 consecutive failures
+        assertFalse(urls.get(6).startsWith("http://b:8080"));
+        assertFalse(urls.get(7).startsWith("http://b:8080"));
+    }
+
+    @Test
+    public void leastOutstanding() {
+        EndpointGroup group = new EndpointGroup(Arrays.asList("http://a", "http://b"), new LeastOutstandingLoadBalancer(), 0, 0);
+        Endpoint a = group.getEndpoints().get(0);
+        group.start(a);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("http://b", group.choose(null).getUrl());
+        }
+        assertEquals("http://b", group.choose(a).getUrl());
+    }
+
+    @Test
+    public void powerOfTwoChoices() {
+        EndpointGroup group = new EndpointGroup(Arrays.asList("http://a", "http://b"), new PowerOfTwoChoicesLoadBalancer(), 0, 0);
+        Endpoint a = group.getEndpoints().get(0);
+        Endpoint b = group.getEndpoints().get(1);
+        group.start(a);
+        group.complete(a, 100000000L, 200);
+        group.start(b);
+        group.complete(b, 1000000L, 200);
+        // with only two endpoints, both are compared every time
+        for (int i = 0; i < 10; i++) {
+            assertSame(b, group.choose(null));
+        }
+    }
+
+    /**
+     * @param failedHost the requests to this host fail with 503
+     */
+    private static RecordingRequestor createRequestor(final String failedHost) {
+        return new RecordingRequestor(new RecordingRequestor.Responder() {
+            @Override
+            public HttpResponse respond(HttpRequest request) {
+                if (failedHost != null && request.getUrl().startsWith(failedHost)) {
+                    return new MockResponse(503, "");
+                }
+                return new MockResponse(200, "");
+            }
+        });
+    }
+
+    private static CityApi createApi(RecordingRequestor requestor) {
+        Properties properties = new Properties();
+        properties.setProperty("city.hosts", HOSTS);
+        return requestor.createProxy(CityApi.class, properties);
+    }
+
+    @HttpApi(prefix = "${city.hosts}")
+    @LoadBalance(maxFailures = 2)
+    interface CityApi {
+        @RetryPolicy(times = 2)
+        @HttpReq("/city/{id}")
+        void getCity(@Param("id") int id);
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.dadiyang.httpinvoker.breaker;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.annotation.CircuitBreaker;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.enumeration.CircuitState;
+import com.github.dadiyang.httpinvoker.exception.CircuitBreakerOpenException;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证熔断器的状态转换、慢调用统计、按主机隔离以及降级
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void openAndClose() throws Exception {
+        SlidingWindowCircuitBreaker breaker = new SlidingWindowCircuitBreaker(50, 100, 0, 10, 4, 100, 2);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onComplete(0, i == 0);
+        }
+        // 1 of 3 failed, not enough calls yet
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        breaker.onComplete(0, true);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(150);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        // only 2 probing calls are permitted
+        assertFalse(breaker.tryAcquire());
+        breaker.onComplete(0, false);
+        breaker.onComplete(0, false);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void reopenOnProbeFailure() throws Exception {
+        SlidingWindowCircuitBreaker breaker = new SlidingWindowCircuitBreaker(50, 100, 0, 10, 1, 100, 1);
+        breaker.onComplete(0, true);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        Thread.sleep(150);
+        assertTrue(breaker.tryAcquire());
+        breaker.onComplete(0, true);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void slowCalls() {
+        SlidingWindowCircuitBreaker breaker = new SlidingWindowCircuitBreaker(50, 50, 100, 10, 2, 1000, 1);
+        breaker.onComplete(TimeUnit.MILLISECONDS.toNanos(10), false);
+        breaker.onComplete(TimeUnit.MILLISECONDS.toNanos(10), false);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        breaker.onComplete(TimeUnit.MILLISECONDS.toNanos(200), false);
+        breaker.onComplete(TimeUnit.MILLISECONDS.toNanos(200), false);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void failFastPerHost() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        Service service = createService(count);
+        for (int i = 0; i < 3; i++) {
+            try {
+                service.get("a:8080");
+                fail("should fail");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+        try {
+            service.get("a:8080");
+            fail("should be rejected");
+        } catch (CircuitBreakerOpenException expected) {
+            // expected
+        }
+        assertEquals(3, count.get());
+        // the breaker of another host is still closed
+        assertEquals("OK", service.get("b:8080"));
+        assertEquals(4, count.get());
+    }
+
+    @Test
+    public void fallback() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        Service service = createService(count);
+        for (int i = 0; i < 3; i++) {
+            try {
+                service.withFallback("a:8080");
+                fail("only the rejected calls fall back");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+        assertEquals("fallback", service.withFallback("a:8080"));
+        assertEquals(3, count.get());
+
+        try {
+            service.async("a:8080").get(5, TimeUnit.SECONDS);
+            fail("only the rejected calls fall back");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals("fallback", service.async("a:8080").get(5, TimeUnit.SECONDS));
+        assertEquals(4, count.get());
+    }
+
+    private static Service createService(final AtomicInteger count) {
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) throws IOException {
+                count.incrementAndGet();
+                if (request.getUrl().startsWith("http://a:8080")) {
+                    throw new IOException("connection refused");
+                }
+                return new MockResponse(200, "OK");
+            }
+        };
+        return new HttpApiProxyFactory.Builder().setRequestor(requestor).build().getProxy(Service.class);
+    }
+
+    public static class ConstantFallback implements CircuitBreakerFallback {
+        @Override
+        public Object fallback(Method method, Object[] args, CircuitBreakerOpenException e) {
+            return "fallback";
+        }
+    }
+
+    @CircuitBreaker(minimumCalls = 3, windowSize = 10)
+    interface Service {
+        @HttpReq("http://{host}/city")
+        String get(@Param("host") String host) throws IOException;
+
+        @CircuitBreaker(minimumCalls = 3, windowSize = 10, fallback = ConstantFallback.class)
+        @HttpReq("http://{host}/city")
+        String withFallback(@Param("host") String host) throws IOException;
+
+        @CircuitBreaker(minimumCalls = 1, windowSize = 10, fallback = ConstantFallback.class)
+        @HttpReq("http://{host}/async")
+        CompletableFuture<String> async(@Param("host") String host);
+    }
+}
@@ -10,10 +10,13 @@ import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
 import com.github.dadiyang.httpinvoker.requestor.MultiPart;
 import com.github.dadiyang.httpinvoker.requestor.Status;
 
+import java.io.File;
 import java.io.InputStream;
+import java.io.Reader;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * a example interface for testing
@@ -40,6 +43,13 @@ public interface CityService {
     @HttpReq("${api.url.city.host2}/city/getById")
     City getCity(@Param("id") int id);
 
+    /**
+     * 返回 Future 的方法会异步发送请求
+     */
+    @HttpReq("${api.url.city.host2}/city/getById")
+    @RetryPolicy(times = 0)
+    Future<City> getCityAsync(@Param("id") int id);
+
     /**
      * 如果是集合类或数组的参数数据会直接当成请求体直接发送
      */
@@ -129,6 +139,27 @@ public interface CityService {
     String upload(@Param("fileName") String fileName,
                   @Param(value = "media") InputStream in);
 
+    /**
+     * 上传文件，文件内容会直接从磁盘流式发送
+     *
+     * @param file 文件
+     */
+    @HttpReq(value = "/picture/upload", method = "POST")
+    @RetryPolicy(times = 0)
+    String uploadFile(@Param(value = "media") File file);
+
+    /**
+     * 返回值为 InputStream 时，响应体不会被读入内存，而是以流的方式交给调用方
+     */
+    @HttpReq("/export")
+    InputStream export();
+
+    /**
+     * 返回值为 Reader 时同样是流式读取
+     */
+    @HttpReq("/export")
+    Reader exportAsReader();
+
     /**
      * 提交 multipart/form-data 表单，实现多文件上传
      *
@@ -225,4 +256,37 @@ public interface CityService {
     @NotResultBean
     @HttpReq(value = "/string")
     String getString();
+
+    /**
+     * 相同的并发请求只发送一次，各调用方共享同一个响应
+     */
+    @Coalesce
+    @HttpReq("/coalesce")
+    List<City> getCitiesCoalesced(@Param("type") String type);
+
+    /**
+     * 响应慢时发送对冲请求，取先返回的结果
+     */
+    @Hedge(delay = 100)
+    @HttpReq("/hedge")
+    String getHedged();
+
+    /**
+     * 按响应头缓存响应，过期后使用条件请求重新验证
+     */
+    @Cacheable
+    @HttpReq("/cached")
+    List<City> getCitiesCached(@Param("key") String key);
+
+    /**
+     * 批量查询，请求体为 id 列表
+     */
+    @HttpReq(value = "/batch", method = ReqMethod.POST)
+    List<City> getCitiesInBatch(List<Integer> ids);
+
+    /**
+     * 并发的单个查询合并为一次批量查询，按 id 分发给各调用方
+     */
+    @Batch(method = "getCitiesInBatch", key = "id", window = 200)
+    City getCityInBatch(int id);
 }
@@ -3,22 +3,29 @@ package com.github.dadiyang.httpinvoker.interfaces;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.TypeReference;
 import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.annotation.*;
 import com.github.dadiyang.httpinvoker.entity.City;
 import com.github.dadiyang.httpinvoker.entity.ComplicatedInfo;
 import com.github.dadiyang.httpinvoker.entity.ResultBean;
 import com.github.dadiyang.httpinvoker.entity.ResultBeanWithStatusAsCode;
+import com.github.dadiyang.httpinvoker.exception.BulkheadFullException;
 import com.github.dadiyang.httpinvoker.requestor.*;
 import com.github.dadiyang.httpinvoker.util.CityUtil;
 import com.github.dadiyang.httpinvoker.util.ParamUtils;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -26,8 +33,11 @@ import java.lang.reflect.Method;
 import java.net.URLEncoder;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.dadiyang.httpinvoker.util.CityUtil.createCities;
@@ -57,6 +67,10 @@ public class CityServiceTest {
         data.add(new Object[]{new JsoupRequestor()});
         data.add(new Object[]{new DefaultHttpRequestor()});
         data.add(new Object[]{new HttpClientRequestor()});
+        data.add(new Object[]{new HttpAsyncClientRequestor()});
+        if (JdkHttpClientRequestorFactory.isSupported()) {
+            data.add(new Object[]{JdkHttpClientRequestorFactory.create()});
+        }
         return data;
     }
 
@@ -95,6 +109,24 @@ public class CityServiceTest {
         assertEquals(mockCity, city);
     }
 
+    @Test
+    public void getCityAsync() throws Exception {
+        int id = 1;
+        String uri = "/city/getById?id=" + id;
+        City mockCity = createCity(id);
+        wireMockRule.stubFor(get(urlEqualTo(uri)).willReturn(aResponse().withBody(JSON.toJSONString(mockCity))));
+        Future<City> future = cityService.getCityAsync(id);
+        assertEquals(mockCity, future.get(5, TimeUnit.SECONDS));
+
+        wireMockRule.stubFor(get(urlEqualTo("/city/getById?id=2")).willReturn(aResponse().withStatus(500)));
+        try {
+            cityService.getCityAsync(2).get(5, TimeUnit.SECONDS);
+            fail("the future should be completed exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
     @Test
     public void saveCities() {
         List<City> mockCities = createCities();
@@ -412,6 +444,60 @@ public class CityServiceTest {
         }
     }
 
+    @Test
+    public void uploadFile() throws IOException {
+        String uri = "/city/picture/upload";
+        String randomName = UUID.randomUUID().toString();
+        File file = File.createTempFile("upload", ".txt");
+        try {
+            byte[] bytes = randomName.getBytes("UTF-8");
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(bytes);
+            } finally {
+                closeStream(out);
+            }
+            wireMockRule.stubFor(post(urlPathEqualTo(uri))
+                    .withMultipartRequestBody(aMultipart("media").withBody(binaryEqualTo(bytes)))
+                    .willReturn(aResponse().withBody(randomName)));
+            assertEquals(randomName, cityService.uploadFile(file));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void export() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("北京,").append(i).append('\n');
+        }
+        String content = sb.toString();
+        wireMockRule.stubFor(get(urlEqualTo("/city/export")).willReturn(aResponse()
+                .withHeader("Content-Type", "text/csv; charset=UTF-8").withBody(content)));
+        // read the streams several times so that leaked connections would exhaust the pool
+        for (int i = 0; i < 20; i++) {
+            InputStream in = cityService.export();
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, len);
+                }
+                assertEquals(content, new String(out.toByteArray(), "UTF-8"));
+            } finally {
+                closeStream(in);
+            }
+            BufferedReader reader = (BufferedReader) cityService.exportAsReader();
+            try {
+                assertEquals("北京,0", reader.readLine());
+            } finally {
+                closeStream(reader);
+            }
+        }
+    }
+
     @Test
     public void multipartTest() throws IOException, InterruptedException {
         String uri = "/city/files/upload";
@@ -457,16 +543,19 @@ public class CityServiceTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation")
     public void preprocessorTest() {
         HttpApiProxyFactory factory = new HttpApiProxyFactory(new RequestPreprocessor() {
             @Override
             public void process(HttpRequest request) {
                 request.addCookie("authCookies", authKey);
                 request.addHeader("authHeaders", authKey);
+                // 兼容已废弃的 ThreadLocal，同时可以通过请求获取当前方法
                 Method method = CURRENT_METHOD_THREAD_LOCAL.get();
                 System.out.println("current method " + method.getName());
                 try {
                     assertEquals(CityService.class.getMethod("getCity", int.class), method);
+                    assertEquals(method, request.getProxiedMethod());
                 } catch (NoSuchMethodException e) {
                     e.printStackTrace();
                     fail("");
@@ -621,6 +710,149 @@ public class CityServiceTest {
         assertEquals(date.getTime(), now.getTime());
     }
 
+    @Test
+    public void coalesce() throws Exception {
+        List<City> mockCities = createCities();
+        wireMockRule.stubFor(get(urlEqualTo("/city/coalesce?type=all"))
+                .willReturn(aResponse().withBody(JSON.toJSONString(mockCities)).withFixedDelay(500)));
+        int callers = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<City>>> futures = new ArrayList<Future<List<City>>>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executorService.submit(new Callable<List<City>>() {
+                    @Override
+                    public List<City> call() throws Exception {
+                        start.await();
+                        return cityService.getCitiesCoalesced("all");
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<List<City>> future : futures) {
+                // 跟随者拿到的响应也必须能被完整读取
+                assertEquals(mockCities, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/city/coalesce?type=all")));
+    }
+
+    @Test
+    public void hedge() {
+        String uri = "/city/hedge";
+        // 第一个请求很慢，对冲请求立即返回
+        wireMockRule.stubFor(get(urlEqualTo(uri)).inScenario("hedge").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withBody("slow").withFixedDelay(2000)).willSetStateTo("hedged"));
+        wireMockRule.stubFor(get(urlEqualTo(uri)).inScenario("hedge").whenScenarioStateIs("hedged")
+                .willReturn(aResponse().withBody("fast")));
+        long start = System.nanoTime();
+        assertEquals("fast", cityService.getHedged());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        wireMockRule.verify(2, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    public void cacheable() {
+        List<City> mockCities = createCities();
+        // 默认的缓存是全局共享的，使用随机的参数避免命中其他用例的缓存
+        String uri = "/city/cached?key=" + authKey;
+        wireMockRule.stubFor(get(urlEqualTo(uri)).willReturn(aResponse().withBody(JSON.toJSONString(mockCities))
+                .withHeader("Cache-Control", "no-cache").withHeader("ETag", "\"v1\"")));
+        // Jetty 压缩响应时会给 ETag 加上后缀
+        wireMockRule.stubFor(get(urlEqualTo(uri)).withHeader("If-None-Match", containing("v1"))
+                .willReturn(aResponse().withStatus(304)));
+        assertEquals(mockCities, cityService.getCitiesCached(authKey));
+        // 服务端返回 304，复用缓存的响应体
+        assertEquals(mockCities, cityService.getCitiesCached(authKey));
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(uri)).withHeader("If-None-Match", containing("v1")));
+
+        String freshUri = "/city/cached?key=fresh" + authKey;
+        wireMockRule.stubFor(get(urlEqualTo(freshUri)).willReturn(aResponse().withBody(JSON.toJSONString(mockCities))
+                .withHeader("Cache-Control", "max-age=60")));
+        assertEquals(mockCities, cityService.getCitiesCached("fresh" + authKey));
+        // 新鲜的响应直接复用，不再发送请求
+        assertEquals(mockCities, cityService.getCitiesCached("fresh" + authKey));
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(freshUri)));
+    }
+
+    @Test
+    public void batch() throws Exception {
+        String uri = "/city/batch";
+        wireMockRule.stubFor(post(urlEqualTo(uri)).willReturn(aResponse().withBody(JSON.toJSONString(createCities()))));
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<City>> futures = new ArrayList<Future<City>>();
+            for (int i = 1; i <= 4; i++) {
+                final int id = i;
+                futures.add(executorService.submit(new Callable<City>() {
+                    @Override
+                    public City call() throws Exception {
+                        start.await();
+                        return cityService.getCityInBatch(id);
+                    }
+                }));
+            }
+            start.countDown();
+            for (int i = 1; i <= 4; i++) {
+                assertEquals(createCity(i), futures.get(i - 1).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    public void loadBalance() {
+        // 第一个节点无法连接，失败的请求在另一个节点上重试，之后该节点被摘除
+        System.setProperty("api.url.city.hosts", "http://127.0.0.1:1,http://localhost:" + PORT);
+        BalancedCityService service = new HttpApiProxyFactory.Builder().setRequestor(requestor).build()
+                .getProxy(BalancedCityService.class);
+        String uri = "/city/getById?id=1";
+        wireMockRule.stubFor(get(urlEqualTo(uri)).willReturn(aResponse().withBody(JSON.toJSONString(createCity(1)))));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(createCity(1), service.getCity(1));
+        }
+        wireMockRule.verify(4, getRequestedFor(urlEqualTo(uri)));
+    }
+
+    @Test
+    public void bulkhead() throws Exception {
+        String uri = "/city/getById?id=1";
+        wireMockRule.stubFor(get(urlEqualTo(uri))
+                .willReturn(aResponse().withBody(JSON.toJSONString(createCity(1))).withFixedDelay(1000)));
+        final LimitedCityService service = new HttpApiProxyFactory.Builder().setRequestor(requestor).build()
+                .getProxy(LimitedCityService.class);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<City> first = executorService.submit(new Callable<City>() {
+                @Override
+                public City call() {
+                    return service.getCity(1);
+                }
+            });
+            // 等待第一个请求到达服务端
+            long deadline = System.currentTimeMillis() + 5000;
+            while (wireMockRule.findAll(getRequestedFor(urlEqualTo(uri))).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            try {
+                service.getCity(1);
+                fail("超过并发上限的请求应快速失败");
+            } catch (BulkheadFullException expected) {
+                // 上限为 1
+            }
+            assertEquals(createCity(1), first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(uri)));
+    }
+
     @Test
     public void getString() {
         String uri = "/city/string";
@@ -631,4 +863,19 @@ public class CityServiceTest {
         str = cityServiceWithResultBeanResponseProcessor.getString();
         assertEquals(rs, str);
     }
-}
\ No newline at end of file
+
+    @HttpApi(prefix = "${api.url.city.host}")
+    @Bulkhead(initialLimit = 1, maxLimit = 1)
+    interface LimitedCityService {
+        @HttpReq("/city/getById")
+        City getCity(@Param("id") int id);
+    }
+
+    @HttpApi(prefix = "${api.url.city.hosts}")
+    @LoadBalance(maxFailures = 1)
+    interface BalancedCityService {
+        @RetryPolicy(times = 2)
+        @HttpReq("/city/getById")
+        City getCity(@Param("id") int id);
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.dadiyang.httpinvoker.limiter;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.annotation.Bulkhead;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.exception.BulkheadFullException;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.AsyncRequestor;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.ResponseCallback;
+import com.github.dadiyang.httpinvoker.util.RecordingRequestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证并发限制：按 RTT 自适应调整上限，超过上限的请求快速失败
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class BulkheadTest {
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void adapt() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        // no queue while the latency stays at the min one
+        completeAll(limiter, RTT);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10);
+        // the requests queue up in the upstream
+        completeAll(limiter, RTT * 10);
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk < grown);
+        assertTrue(limiter.tryAcquire());
+        limiter.onComplete(RTT, true);
+        assertEquals((int) (shrunk * 0.9), limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void rejectBeyondLimit() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingRequestor requestor = new RecordingRequestor(new RecordingRequestor.Responder() {
+            @Override
+            public HttpResponse respond(HttpRequest request) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new MockResponse(200, "Beijing");
+            }
+        });
+        final CityApi api = requestor.createProxy(CityApi.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<String> call = new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return api.getCity();
+                }
+            };
+            Future<String> first = executor.submit(call);
+            Future<String> second = executor.submit(call);
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            try {
+                api.getCity();
+                fail("should be rejected");
+            } catch (BulkheadFullException expected) {
+                // the limit is 2
+            }
+            release.countDown();
+            assertEquals("Beijing", first.get(5, TimeUnit.SECONDS));
+            assertEquals("Beijing", second.get(5, TimeUnit.SECONDS));
+            assertEquals("Beijing", api.getCity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void releaseWhenAsyncRequestorThrows() throws Exception {
+        // 例如已关闭的异步请求器在发送时直接抛出异常
+        AsyncRequestor requestor = new AsyncRequestor() {
+            @Override
+            public void sendRequestAsync(HttpRequest request, ResponseCallback callback) {
+                throw new IllegalStateException("closed");
+            }
+
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) {
+                return new MockResponse(200, "Beijing");
+            }
+        };
+        CityApi api = new HttpApiProxyFactory.Builder().setRequestor(requestor).build().getProxy(CityApi.class);
+        // 超过上限次数的调用仍然得到请求器的异常，说明许可已被释放
+        for (int i = 0; i < 3; i++) {
+            try {
+                api.getCityAsync().get(5, TimeUnit.SECONDS);
+                fail("should fail");
+            } catch (ExecutionException e) {
+                assertFalse(e.getCause() instanceof BulkheadFullException);
+                assertEquals("closed", e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * acquire as many permits as the limit allows, then complete them with the given round trip time
+     */
+    private static void completeAll(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.onComplete(rttNanos, false);
+        }
+    }
+
+    @Bulkhead(initialLimit = 2, maxLimit = 2)
+    interface CityApi {
+        @HttpReq("http://localhost/city")
+        String getCity() throws IOException;
+
+        @HttpReq("http://localhost/city")
+        CompletableFuture<String> getCityAsync();
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.dadiyang.httpinvoker.limiter;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.RateLimit;
+import com.github.dadiyang.httpinvoker.enumeration.RateLimitMode;
+import com.github.dadiyang.httpinvoker.exception.RateLimitExceededException;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证令牌桶限流：突发容量、FAIL 模式快速失败、BLOCK 模式等待以及同一工厂的代理共享额度
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RateLimitTest {
+
+    @Test
+    public void burst() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+        long wait = bucket.reserve(TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(50) && wait <= TimeUnit.MILLISECONDS.toNanos(100));
+        // the next one has to wait one more interval, which is beyond the max wait
+        assertEquals(-1, bucket.reserve(TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+
+    @Test
+    public void failAndShareByName() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        HttpApiProxyFactory factory = createFactory(count);
+        GeoApi geoApi = factory.getProxy(GeoApi.class);
+        AnotherGeoApi anotherGeoApi = factory.getProxy(AnotherGeoApi.class);
+        geoApi.getCity();
+        anotherGeoApi.getCity();
+        try {
+            geoApi.getCity();
+            fail("should be rejected");
+        } catch (RateLimitExceededException expected) {
+            // the burst of 2 is shared by the two interfaces
+        }
+        assertEquals(2, count.get());
+        // another factory has its own buckets
+        createFactory(count).getProxy(GeoApi.class).getCity();
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    public void block() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        CityApi api = createFactory(count).getProxy(CityApi.class);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            api.getCity();
+        }
+        // 20 permits per second, the second and the third wait 50ms each
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+        start = System.nanoTime();
+        CompletableFuture<String> future = api.getCityAsync();
+        // the caller is not blocked
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 30);
+        assertEquals("Beijing", future.get(5, TimeUnit.SECONDS));
+        assertEquals(4, count.get());
+    }
+
+    private static HttpApiProxyFactory createFactory(final AtomicInteger count) {
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) {
+                count.incrementAndGet();
+                return new MockResponse(200, "Beijing");
+            }
+        };
+        return new HttpApiProxyFactory.Builder().setRequestor(requestor).build();
+    }
+
+    @RateLimit(permitsPerSecond = 1, burst = 2, mode = RateLimitMode.FAIL, name = "geo")
+    interface GeoApi {
+        @HttpReq("http://localhost/geo/city")
+        String getCity() throws IOException;
+    }
+
+    @RateLimit(permitsPerSecond = 1, burst = 2, mode = RateLimitMode.FAIL, name = "geo")
+    interface AnotherGeoApi {
+        @HttpReq("http://localhost/geo/city")
+        String getCity() throws IOException;
+    }
+
+    @RateLimit(permitsPerSecond = 20)
+    interface CityApi {
+        @HttpReq("http://localhost/city")
+        String getCity() throws IOException;
+
+        @HttpReq("http://localhost/city")
+        CompletableFuture<String> getCityAsync();
+    }
+}
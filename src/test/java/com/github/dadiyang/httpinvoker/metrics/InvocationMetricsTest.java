@@ -0,0 +1,117 @@
+package com.github.dadiyang.httpinvoker.metrics;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.annotation.HttpReq;
+import com.github.dadiyang.httpinvoker.annotation.Param;
+import com.github.dadiyang.httpinvoker.annotation.RetryPolicy;
+import com.github.dadiyang.httpinvoker.entity.City;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证每次调用都会记录指标，包括重试次数、状态码和响应体大小
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class InvocationMetricsTest {
+    private static final String CITY_JSON = "{\"id\":1,\"name\":\"北京\"}";
+
+    @Test
+    public void recordInvocation() {
+        final List<InvocationRecord> records = new ArrayList<InvocationRecord>();
+        CityApi api = createApi(new InvocationMetrics() {
+            @Override
+            public void recordInvocation(InvocationRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void recordPoolLease(String route, long waitNanos) {
+            }
+        });
+        assertEquals(new City(1, "北京"), api.getCity(1));
+        assertEquals(1, records.size());
+        InvocationRecord record = records.get(0);
+        assertEquals(CityApi.class, record.getApiClass());
+        assertEquals("getCity", record.getMethod().getName());
+        assertEquals("http://localhost/city/1", record.getUrl());
+        assertEquals(200, record.getStatusCode());
+        assertEquals(2, record.getAttempts());
+        assertEquals(1, record.getRetries());
+        assertEquals(CITY_JSON.getBytes().length, record.getResponseBytes());
+        assertNull(record.getException());
+        assertTrue(record.getTotalNanos() >= record.getNetworkNanos() + record.getProcessNanos());
+
+        try {
+            api.getCity(2);
+            fail("status code 404 should fail the invocation");
+        } catch (UndeclaredThrowableException e) {
+            assertEquals(2, records.size());
+            assertEquals(404, records.get(1).getStatusCode());
+            assertSame(e.getCause(), records.get(1).getException());
+        }
+    }
+
+    @Test
+    public void micrometer() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        CityApi api = createApi(new MicrometerInvocationMetrics(registry));
+        api.getCity(1);
+        api.getCity(1);
+        assertEquals(2, registry.get("http.api.invoker.requests")
+                .tags("api", "CityApi", "method", "getCity", "status", "200", "exception", "none").timer().count());
+        assertEquals(2.0, registry.get("http.api.invoker.retries").counter().count(), 0);
+        assertEquals(2 * CITY_JSON.getBytes().length,
+                registry.get("http.api.invoker.response.size").summary().totalAmount(), 0);
+    }
+
+    /**
+     * the first request to city 1 fails with 503, and city 2 is not found
+     */
+    private static CityApi createApi(InvocationMetrics metrics) {
+        final AtomicInteger count = new AtomicInteger();
+        Requestor requestor = new Requestor() {
+            @Override
+            public HttpResponse sendRequest(HttpRequest request) throws IOException {
+                if (request.getUrl().endsWith("/2")) {
+                    return new MockResponse(404, "");
+                }
+                if (count.incrementAndGet() % 2 == 1) {
+                    return new MockResponse(503, "");
+                }
+                MockResponse response = new MockResponse(200, CITY_JSON);
+                Map<String, List<String>> headers = Collections.singletonMap("Content-Length",
+                        Collections.singletonList(String.valueOf(CITY_JSON.getBytes().length)));
+                response.setHeaders(headers);
+                return response;
+            }
+        };
+        return new HttpApiProxyFactory.Builder()
+                .setRequestor(requestor)
+                .setInvocationMetrics(metrics)
+                .build()
+                .getProxy(CityApi.class);
+    }
+
+    interface CityApi {
+        @RetryPolicy(times = 2)
+        @HttpReq("http://localhost/city/{id}")
+        City getCity(@Param("id") int id);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertiesBasePropertyResolver;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class HttpClientConfigTest {
+
+    @Test
+    public void fromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("httpclient.max-total", "200");
+        properties.setProperty("httpclient.max-per-route", "50");
+        properties.setProperty("httpclient.route-max-per-route", "localhost:8080=8, https://api.example.com=64");
+        properties.setProperty("httpclient.connect-timeout", "1000");
+        properties.setProperty("httpclient.keep-alive", "30000");
+        HttpClientConfig config = HttpClientConfig.from(new PropertiesBasePropertyResolver(properties));
+        assertEquals(200, config.getMaxTotal());
+        assertEquals(50, config.getMaxPerRoute());
+        assertEquals(Integer.valueOf(8), config.getRouteMaxPerRoute().get("localhost:8080"));
+        assertEquals(Integer.valueOf(64), config.getRouteMaxPerRoute().get("https://api.example.com"));
+        assertEquals(1000, config.getConnectTimeout());
+        assertEquals(30000L, config.getKeepAlive());
+        // absent ones use the default values
+        HttpClientConfig defaults = new HttpClientConfig.Builder().build();
+        assertEquals(defaults.getSocketTimeout(), config.getSocketTimeout());
+        assertEquals(defaults.getIdleTimeout(), config.getIdleTimeout());
+        // the client can be created with the config
+        assertNotNull(new HttpClientRequestor(config).getHttpClient());
+    }
+
+    @Test
+    public void builtConfigIsNotShared() {
+        HttpClientConfig.Builder builder = new HttpClientConfig.Builder().setMaxTotal(100).setMaxPerRoute("localhost:8080", 8);
+        HttpClientConfig config = builder.build();
+        builder.setMaxTotal(200).setMaxPerRoute("localhost:8080", 16);
+        assertNotSame(config, builder.build());
+        assertEquals(100, config.getMaxTotal());
+        assertEquals(Integer.valueOf(8), config.getRouteMaxPerRoute().get("localhost:8080"));
+        assertEquals(200, builder.build().getMaxTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notNumber() {
+        Properties properties = new Properties();
+        properties.setProperty("httpclient.max-total", "many");
+        HttpClientConfig.from(new PropertiesBasePropertyResolver(properties));
+    }
+
+    @Test
+    public void asyncRequestorFromConfig() throws Exception {
+        HttpClientConfig config = new HttpClientConfig.Builder().setMaxTotal(100).setMaxPerRoute("localhost:8080", 8).build();
+        HttpAsyncClientRequestor requestor = new HttpAsyncClientRequestor(config);
+        assertNotNull("阻塞的请求使用同一配置创建的 httpClient", requestor.getHttpClient());
+        assertTrue(requestor.getHttpAsyncClient().isRunning());
+        requestor.close();
+        assertFalse("关闭后 I/O reactor 应停止", requestor.getHttpAsyncClient().isRunning());
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.dadiyang.httpinvoker.requestor;
+
+import com.github.dadiyang.httpinvoker.entity.City;
+import com.github.dadiyang.httpinvoker.exception.UnexpectedResultException;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.serializer.FastJsonJsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.GsonJsonSerializer;
+import com.github.dadiyang.httpinvoker.serializer.JsonSerializerDecider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分别使用 fastjson 和 gson 验证 ResultBean 的解包
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+@RunWith(Parameterized.class)
+public class ResultBeanResponseProcessorTest {
+    private final String jsonInstanceKey;
+    private String originalKey;
+    private ResultBeanResponseProcessor processor = new ResultBeanResponseProcessor();
+
+    public ResultBeanResponseProcessorTest(String jsonInstanceKey) {
+        this.jsonInstanceKey = jsonInstanceKey;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<String> jsonInstanceKeys() {
+        JsonSerializerDecider.registerJsonSerializer("FastJson", FastJsonJsonSerializer.getInstance());
+        JsonSerializerDecider.registerJsonSerializer("Gson", GsonJsonSerializer.getInstance());
+        return Arrays.asList("FastJson", "Gson");
+    }
+
+    @Before
+    public void setUp() {
+        originalKey = JsonSerializerDecider.getJsonInstanceKey();
+        JsonSerializerDecider.setJsonInstanceKey(jsonInstanceKey);
+    }
+
+    @After
+    public void tearDown() {
+        JsonSerializerDecider.setJsonInstanceKey(originalKey);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void unwrapData() throws Exception {
+        MockResponse response = new MockResponse(200, "{\"Code\":0,\"msg\":\"success\",\"data\":[{\"id\":1,\"name\":\"北京\"},{\"id\":2,\"name\":\"上海\"}]}");
+        List<City> cities = (List<City>) processor.process(response, Service.class.getMethod("getCities"));
+        assertEquals(2, cities.size());
+        assertEquals(new City(1, "北京"), cities.get(0));
+        assertEquals(new City(2, "上海"), cities.get(1));
+    }
+
+    @Test
+    public void unexpectedCode() throws Exception {
+        // data 与返回值类型不匹配时，仍然应该抛出接口返回的错误信息
+        MockResponse response = new MockResponse(200, "{\"code\":1,\"message\":\"city not found\",\"data\":\"\"}");
+        try {
+            processor.process(response, Service.class.getMethod("getCities"));
+            fail("code 不是期望的值时应抛出异常");
+        } catch (UnexpectedResultException e) {
+            assertEquals("city not found", e.getMessage());
+        }
+    }
+
+    @Test
+    public void notResultBean() throws Exception {
+        MockResponse response = new MockResponse(200, "{\"id\":1,\"name\":\"北京\"}");
+        assertEquals(new City(1, "北京"), processor.process(response, Service.class.getMethod("getCity")));
+    }
+
+    interface Service {
+        List<City> getCities();
+
+        City getCity();
+    }
+}
@@ -1,10 +1,25 @@
 package com.github.dadiyang.httpinvoker.serializer;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
 
 public class JsonSerializerDeciderTest {
+    private String originalKey;
+
+    @Before
+    public void setUp() {
+        originalKey = JsonSerializerDecider.getJsonInstanceKey();
+    }
+
+    @After
+    public void tearDown() {
+        // 恢复全局的序列化实现，避免影响其他测试
+        JsonSerializerDecider.setJsonInstanceKey(originalKey);
+    }
+
     @Test
     public void getJsonSerializer() {
         JsonSerializer jsonSerializer = JsonSerializerDecider.getJsonSerializer();
@@ -15,4 +30,4 @@ public class JsonSerializerDeciderTest {
         JsonSerializer gson = JsonSerializerDecider.getJsonSerializer();
         assertTrue("指定使用Gson实现，则必须返回gson实现", gson instanceof GsonJsonSerializer);
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,11 @@ package com.github.dadiyang.httpinvoker.serializer;
 import com.github.dadiyang.httpinvoker.entity.City;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -88,4 +92,20 @@ public class JsonSerializerTest {
         assertTrue("应包含指定的元素" + fastJsonArr, fastJsonArr.contains(4));
         assertTrue("应包含指定的元素" + fastJsonArr, fastJsonArr.contains(5));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void streaming() throws IOException {
+        City city = new City();
+        city.setId(1);
+        city.setName("北京");
+        Charset utf8 = Charset.forName("UTF-8");
+        StreamingJsonSerializer[] serializers = {gsonJsonSerializer, fastJsonJsonSerializer};
+        for (StreamingJsonSerializer serializer : serializers) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            serializer.serialize(city, out);
+            assertEquals("写入流的内容应与序列化为字符串的结果一致", serializer.serialize(city), new String(out.toByteArray(), utf8));
+            City parsed = serializer.parseObject(new ByteArrayInputStream(out.toByteArray()), utf8, City.class);
+            assertEquals("从流中反序列化的结果应与原对象相等", city, parsed);
+        }
+    }
+}
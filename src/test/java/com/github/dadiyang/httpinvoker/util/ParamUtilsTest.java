@@ -4,6 +4,9 @@ import com.alibaba.fastjson.JSON;
 import com.github.dadiyang.httpinvoker.entity.ComplicatedInfo;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -18,4 +21,27 @@ public class ParamUtilsTest {
         System.out.println(rs);
         assertEquals("{msg=123, cities[3][id]=4, city[name]=北京, cities[2][id]=3, cities[1][id]=2, cities[2][name]=广州, city[id]=1, cities[0][name]=北京, cities[0][id]=1, cities[1][name]=上海, cities[3][name]=深圳}", rs.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void toMap() {
+        ComplicatedInfo info = new ComplicatedInfo(CityUtil.createCities(), "123", CityUtil.createCity(1));
+        assertEquals("直接转换的结果应与 json 序列化后再解析的结果一致", JSON.parseObject(JSON.toJSONString(info)), ParamUtils.toMap(info));
+
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("date", new Date());
+        map.put("double", 1.5);
+        map.put("ids", new int[]{1, 2, 3});
+        map.put("city", CityUtil.createCity(1));
+        map.put("empty", null);
+        assertEquals("直接转换的结果应与 json 序列化后再解析的结果一致", JSON.parseObject(JSON.toJSONString(map)), ParamUtils.toMap(map));
+    }
+
+    @Test
+    public void toQueryString() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("name", "北京 市");
+        map.put("ids", Arrays.asList(1, 2));
+        map.put("empty", null);
+        assertEquals("?name=%E5%8C%97%E4%BA%AC+%E5%B8%82&ids=1&ids=2", ParamUtils.toQueryString(map));
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.dadiyang.httpinvoker.util;
+
+import com.github.dadiyang.httpinvoker.HttpApiProxyFactory;
+import com.github.dadiyang.httpinvoker.mocker.MockResponse;
+import com.github.dadiyang.httpinvoker.requestor.HttpRequest;
+import com.github.dadiyang.httpinvoker.requestor.HttpResponse;
+import com.github.dadiyang.httpinvoker.requestor.Requestor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试用的请求器：记录收到的每个请求，可在响应前等待放行，响应由各个测试自行指定
+ *
+ * @author dadiyang
+ * @since 1.2.5
+ */
+public class RecordingRequestor implements Requestor {
+    private static final long HOLD_TIMEOUT_SECONDS = 5;
+    private final List<HttpRequest> requests = new CopyOnWriteArrayList<HttpRequest>();
+    /**
+     * 重试时同一个请求对象会被修改，因此在发送时记录 url
+     */
+    private final List<String> urls = new CopyOnWriteArrayList<String>();
+    private final Responder responder;
+    private volatile CountDownLatch release;
+
+    public RecordingRequestor(Responder responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * @return 总是返回给定状态码和响应体的请求器
+     */
+    public static RecordingRequestor returning(final int statusCode, final String body) {
+        return new RecordingRequestor(new Responder() {
+            @Override
+            public HttpResponse respond(HttpRequest request) {
+                return new MockResponse(statusCode, body);
+            }
+        });
+    }
+
+    /**
+     * 之后的请求都等到 release 放行后才响应，最多等待 5 秒
+     */
+    public RecordingRequestor hold(CountDownLatch release) {
+        this.release = release;
+        return this;
+    }
+
+    /**
+     * 使用当前请求器及给定的配置创建代理
+     */
+    public <T> T createProxy(Class<T> clazz, Properties properties) {
+        HttpApiProxyFactory.Builder builder = new HttpApiProxyFactory.Builder().setRequestor(this);
+        if (properties != null) {
+            builder.addProperties(properties);
+        }
+        return builder.build().getProxy(clazz);
+    }
+
+    public <T> T createProxy(Class<T> clazz) {
+        return createProxy(clazz, null);
+    }
+
+    @Override
+    public HttpResponse sendRequest(HttpRequest request) throws IOException {
+        urls.add(request.getUrl());
+        requests.add(request);
+        CountDownLatch latch = release;
+        if (latch != null) {
+            try {
+                latch.await(HOLD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return responder.respond(request);
+    }
+
+    public List<HttpRequest> getRequests() {
+        return requests;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public int getCount() {
+        return requests.size();
+    }
+
+    public void reset() {
+        requests.clear();
+        urls.clear();
+    }
+
+    /**
+     * 根据请求生成响应
+     */
+    public interface Responder {
+        HttpResponse respond(HttpRequest request) throws IOException;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.dadiyang.httpinvoker.util;
+
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertiesBasePropertyResolver;
+import com.github.dadiyang.httpinvoker.propertyresolver.PropertyResolver;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class UrlTemplateTest {
+
+    @Test
+    public void render() {
+        Properties properties = new Properties();
+        properties.setProperty("host", "http://localhost:8080");
+        PropertyResolver resolver = new PropertiesBasePropertyResolver(properties);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("id", 1);
+        params.put("name", "北京 朝阳");
+        params.put("type", "a&b");
+        UrlTemplate template = UrlTemplate.compile("${host}/city/{id}/#{name}?type={type}&page={page:1}&size=${size:10}");
+        String url = template.render(resolver, params, true);
+        assertEquals("http://localhost:8080/city/1/%E5%8C%97%E4%BA%AC%20%E6%9C%9D%E9%98%B3?type=a%26b&page=1&size=10", url);
+        // {} removes the param while #{} keeps it
+        assertFalse(params.containsKey("id"));
+        assertFalse(params.containsKey("type"));
+        assertTrue(params.containsKey("name"));
+    }
+
+    @Test
+    public void renderWithoutPathVariables() {
+        UrlTemplate template = UrlTemplate.compile("/city/{id}/#{name:%E5%8C%97}");
+        StringBuilder sb = new StringBuilder();
+        assertFalse(template.render(sb, null, null, false, false));
+        assertEquals("/city/{id}/#{name:%E5%8C%97}", sb.toString());
+        sb.setLength(0);
+        assertFalse(template.render(sb, null, null, true, false));
+        assertEquals("/city/{id}/%E5%8C%97", sb.toString());
+        try {
+            template.render(null, null, true);
+            fail("path variable id is not provided");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void notPlaceholder() {
+        UrlTemplate template = UrlTemplate.compile("/city/{a/b}/{}/{");
+        assertFalse(template.hasPathVariables());
+        assertEquals("/city/{a/b}/{}/{", template.render(null, null, true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void configNotProvided() {
+        UrlTemplate.compile("${not.exists}/city").render(new PropertiesBasePropertyResolver(new Properties()), null, true);
+    }
+
+    @Test
+    public void placeholdersInConfig() {
+        Properties properties = new Properties();
+        properties.setProperty("host", "localhost:8080");
+        properties.setProperty("api.city", "http://${host}/city/{id}");
+        PropertyResolver resolver = new PropertiesBasePropertyResolver(properties);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("id", 7);
+        StringBuilder sb = new StringBuilder();
+        assertTrue(UrlTemplate.compile("${api.city}?type=1").render(sb, resolver, params, true, false));
+        assertEquals("http://localhost:8080/city/7?type=1", sb.toString());
+        assertFalse(params.containsKey("id"));
+        // the path variables in the config are kept and reported if they are not filled
+        sb.setLength(0);
+        assertFalse(UrlTemplate.compile("${api.city}").render(sb, resolver, null, false, false));
+        assertEquals("http://localhost:8080/city/{id}", sb.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void circularConfig() {
+        Properties properties = new Properties();
+        properties.setProperty("a", "${b}");
+        properties.setProperty("b", "${a}");
+        UrlTemplate.compile("${a}/city").render(new PropertiesBasePropertyResolver(properties), null, true);
+    }
+
+    @Test
+    public void hasProtocol() {
+        assertTrue(UrlTemplate.hasProtocol("http://localhost"));
+        assertTrue(UrlTemplate.hasProtocol("https://localhost"));
+        assertFalse(UrlTemplate.hasProtocol("/city/http://"));
+        assertFalse(UrlTemplate.hasProtocol("/city"));
+    }
+
+    @Test
+    public void getHost() {
+        assertEquals("http://localhost:8080", UrlTemplate.getHost("http://localhost:8080/city?id=1"));
+        assertEquals("http://localhost:8080", UrlTemplate.getHost("http://localhost:8080?id=1"));
+        assertEquals("https://localhost", UrlTemplate.getHost("https://localhost"));
+    }
+}